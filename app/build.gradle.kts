@@ -34,6 +34,16 @@ android {
         mlModelBinding = false
     }
 
+    androidResources {
+        // dsp/dsp_assets.pack is memory-mapped like the .tflite model, so it must stay uncompressed
+        noCompress += "pack"
+    }
+
+    testOptions {
+        // dsp_sandbox logic (e.g. the reference ImpulseValidator) logs through android.util.Log
+        unitTests.isReturnDefaultValues = true
+    }
+
     sourceSets {
         getByName("main") {
             java.srcDirs("src/main/java")
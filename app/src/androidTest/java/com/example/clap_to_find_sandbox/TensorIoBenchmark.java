@@ -0,0 +1,183 @@
+package com.example.clap_to_find_sandbox;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.clap_to_find_sandbox.dsp_sandbox.DspConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tensorflow.lite.Interpreter;
+
+import java.io.FileInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Micro-benchmark: per-call cost of Interpreter.run with the old float[1][15600] /
+ * float[1][521] arrays (BEFORE) vs the shipping path, ClapDetector.detect() on a default
+ * TfliteInferenceEngine with its preallocated direct buffers (AFTER). Same model, same
+ * window, same default Interpreter.Options. Also times the float[] -> direct buffer copy
+ * on its own: the one copy left on the inference path.
+ * backendConfigurations() compares TfliteInferenceEngine's thread counts x delegates
+ * side by side on the same window.
+ *
+ * Run: ./gradlew connectedAndroidTest -Pandroid.testInstrumentationRunnerArguments.class=
+ *      com.example.clap_to_find_sandbox.TensorIoBenchmark
+ * Results go to logcat under TAG and to the instrumentation status (am instrument -r).
+ */
+@RunWith(AndroidJUnit4.class)
+public class TensorIoBenchmark {
+    private static final String TAG = "TensorIoBenchmark";
+    private static final int WARMUP = 10;
+    private static final int RUNS = 100;
+    private static final int NUM_CLASSES = 521;
+    private static final int CLAP_CLASS_INDEX = 58;
+    /** DEFAULT_THREADS (0) leaves the thread count to TFLite. */
+    private static final int[] THREAD_COUNTS = {TfliteInferenceEngine.DEFAULT_THREADS, 1, 2, 4};
+
+    private Context context;
+    private Interpreter interpreter;
+    private ClapDetector detector;
+    private final float[] window = new float[DspConfig.MODEL_INPUT_SIZE];
+
+    @Before
+    public void setup() throws Exception {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        try (AssetFileDescriptor fd = context.getAssets().openFd("clap_detector.tflite");
+             FileInputStream in = new FileInputStream(fd.getFileDescriptor())) {
+            MappedByteBuffer model = in.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    fd.getStartOffset(), fd.getDeclaredLength());
+            interpreter = new Interpreter(model, new Interpreter.Options());
+        }
+        detector = new ClapDetector(new TfliteInferenceEngine(context, false));
+        // Decaying tone burst, so the score is not trivially constant
+        for (int i = 0; i < window.length; i++) {
+            window[i] = (float) (0.5 * Math.sin(i * 0.3) * Math.exp(-i / 2000.0));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        interpreter.close();
+        detector.close();
+    }
+
+    @Test
+    public void arraysVsClapDetector() {
+        float sink = 0; // keeps the readout in the timed region
+        // BEFORE: multi-dimensional Java arrays
+        float[][] inputTensor = new float[1][DspConfig.MODEL_INPUT_SIZE];
+        float[][] outputTensor = new float[1][NUM_CLASSES];
+        long[] arrayNanos = new long[RUNS];
+        for (int r = -WARMUP; r < RUNS; r++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            System.arraycopy(window, 0, inputTensor[0], 0, window.length);
+            interpreter.run(inputTensor, outputTensor);
+            sink += outputTensor[0][CLAP_CLASS_INDEX];
+            if (r >= 0) arrayNanos[r] = SystemClock.elapsedRealtimeNanos() - start;
+        }
+        float arrayScore = outputTensor[0][CLAP_CLASS_INDEX];
+
+        // AFTER: what the pipeline calls, validation and locking included
+        float bufferScore = 0;
+        long[] bufferNanos = new long[RUNS];
+        for (int r = -WARMUP; r < RUNS; r++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            bufferScore = detector.detect(window, 0);
+            sink += bufferScore;
+            if (r >= 0) bufferNanos[r] = SystemClock.elapsedRealtimeNanos() - start;
+        }
+
+        // The ring -> input tensor copy alone (one bulk put of 15600 floats)
+        FloatBuffer input = ByteBuffer.allocateDirect(DspConfig.MODEL_INPUT_SIZE * 4)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        long[] copyNanos = new long[RUNS];
+        for (int r = -WARMUP; r < RUNS; r++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            input.rewind();
+            input.put(window, 0, window.length);
+            sink += input.get(CLAP_CLASS_INDEX);
+            if (r >= 0) copyNanos[r] = SystemClock.elapsedRealtimeNanos() - start;
+        }
+
+        long arrayMedian = median(arrayNanos);
+        long bufferMedian = median(bufferNanos);
+        long copyMedian = median(copyNanos);
+        report("Per call (median of " + RUNS + "): arrays " + arrayMedian / 1000 + " us, ClapDetector "
+                + bufferMedian / 1000 + " us, saved " + (arrayMedian - bufferMedian) / 1000
+                + " us; float[] copy " + copyMedian / 1000.0 + " us (sink " + sink + ")");
+
+        // Same model, same input: the I/O path must not change the answer
+        assertEquals(arrayScore, bufferScore, 1e-6f);
+    }
+
+    /**
+     * Median per-invoke cost of every threads x delegate configuration. A delegate the device
+     * can't load (typically NNAPI) is reported as unavailable, not failed.
+     */
+    @Test
+    public void backendConfigurations() throws Exception {
+        float reference = detector.detect(window, 0);
+        int measured = 0;
+        for (TfliteInferenceEngine.Delegate delegate : TfliteInferenceEngine.Delegate.values()) {
+            for (int threads : THREAD_COUNTS) {
+                TfliteInferenceEngine engine;
+                try {
+                    engine = new TfliteInferenceEngine(context, false, threads, delegate);
+                } catch (Exception | UnsatisfiedLinkError e) {
+                    report(delegate + " x " + threads + " threads: unavailable (" + e.getMessage() + ")");
+                    continue;
+                }
+                try {
+                    float score = 0;
+                    long[] nanos = new long[RUNS];
+                    for (int r = -WARMUP; r < RUNS; r++) {
+                        long start = SystemClock.elapsedRealtimeNanos();
+                        score = engine.scoreWaveform(window, 0);
+                        if (r >= 0) nanos[r] = SystemClock.elapsedRealtimeNanos() - start;
+                    }
+                    long[] sorted = nanos.clone();
+                    Arrays.sort(sorted);
+                    report(engine.describe() + ": median " + sorted[RUNS / 2] / 1000 + " us, p90 "
+                            + sorted[RUNS * 9 / 10] / 1000 + " us per invoke, score delta "
+                            + Math.abs(score - reference));
+                    measured++;
+                } finally {
+                    engine.close();
+                }
+            }
+        }
+        // At least TFLite's own defaults must load everywhere
+        assertTrue(measured > 0);
+    }
+
+    /** Logcat, and the instrumentation status so the line shows up in the runner's output. */
+    private static void report(String line) {
+        Log.i(TAG, line);
+        Bundle status = new Bundle();
+        status.putString(TAG, line);
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, status);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
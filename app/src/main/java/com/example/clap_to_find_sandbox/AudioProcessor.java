@@ -1,18 +1,15 @@
 package com.example.clap_to_find_sandbox;
 
-import android.Manifest;
 import android.content.Context;
-import android.content.pm.PackageManager;
-import android.media.AudioFormat;
-import android.media.AudioRecord;
-import android.media.MediaRecorder;
 import android.util.Log;
 
-import androidx.core.app.ActivityCompat;
-
 import com.example.clap_to_find_sandbox.dsp_sandbox.*;
 import com.example.clap_to_find_sandbox.dsp_sandbox.ClapLogic;
-import com.example.clap_to_find_sandbox.dsp_sandbox.ImpulseValidator;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ShortBuffer;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * 🚀 GOLD STANDARD AUDIO PROCESSOR (Synced with train_final.py)
@@ -23,16 +20,31 @@ import com.example.clap_to_find_sandbox.dsp_sandbox.ImpulseValidator;
 public class AudioProcessor implements Runnable {
     private static final String TAG = "AudioProcessor_Final";
 
-    private final Context context;
-    private final ClapDetector detector;
+    private final AudioSource source;
     private final OnClapDetectedListener listener;
 
     private volatile boolean isRunning = false;
 
-    private final HannWindow hannWindow;
-    private final FFTProcessor fftProcessor;
-    private final MelFilterbank melFilterbank;
-    private final LogMelExtractor logMelExtractor;
+    // CAPTURE -> ANALYSIS HANDOFF: ~2s of PCM headroom while the model runs
+    private static final int CAPTURE_RING_SAMPLES = 1 << 15;
+    private static final long WORKER_PARK_NANOS = 2_000_000L;
+    private static final long IDLE_PARK_NANOS = DspConfig.IDLE_PARK_MS * 1_000_000L;
+    private static final long WORKER_JOIN_TIMEOUT_MS = 2000;
+    private final PcmRingBuffer captureRing = new PcmRingBuffer(CAPTURE_RING_SAMPLES);
+    private Thread analysisThread;
+    // Per-stage latency histograms: READ_WAIT written by the capture thread, the rest by the worker
+    private final LatencyStats latencyStats = new LatencyStats();
+
+    // Sustained quiet (EnergyGate): the worker wakes every IDLE_PARK_MS instead of per block
+    private volatile boolean idle = false;
+
+    private static final String DSP_ASSET_PACK = "dsp/" + DspAssetPack.ASSET_NAME;
+    private static final String CASCADE_WEIGHTS_ASSET = "dsp/cascade_weights.bin";
+
+    // Gate -> scheduler -> cascade / YAMNet, shared with the offline tools
+    private final DetectionPipeline detectionPipeline;
+    // Logic Engine: hop sequencing, threshold and ClapLogic on the sample clock
+    private final DetectionLoop detectionLoop;
 
     public interface OnClapDetectedListener {
         void onClapDetected(float probability);
@@ -41,24 +53,52 @@ public class AudioProcessor implements Runnable {
     }
 
     public AudioProcessor(Context context, ClapDetector detector, OnClapDetectedListener listener) throws Exception {
-        this.context = context;
-        this.detector = detector;
+        this(context, new MicAudioSource(context), detector, listener);
+    }
+
+    /** Any AudioSource: the mic, or e.g. a WAV asset (WavAudioSource) to replay a recording on the device. */
+    public AudioProcessor(Context context, AudioSource source, ClapDetector detector,
+                          OnClapDetectedListener listener) throws Exception {
+        this.source = source;
         this.listener = listener;
         
-        // Logic Engine
-        this.clapLogic = new ClapLogic();
-
-        // Load the new .bin assets
+        // Frozen window + mel table + config: one mmap of the checksummed pack, read through FloatBuffer views
         int nFreqs = DspConfig.N_FFT / 2 + 1;
-        this.hannWindow = new HannWindow(context.getAssets().open("dsp/hann_window.bin"), DspConfig.WIN_LENGTH);
-        this.fftProcessor = new FFTProcessor(DspConfig.N_FFT);
-        this.melFilterbank = new MelFilterbank(context.getAssets().open("dsp/mel_filterbank.bin"), DspConfig.N_MELS, nFreqs);
-        this.logMelExtractor = new LogMelExtractor();
+        DspAssetPack assetPack = new DspAssetPack(MappedAsset.map(context, DSP_ASSET_PACK));
+        Log.i(TAG, "DSP asset pack " + assetPack.describe());
+        HannWindow hannWindow = new HannWindow(assetPack.window(), DspConfig.WIN_LENGTH);
+        MelFilterbank melFilterbank = new MelFilterbank(assetPack.melMatrix(), DspConfig.N_MELS, nFreqs);
+
+        // Optional pure-Java first stage: DORMANT, no trained weights are bundled yet
+        LogMelPatchClassifier cascade = null;
+        try {
+            cascade = new LogMelPatchClassifier(context.getAssets().open(CASCADE_WEIGHTS_ASSET),
+                    DspConfig.N_MELS, DspConfig.TIME_FRAMES);
+            Log.i(TAG, "Log-mel cascade enabled: YAMNet only runs on ambiguous candidates");
+        } catch (FileNotFoundException e) {
+            Log.i(TAG, "No " + CASCADE_WEIGHTS_ASSET + ", every candidate goes to YAMNet");
+        }
+        // FIXED_POINT: int16 / Q15 front end. FAST_FFT: the fused kernel, bit-identical to the
+        // staged RealFFT chain but with no spectrum buffer
+        if (DspConfig.FIXED_POINT) {
+            this.detectionPipeline = new DetectionPipeline(
+                    new FixedPointFrontEnd(hannWindow, melFilterbank, DspConfig.N_FFT), detector, cascade);
+        } else if (DspConfig.FAST_FFT) {
+            this.detectionPipeline = new DetectionPipeline(
+                    new FusedFrontEnd(hannWindow, melFilterbank, new LogMelExtractor(DspConfig.FAST_MATH),
+                            DspConfig.N_FFT), detector, cascade);
+        } else {
+            // Staged JTransforms chain, the parity reference
+            this.detectionPipeline = new DetectionPipeline(new FramePipeline(hannWindow,
+                    new FFTProcessor(DspConfig.N_FFT), melFilterbank, new LogMelExtractor(DspConfig.FAST_MATH),
+                    DspConfig.N_FFT, DspConfig.N_MELS), detector, cascade);
+        }
+
+        detectionPipeline.setLatencyStats(latencyStats);
+        this.detectionLoop = new DetectionLoop(detectionPipeline, new ClapLogic(), loopListener);
 
         Log.i(TAG, "DSP SYNCED: " + DspConfig.N_MELS + " Mels, " + DspConfig.TIME_FRAMES + " Frames, " + DspConfig.F_MIN + "Hz F_MIN");
     }
-    
-    private final ClapLogic clapLogic;
 
     public void stop() {
         isRunning = false;
@@ -66,117 +106,137 @@ public class AudioProcessor implements Runnable {
 
     @Override
     public void run() {
-        int bufferSize = AudioRecord.getMinBufferSize(
-                DspConfig.SAMPLE_RATE,
-                AudioFormat.CHANNEL_IN_MONO,
-                AudioFormat.ENCODING_PCM_16BIT
-        );
-
-        if (ActivityCompat.checkSelfPermission(context, Manifest.permission.RECORD_AUDIO) != PackageManager.PERMISSION_GRANTED) {
-            listener.onStatusUpdate("ERROR: Permission Denied");
-            return;
-        }
-
-        AudioRecord audioRecord = new AudioRecord(
-                MediaRecorder.AudioSource.MIC,
-                DspConfig.SAMPLE_RATE,
-                AudioFormat.CHANNEL_IN_MONO,
-                AudioFormat.ENCODING_PCM_16BIT,
-                Math.max(bufferSize, DspConfig.N_FFT * 2)
-        );
-
-        if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
-            listener.onStatusUpdate("ERROR: Mic Init Failed");
+        try {
+            source.start();
+        } catch (IOException e) {
+            listener.onStatusUpdate("ERROR: " + e.getMessage());
             return;
         }
 
         try {
-            audioRecord.startRecording();
             isRunning = true;
             listener.onStatusUpdate("Listening...");
 
-            // INFERENCE BUFFER: Holds 15600 samples (~0.975s) for YAMNet
-            int MODEL_INPUT_SIZE = 15600;
-            float[] inferenceBuffer = new float[MODEL_INPUT_SIZE];
-            int frameCount = 0;
-            // pcmBuffer holds the full N_FFT window
-            short[] pcmBuffer = new short[DspConfig.N_FFT];
-            // floatFrame for processing (Normalized)
-            float[] floatFrame = new float[DspConfig.N_FFT];
-
-            // Initial read
-            audioRecord.read(pcmBuffer, 0, DspConfig.N_FFT);
-            
-            // Pre-fill inference buffer with initial data (optional, just to avoid zeros)
-            for(int i=0; i<DspConfig.N_FFT; i++) {
-                inferenceBuffer[MODEL_INPUT_SIZE - DspConfig.N_FFT + i] = pcmBuffer[i] / 32768.0f;
-            }
+            // ANALYSIS WORKER: DSP, gate and inference run off the capture thread,
+            // so a slow model run never stops us from draining the mic.
+            analysisThread = new Thread(this::analysisLoop, "ClapAnalysis");
+            analysisThread.start();
 
+            // CAPTURE LOOP: take a block from the source (mic: CAPTURE_BLOCK_MS into a direct
+            // buffer), publish it to the SPSC ring, wake the worker. Lock-free and allocation-free.
             while (isRunning) {
-                // 1. PCM Normalization
-                for (int i = 0; i < DspConfig.N_FFT; i++) {
-                    floatFrame[i] = (float) pcmBuffer[i] / 32768.0f;
-                }
-
-                // 2. FFT & Power Spectrum (Required for ImpulseValidator)
-                float[] windowedFrame = new float[DspConfig.N_FFT];
-                System.arraycopy(floatFrame, 0, windowedFrame, 0, DspConfig.N_FFT);
-                
-                hannWindow.applyWindow(windowedFrame);
-                float[] power = fftProcessor.getPowerSpectrum(windowedFrame);
-                
-                // 3. HARD GATE: Impulse Validation
-                boolean isImpulse = ImpulseValidator.isImpulse(floatFrame, power);
-                
-                // 4. Update Inference Buffer (Slide & Append)
-                // We shift left by HOP_LENGTH and append the NEW samples.
-                // The new samples are at the END of pcmBuffer (last HOP_LENGTH samples).
-                // Wait, pcmBuffer is updated by reading HOP_LENGTH into the END.
-                // So pcmBuffer [N_FFT - HOP_LENGTH : N_FFT] are the new samples.
-                
-                int samplesNew = DspConfig.HOP_LENGTH;
-                int srcPos = DspConfig.N_FFT - samplesNew;
-                
-                // Shift existing history
-                System.arraycopy(inferenceBuffer, samplesNew, inferenceBuffer, 0, MODEL_INPUT_SIZE - samplesNew);
-                
-                // Append new samples (normalized)
-                for (int i = 0; i < samplesNew; i++) {
-                   inferenceBuffer[MODEL_INPUT_SIZE - samplesNew + i] = (float) pcmBuffer[srcPos + i] / 32768.0f;
+                long readStart = System.nanoTime();
+                ShortBuffer block = source.read();
+                latencyStats.record(LatencyStats.Stage.READ_WAIT, System.nanoTime() - readStart);
+                if (block == null) break;
+                captureRing.write(block); // Full ring: dropped + counted
+                if (!idle) LockSupport.unpark(analysisThread);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Audio Loop Error", e);
+        } finally {
+            isRunning = false;
+            if (analysisThread != null) {
+                LockSupport.unpark(analysisThread);
+                try {
+                    analysisThread.join(WORKER_JOIN_TIMEOUT_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                 }
+            }
+            try { source.close(); } catch (IOException ignored) {}
+        }
+    }
 
+    /**
+     * Analysis worker: drains the capture ring a block at a time; DetectionLoop runs
+     * the pipeline once per hop inside it.
+     */
+    private void analysisLoop() {
+        try {
+            long reportedOverruns = 0;
+            short[] block = new short[DspConfig.CAPTURE_BLOCK_SAMPLES];
 
-                frameCount++;
-                clapLogic.checkTimeout(); // Maintain state
-
-                // 5. Detection Trigger
-                //if (frameCount >= 10 && isImpulse) { // Wait for buffer warmup ~10 frames
-                if (frameCount >= 40 && isImpulse) {  //wait for buffer warmup for 400 ms
-                    // Pass RAW WAVEFORM to YAMNet
-                    float probability = detector.detect(inferenceBuffer);
-                    listener.onConfidenceUpdate(probability);
-
-                    if (probability > DspConfig.CONFIDENCE_THRESHOLD) {
-                        Log.i(TAG, "YAMNet Confirmed: " + probability);
-                        
-                        clapLogic.processClap(null, () -> {
-                            Log.i(TAG, "ALARM TRIGGERED!");
-                            listener.onClapDetected(probability);
-                        });
-                    }
+            while (isRunning) {
+                int got = captureRing.read(block, 0, block.length);
+                if (got == 0) {
+                    LockSupport.parkNanos(idle ? IDLE_PARK_NANOS : WORKER_PARK_NANOS);
+                    continue;
+                }
+                // 0-5. Energy pre-gate, front end, hard gate, coalescing scheduler, cascade / YAMNet,
+                // ClapLogic, per hop
+                detectionLoop.accept(block, 0, got);
+                idle = detectionPipeline.isIdle();
+
+                long overruns = captureRing.getOverrunEvents();
+                if (overruns != reportedOverruns) {
+                    Log.w(TAG, "Capture overrun: " + (overruns - reportedOverruns) + " blocks dropped ("
+                            + captureRing.getDroppedSamples() + " samples total)");
+                    reportedOverruns = overruns;
                 }
-
-                // Shift buffer by HOP_LENGTH
-                System.arraycopy(pcmBuffer, DspConfig.HOP_LENGTH, pcmBuffer, 0, DspConfig.N_FFT - DspConfig.HOP_LENGTH);
-                // Read next HOP_LENGTH samples
-                int samplesRead = audioRecord.read(pcmBuffer, DspConfig.N_FFT - DspConfig.HOP_LENGTH, DspConfig.HOP_LENGTH);
-                if (samplesRead <= 0) break;
             }
         } catch (Exception e) {
-            Log.e(TAG, "Audio Loop Error", e);
-        } finally {
-            try { audioRecord.stop(); } catch (Exception ignored) {}
-            audioRecord.release();
+            Log.e(TAG, "Analysis Loop Error", e);
+            isRunning = false;
+        }
+    }
+
+    private final DetectionLoop.Listener loopListener = new DetectionLoop.Listener() {
+        @Override
+        public void onConfidence(float probability) {
+            listener.onConfidenceUpdate(probability);
+        }
+
+        @Override
+        public void onClap(float probability, long peakSample, ClapPattern.Outcome outcome) {
+            Log.i(TAG, (detectionPipeline.isLastFromCascade() ? "Cascade" : "YAMNet")
+                    + " Confirmed: " + probability);
+            if (outcome == ClapPattern.Outcome.PATTERN) {
+                Log.i(TAG, "ALARM TRIGGERED!");
+                listener.onClapDetected(probability);
+            }
         }
+    };
+
+    /** Per-stage latency histograms, over-budget hops and inferences per minute; any thread. */
+    public LatencyStats.Snapshot getLatencySnapshot() {
+        return latencyStats.snapshot();
+    }
+
+    /** Capture blocks dropped because the analysis worker fell behind. */
+    public long getOverrunEvents() {
+        return captureRing.getOverrunEvents();
+    }
+
+    public long getDroppedSamples() {
+        return captureRing.getDroppedSamples();
+    }
+
+    /** Gate hits folded into another inference by the coalescing scheduler. */
+    public long getInferencesSaved() {
+        return detectionPipeline.getInferencesSaved();
+    }
+
+    public long getInferencesRun() {
+        return detectionPipeline.getInferencesRun();
+    }
+
+    /** Share of hops the energy pre-gate skipped as quiet. */
+    public float getGateSkipRatio() {
+        return detectionPipeline.getEnergyGate().getSkipRatio();
+    }
+
+    /** Estimated front-end + gate time the energy pre-gate saved. */
+    public long getGateCpuSavedNanos() {
+        return detectionPipeline.getEnergyGate().getCpuSavedNanos();
+    }
+
+    public boolean isIdle() {
+        return idle;
+    }
+
+    /** Scheduled candidates the log-mel cascade resolved without YAMNet (0 when disabled). */
+    public long getCascadeResolvedCount() {
+        return detectionPipeline.getCascadeResolvedCount();
     }
 }
@@ -11,11 +11,13 @@ import android.os.IBinder;
 import android.util.Log;
 import androidx.core.app.NotificationCompat;
 
+import com.example.clap_to_find_sandbox.dsp_sandbox.LatencyStats;
+
 public class AudioService extends Service {
     private static final String TAG = "AudioService";
     private static final String CHANNEL_ID = "ClapDetectionChannel";
 
-    private AudioProcessor processor;
+    private volatile AudioProcessor processor; // Read by binder threads
     private ClapDetector detector;
     private final IBinder binder = new LocalBinder();
     private AudioProcessor.OnClapDetectedListener listener;
@@ -24,6 +26,12 @@ public class AudioService extends Service {
         AudioService getService() {
             return AudioService.this;
         }
+
+        /** Per-stage latency of the running detection (hop budget, inferences/min); null when stopped. */
+        LatencyStats.Snapshot getLatencySnapshot() {
+            AudioProcessor running = processor;
+            return running == null ? null : running.getLatencySnapshot();
+        }
     }
 
     private android.media.Ringtone alarmRingtone;
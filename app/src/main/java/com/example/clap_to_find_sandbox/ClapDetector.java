@@ -1,79 +1,258 @@
 package com.example.clap_to_find_sandbox;
 
 import android.content.Context;
-import android.content.res.AssetFileDescriptor;
 import android.util.Log;
 import com.example.clap_to_find_sandbox.dsp_sandbox.DspConfig;
-import org.tensorflow.lite.Interpreter;
-import java.io.FileInputStream;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
+import com.example.clap_to_find_sandbox.dsp_sandbox.FeatureStacker;
+import com.example.clap_to_find_sandbox.dsp_sandbox.InferenceEngine;
+import com.example.clap_to_find_sandbox.dsp_sandbox.InferenceScheduler;
 import java.util.Arrays;
 
-public class ClapDetector {
+/**
+ * Validating, thread-safe front for an InferenceEngine. Also an InferenceEngine
+ * itself, so the shared DetectionPipeline can drive it directly.
+ */
+public class ClapDetector implements InferenceEngine {
     private static final String TAG = "ClapDetector";
-    private Interpreter interpreter;
-    
+    private InferenceEngine engine;
+
+    /**
+     * WAVEFORM: stock YAMNet, [1, 15600] raw audio in, front end runs inside the model.
+     * FEATURES: headless YAMNet, [1, 96, 64] log-mel patch in. The patch comes straight
+     * from our parity-locked Java front end (FeatureStacker), so each hop's STFT/mel work
+     * is done once instead of being redone for all 96 frames on every inference.
+     */
+    public enum InputMode { WAVEFORM, FEATURES }
+
+    private final InputMode inputMode;
+
     // HYBRID MODE: Raw Audio Input for YAMNet
     // Standard YAMNet expects [1, 15600]
-    private static final int MODEL_INPUT_SIZE = 15600;
-    private final float[][] inputTensor = new float[1][MODEL_INPUT_SIZE];
-    private final float[][] outputTensor = new float[1][521]; // YAMNet has 521 classes
+    private static final int MODEL_INPUT_SIZE = DspConfig.MODEL_INPUT_SIZE;
+    private static final int MAX_BATCH = InferenceScheduler.MAX_GROUPS;
 
+    /**
+     * Uses the features-in model when it is bundled, the stock waveform model otherwise.
+     */
     public ClapDetector(Context context) throws Exception {
-        interpreter = new Interpreter(loadModelFile(context, "clap_detector.tflite"), new Interpreter.Options());
-        Log.i("MODEL_SHAPE", Arrays.toString(interpreter.getInputTensor(0).shape()));
-        
-        // Verify shape matches expectation
-        int[] shape = interpreter.getInputTensor(0).shape();
-        // Usually [1, 15600] or [15600]
+        this(context, TfliteInferenceEngine.hasFeaturesModel(context) ? InputMode.FEATURES : InputMode.WAVEFORM);
     }
 
-    private MappedByteBuffer loadModelFile(Context context, String modelPath) throws Exception {
-        AssetFileDescriptor fileDescriptor = context.getAssets().openFd(modelPath);
-        FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor());
-        FileChannel fileChannel = inputStream.getChannel();
-        long startOffset = fileDescriptor.getStartOffset();
-        long declaredLength = fileDescriptor.getDeclaredLength();
-        return fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
+    public ClapDetector(Context context, InputMode inputMode) throws Exception {
+        this(new TfliteInferenceEngine(context, inputMode == InputMode.FEATURES));
+    }
+
+    /**
+     * Any backend: TfliteInferenceEngine with explicit threads/delegate, or a
+     * SimulatedInferenceEngine to run the pipeline off-device.
+     */
+    public ClapDetector(InferenceEngine engine) {
+        this.engine = engine;
+        this.inputMode = engine.acceptsFeatures() ? InputMode.FEATURES : InputMode.WAVEFORM;
+        Log.i(TAG, "Backend: " + engine.describe());
+        if (inputMode == InputMode.FEATURES) {
+            Log.i(TAG, "Features-in model loaded, YAMNet front end bypassed");
+        } else {
+            Log.i(TAG, "Batch inference " + (engine.supportsBatch() ? "enabled" : "unavailable (fixed batch), using sequential fallback"));
+        }
     }
 
     public synchronized float detect(float[] waveform) {
-        if (interpreter == null) {
+        if (waveform.length != MODEL_INPUT_SIZE) {
+            Log.e(TAG, "Input size mismatch: " + waveform.length + " != " + MODEL_INPUT_SIZE);
+            return 0;
+        }
+        return detect(waveform, 0);
+    }
+
+    /**
+     * Runs on waveform[offset .. offset + 15600), e.g. the contiguous view of a
+     * MirroredRingBuffer, without the caller having to linearize it first.
+     */
+    public synchronized float detect(float[] waveform, int offset) {
+        if (!acceptsWaveform(offset, waveform.length)) return 0;
+
+        try {
+            return engine.scoreWaveform(waveform, offset);
+        } catch (Exception e) {
+            Log.e(TAG, "Error running inference", e);
+            return 0;
+        }
+    }
+
+    private boolean acceptsWaveform(int offset, int length) {
+        if (engine == null) {
+            Log.w(TAG, "Interpreter is closed, skipping detection.");
+            return false;
+        }
+        if (inputMode != InputMode.WAVEFORM) {
+            Log.e(TAG, "Waveform input on a features-in model, use detectFeatures()");
+            return false;
+        }
+        if (offset < 0 || offset + MODEL_INPUT_SIZE > length) {
+            Log.e(TAG, "Input window out of range: offset " + offset + " in " + length);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * FEATURES MODE: scores the stacker's current [96][64] log-mel patch (oldest frame first,
+     * silence ahead of the frames while it fills).
+     */
+    public synchronized float detectFeatures(FeatureStacker stacker) {
+        if (engine == null) {
             Log.w(TAG, "Interpreter is closed, skipping detection.");
             return 0;
         }
-        
-        if (waveform.length != MODEL_INPUT_SIZE) {
-            Log.e(TAG, "Input size mismatch: " + waveform.length + " != " + MODEL_INPUT_SIZE);
+        if (inputMode != InputMode.FEATURES) {
+            Log.e(TAG, "Feature input on a waveform model, use detect()");
+            return 0;
+        }
+        if (stacker.getNFrames() != DspConfig.TIME_FRAMES || stacker.getNMels() != DspConfig.N_MELS) {
+            Log.e(TAG, "Patch size mismatch: " + stacker.getNFrames() + "x" + stacker.getNMels());
             return 0;
         }
 
-        // Copy waveform to input tensor
-        System.arraycopy(waveform, 0, inputTensor[0], 0, MODEL_INPUT_SIZE);
+        // Flat [time][mels] patch straight from the stacker, no reordering, newest frame last
+        return scorePatch(stacker.patchArray(), stacker.modelPatchOffset());
+    }
+
+    /**
+     * Scores N candidate windows with one interpreter invoke (split every
+     * InferenceScheduler.MAX_GROUPS windows, the most the pipeline fires at once).
+     * Window i is samples[offsets[i] .. offsets[i] + 15600). Writes N clap scores into scores.
+     * Models with a fixed batch dimension fall back to N sequential detect() calls.
+     */
+    public synchronized void detectBatch(float[] samples, int[] offsets, int count, float[] scores) {
+        if (count <= 0) return;
+        if (engine == null) {
+            Log.w(TAG, "Interpreter is closed, skipping detection.");
+            Arrays.fill(scores, 0, count, 0);
+            return;
+        }
+        if (!engine.supportsBatch() || count == 1) {
+            for (int i = 0; i < count; i++) {
+                scores[i] = detect(samples, offsets[i]);
+            }
+            return;
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (!acceptsWaveform(offsets[i], samples.length)) {
+                Arrays.fill(scores, 0, count, 0);
+                return;
+            }
+        }
+
+        try {
+            for (int start = 0; start < count; start += MAX_BATCH) {
+                int n = Math.min(MAX_BATCH, count - start);
+                if (start == 0) {
+                    engine.scoreWaveformBatch(samples, offsets, n, scores);
+                } else {
+                    int[] chunkOffsets = Arrays.copyOfRange(offsets, start, start + n);
+                    float[] chunkScores = new float[n];
+                    engine.scoreWaveformBatch(samples, chunkOffsets, n, chunkScores);
+                    System.arraycopy(chunkScores, 0, scores, start, n);
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error running batched inference", e);
+            Arrays.fill(scores, 0, count, 0);
+        }
+    }
+
+    /**
+     * Convenience overload: one 15600-sample array per candidate window.
+     */
+    public synchronized float[] detectBatch(float[][] windows) {
+        float[] scores = new float[windows.length];
+        if (!supportsBatch()) {
+            for (int i = 0; i < windows.length; i++) {
+                scores[i] = detect(windows[i]);
+            }
+            return scores;
+        }
+        // Lay the windows end to end so the offset-based path can take them
+        float[] packed = new float[windows.length * MODEL_INPUT_SIZE];
+        int[] offsets = new int[windows.length];
+        for (int i = 0; i < windows.length; i++) {
+            if (windows[i].length != MODEL_INPUT_SIZE) {
+                Log.e(TAG, "Input size mismatch: " + windows[i].length + " != " + MODEL_INPUT_SIZE);
+                return scores;
+            }
+            System.arraycopy(windows[i], 0, packed, i * MODEL_INPUT_SIZE, MODEL_INPUT_SIZE);
+            offsets[i] = i * MODEL_INPUT_SIZE;
+        }
+        detectBatch(packed, offsets, windows.length, scores);
+        return scores;
+    }
+
+    // ---- InferenceEngine (validated, errors logged and scored 0) ----
+
+    @Override
+    public float scoreWaveform(float[] samples, int offset) {
+        return detect(samples, offset);
+    }
+
+    @Override
+    public synchronized float scorePatch(float[] patch, int offset) {
+        if (engine == null) {
+            Log.w(TAG, "Interpreter is closed, skipping detection.");
+            return 0;
+        }
+        if (inputMode != InputMode.FEATURES) {
+            Log.e(TAG, "Feature input on a waveform model, use detect()");
+            return 0;
+        }
+        if (offset < 0 || offset + DspConfig.TIME_FRAMES * DspConfig.N_MELS > patch.length) {
+            Log.e(TAG, "Patch out of range: offset " + offset + " in " + patch.length);
+            return 0;
+        }
 
         try {
-            interpreter.run(inputTensor, outputTensor);
-            
-            // Get Clap Score (Class 58)
-            // Note: Standard YAMNet might output logits or probabilities. 
-            // Usually Softmax is applied.
-            // Check if outputTensor values sum to 1. If not, we might need sigmoid/softmax.
-            // But standard TFLite YAMNet usually includes the activation.
-            
-            float clapScore = outputTensor[0][58]; 
-            return clapScore;
-            
+            return engine.scorePatch(patch, offset);
         } catch (Exception e) {
-            Log.e(TAG, "Error running TFLite interpreter", e);
+            Log.e(TAG, "Error running inference", e);
             return 0;
         }
     }
 
+    @Override
+    public void scoreWaveformBatch(float[] samples, int[] offsets, int count, float[] scores) {
+        detectBatch(samples, offsets, count, scores);
+    }
+
+    @Override
+    public boolean acceptsFeatures() {
+        return inputMode == InputMode.FEATURES;
+    }
+
+    @Override
+    public String describe() {
+        return describeBackend();
+    }
+
+    @Override
+    public synchronized boolean supportsBatch() {
+        return engine != null && engine.supportsBatch();
+    }
+
+    public InputMode getInputMode() {
+        return inputMode;
+    }
+
+    /** Backend configuration, e.g. "TFLite(waveform, threads default, DEFAULT)". */
+    public synchronized String describeBackend() {
+        return engine == null ? "closed" : engine.describe();
+    }
+
+    @Override
     public synchronized void close() {
-        if (interpreter != null) {
-            interpreter.close();
-            interpreter = null;
+        if (engine != null) {
+            engine.close();
+            engine = null;
         }
     }
 }
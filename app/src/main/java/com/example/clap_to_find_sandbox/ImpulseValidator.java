@@ -17,29 +17,38 @@ import java.util.Arrays;
 public class ImpulseValidator {
     private static final String TAG = "ImpulseValidator";
 
-    // Thresholds (Synced with Python config.py)
-    // Thresholds (Synced with Python config.py)
-    private static final float PEAK_THRESHOLD = 0.05f; // Lowered slightly
-    private static final float ATTACK_TIME_MAX_MS = 30.0f; // Relaxed from 20 to 30
-    private static final float DECAY_TIME_MAX_MS = 200.0f; // Relaxed from 120 to 200
+    // Thresholds (Synced with Python config.py), shared with StreamingImpulseTracker
+    private static final float PEAK_THRESHOLD = ImpulseCriteria.PEAK_THRESHOLD;
+    private static final float ATTACK_TIME_MAX_MS = ImpulseCriteria.ATTACK_TIME_MAX_MS;
+    private static final float DECAY_TIME_MAX_MS = ImpulseCriteria.DECAY_TIME_MAX_MS;
 
     // DISABLED QUALITY CHECKS (Letting YAMNet decide)
-    private static final float RINGING_THRESHOLD = 999.0f;          // DISABLED (Was 0.6f)
-    private static final float SPECTRAL_FLATNESS_THRESHOLD = 0.0f;  // DISABLED (Was 0.05f)
-    private static final float HF_RATIO_THRESHOLD = 0.0f;           // DISABLED (Was 0.5f)
+    private static final float RINGING_THRESHOLD = ImpulseCriteria.RINGING_THRESHOLD;
+    private static final float SPECTRAL_FLATNESS_THRESHOLD = ImpulseCriteria.SPECTRAL_FLATNESS_THRESHOLD;
+    private static final float HF_RATIO_THRESHOLD = ImpulseCriteria.HF_RATIO_THRESHOLD;
 
     /**
      * Main validation function.
+     * Reference implementation: rescans the whole frame on every call.
+     * The audio loop uses {@link StreamingImpulseTracker}, which must stay equivalent to this.
      * @param buffer The time-domain audio buffer (typically 300ms window).
      * @param spectrum The frequency-domain magnitude spectrum.
      * @return true if the sound is a valid impulse.
      */
     public static boolean isImpulse(float[] buffer, float[] spectrum) {
+        return isImpulse(buffer, 0, buffer.length, spectrum);
+    }
+
+    /**
+     * Same as {@link #isImpulse(float[], float[])} on buffer[offset .. offset + length),
+     * so frames can be read in place from a {@link MirroredRingBuffer}.
+     */
+    public static boolean isImpulse(float[] buffer, int offset, int length, float[] spectrum) {
         // 1. Peak Check
         float peakVal = 0;
         int peakIdx = 0;
-        for (int i = 0; i < buffer.length; i++) {
-            float abs = Math.abs(buffer[i]);
+        for (int i = 0; i < length; i++) {
+            float abs = Math.abs(buffer[offset + i]);
             if (abs > peakVal) {
                 peakVal = abs;
                 peakIdx = i;
@@ -57,7 +66,7 @@ public class ImpulseValidator {
         int scanStart = Math.max(0, peakIdx - (int)(DspConfig.SAMPLE_RATE * 0.05f)); // 50ms lookback
 
         for (int i = peakIdx; i >= scanStart; i--) {
-            if (Math.abs(buffer[i]) < attackThreshold) {
+            if (Math.abs(buffer[offset + i]) < attackThreshold) {
                 startIdx = i;
                 break;
             }
@@ -71,11 +80,11 @@ public class ImpulseValidator {
 
         // 3. Decay Time Check (Scan forwards for 20% drop)
         float decayThreshold = peakVal * 0.2f;
-        int endIdx = buffer.length - 1;
-        int scanEnd = Math.min(buffer.length, peakIdx + (int)(DspConfig.SAMPLE_RATE * 0.2f)); // 200ms lookahead
+        int endIdx = length - 1;
+        int scanEnd = Math.min(length, peakIdx + (int)(DspConfig.SAMPLE_RATE * 0.2f)); // 200ms lookahead
 
         for (int i = peakIdx; i < scanEnd; i++) {
-            if (Math.abs(buffer[i]) < decayThreshold) {
+            if (Math.abs(buffer[offset + i]) < decayThreshold) {
                 endIdx = i;
                 break;
             }
@@ -90,12 +99,12 @@ public class ImpulseValidator {
         // 4. Ringing Check (Secondary Peaks)
         // Zero out the main event to find secondary peaks
         int exclusionStart = Math.max(0, startIdx - (int)(DspConfig.SAMPLE_RATE * 0.01f));
-        int exclusionEnd = Math.min(buffer.length, endIdx + (int)(DspConfig.SAMPLE_RATE * 0.01f));
+        int exclusionEnd = Math.min(length, endIdx + (int)(DspConfig.SAMPLE_RATE * 0.01f));
 
         float secondaryPeak = 0;
-        for (int i = 0; i < buffer.length; i++) {
+        for (int i = 0; i < length; i++) {
             if (i >= exclusionStart && i <= exclusionEnd) continue;
-            float abs = Math.abs(buffer[i]);
+            float abs = Math.abs(buffer[offset + i]);
             if (abs > secondaryPeak) secondaryPeak = abs;
         }
 
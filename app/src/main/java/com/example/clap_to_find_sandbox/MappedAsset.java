@@ -0,0 +1,27 @@
+package com.example.clap_to_find_sandbox;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Memory-maps an asset straight out of the APK: no stream, no heap copy.
+ * The asset must be stored uncompressed (.tflite, and .pack via noCompress in build.gradle.kts).
+ */
+final class MappedAsset {
+    private MappedAsset() {
+    }
+
+    static MappedByteBuffer map(Context context, String path) throws IOException {
+        try (AssetFileDescriptor fileDescriptor = context.getAssets().openFd(path);
+             FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor())) {
+            FileChannel fileChannel = inputStream.getChannel();
+            // The mapping outlives the descriptor
+            return fileChannel.map(FileChannel.MapMode.READ_ONLY,
+                    fileDescriptor.getStartOffset(), fileDescriptor.getDeclaredLength());
+        }
+    }
+}
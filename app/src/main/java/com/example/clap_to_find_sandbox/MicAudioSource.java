@@ -0,0 +1,79 @@
+package com.example.clap_to_find_sandbox;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+
+import androidx.core.app.ActivityCompat;
+
+import com.example.clap_to_find_sandbox.dsp_sandbox.AudioSource;
+import com.example.clap_to_find_sandbox.dsp_sandbox.DspConfig;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+/**
+ * The microphone as an AudioSource: AudioRecord reads one CAPTURE_BLOCK_MS block per call
+ * into a direct buffer (one JNI copy, no per-read allocation), paced by the hardware.
+ */
+public class MicAudioSource implements AudioSource {
+    private final Context context;
+    private final int blockBytes = DspConfig.CAPTURE_BLOCK_SAMPLES * 2;
+    private final ByteBuffer captureBuffer = ByteBuffer.allocateDirect(blockBytes).order(ByteOrder.nativeOrder());
+    private final ShortBuffer captureView = captureBuffer.asShortBuffer();
+    private AudioRecord audioRecord;
+
+    public MicAudioSource(Context context) {
+        this.context = context;
+    }
+
+    @Override
+    public void start() throws IOException {
+        if (ActivityCompat.checkSelfPermission(context, Manifest.permission.RECORD_AUDIO) != PackageManager.PERMISSION_GRANTED) {
+            throw new IOException("Permission Denied");
+        }
+
+        int bufferSize = AudioRecord.getMinBufferSize(
+                DspConfig.SAMPLE_RATE,
+                AudioFormat.CHANNEL_IN_MONO,
+                AudioFormat.ENCODING_PCM_16BIT
+        );
+        // Room for two capture blocks, so the HAL keeps filling one while we publish the other
+        audioRecord = new AudioRecord(
+                MediaRecorder.AudioSource.MIC,
+                DspConfig.SAMPLE_RATE,
+                AudioFormat.CHANNEL_IN_MONO,
+                AudioFormat.ENCODING_PCM_16BIT,
+                Math.max(bufferSize, Math.max(DspConfig.N_FFT * 2, 2 * blockBytes))
+        );
+
+        if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
+            close();
+            throw new IOException("Mic Init Failed");
+        }
+        audioRecord.startRecording();
+    }
+
+    @Override
+    public ShortBuffer read() {
+        captureBuffer.clear();
+        int bytesRead = audioRecord.read(captureBuffer, blockBytes, AudioRecord.READ_BLOCKING);
+        if (bytesRead <= 0) return null;
+        captureView.clear();
+        captureView.limit(bytesRead / 2);
+        return captureView;
+    }
+
+    @Override
+    public void close() {
+        if (audioRecord == null) return;
+        try { audioRecord.stop(); } catch (Exception ignored) {}
+        audioRecord.release();
+        audioRecord = null;
+    }
+}
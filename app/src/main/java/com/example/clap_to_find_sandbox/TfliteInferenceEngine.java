@@ -0,0 +1,230 @@
+package com.example.clap_to_find_sandbox;
+
+import android.content.Context;
+import android.util.Log;
+import com.example.clap_to_find_sandbox.dsp_sandbox.DspConfig;
+import com.example.clap_to_find_sandbox.dsp_sandbox.InferenceEngine;
+import com.example.clap_to_find_sandbox.dsp_sandbox.InferenceScheduler;
+import org.tensorflow.lite.Interpreter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.Arrays;
+
+/**
+ * YAMNet on TFLite. Thread count and delegate are chosen at construction so
+ * backend configurations can be compared side by side (TensorIoBenchmark.backendConfigurations
+ * prints per-invoke cost for every threads x delegate pair). The 2-argument constructor
+ * keeps TFLite's own Interpreter.Options defaults (the production configuration);
+ * threads and delegates are opt-in until measured on device.
+ */
+public class TfliteInferenceEngine implements InferenceEngine {
+    private static final String TAG = "TfliteInferenceEngine";
+
+    /**
+     * DEFAULT: Interpreter.Options left untouched (TFLite's own choice).
+     * CPU: plain TFLite kernels (XNNPACK explicitly off).
+     * XNNPACK: TFLite's optimized CPU delegate.
+     * NNAPI: vendor accelerator through Android NNAPI (falls back to CPU per op).
+     */
+    public enum Delegate { DEFAULT, CPU, XNNPACK, NNAPI }
+
+    /** Thread count 0: not set, TFLite's default. */
+    public static final int DEFAULT_THREADS = 0;
+    public static final Delegate DEFAULT_DELEGATE = Delegate.DEFAULT;
+
+    public static final String WAVEFORM_MODEL = "clap_detector.tflite";
+    public static final String FEATURES_MODEL = "clap_detector_features.tflite";
+
+    private static final int MODEL_INPUT_SIZE = DspConfig.MODEL_INPUT_SIZE;
+    private static final int NUM_CLASSES = 521; // YAMNet has 521 classes
+    private static final int CLAP_CLASS_INDEX = 58;
+    private static final int MAX_BATCH = InferenceScheduler.MAX_GROUPS;
+
+    private final Interpreter interpreter;
+    private final boolean featuresModel;
+    private final int numThreads;
+    private final Delegate delegate;
+
+    // TENSOR I/O: preallocated native-order direct buffers, handed to the interpreter as-is.
+    // Java float[][] arrays would be walked and copied across JNI on every run; a direct
+    // buffer is read in place, and we only read back the class we need.
+    private final ByteBuffer inputBuffer;
+    private final FloatBuffer inputFloats;
+    private final ByteBuffer outputBuffer = allocateFloats(NUM_CLASSES);
+    private final FloatBuffer outputFloats = outputBuffer.asFloatBuffer();
+
+    // BATCH MODE: only for models exported with a dynamic batch dimension ([-1, 15600]).
+    // One buffer pair per batch size, kept: alternating 1- and n-window calls don't allocate.
+    private final boolean supportsBatch;
+    private int allocatedBatch = 1;
+    private final ByteBuffer[] batchInputBuffers = new ByteBuffer[MAX_BATCH + 1];
+    private final FloatBuffer[] batchInputFloats = new FloatBuffer[MAX_BATCH + 1];
+    private final ByteBuffer[] batchOutputBuffers = new ByteBuffer[MAX_BATCH + 1];
+
+    public TfliteInferenceEngine(Context context, boolean featuresModel) throws Exception {
+        this(context, featuresModel, DEFAULT_THREADS, DEFAULT_DELEGATE);
+    }
+
+    public TfliteInferenceEngine(Context context, boolean featuresModel, int numThreads, Delegate delegate)
+            throws Exception {
+        this.featuresModel = featuresModel;
+        this.numThreads = numThreads;
+        this.delegate = delegate;
+
+        Interpreter.Options options = new Interpreter.Options();
+        if (numThreads > 0) {
+            options.setNumThreads(numThreads);
+        }
+        switch (delegate) {
+            case DEFAULT:
+                break;
+            case CPU:
+                options.setUseXNNPACK(false);
+                break;
+            case XNNPACK:
+                options.setUseXNNPACK(true);
+                break;
+            case NNAPI:
+                options.setUseNNAPI(true);
+                break;
+        }
+        interpreter = new Interpreter(loadModelFile(context, featuresModel ? FEATURES_MODEL : WAVEFORM_MODEL), options);
+        Log.i("MODEL_SHAPE", Arrays.toString(interpreter.getInputTensor(0).shape()));
+
+        // Verify shape matches expectation
+        int[] shape = interpreter.getInputTensor(0).shape();
+        if (featuresModel) {
+            // [1, 96, 64]: must match the FeatureStacker patch exactly
+            if (shape.length != 3 || shape[1] != DspConfig.TIME_FRAMES || shape[2] != DspConfig.N_MELS) {
+                interpreter.close();
+                throw new Exception("Features model input " + Arrays.toString(shape)
+                        + " != [1, " + DspConfig.TIME_FRAMES + ", " + DspConfig.N_MELS + "]");
+            }
+            inputBuffer = allocateFloats(DspConfig.TIME_FRAMES * DspConfig.N_MELS);
+            supportsBatch = false;
+        } else {
+            // Usually [1, 15600] or [15600]
+            inputBuffer = allocateFloats(MODEL_INPUT_SIZE);
+            int[] signature = interpreter.getInputTensor(0).shapeSignature();
+            supportsBatch = shape.length == 2 && signature.length == 2 && signature[0] == -1;
+        }
+        inputFloats = inputBuffer.asFloatBuffer();
+        Log.i(TAG, describe());
+    }
+
+    /** true if the headless features-in model is bundled. */
+    public static boolean hasFeaturesModel(Context context) {
+        try {
+            context.getAssets().openFd(FEATURES_MODEL).close();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static ByteBuffer allocateFloats(int count) {
+        return ByteBuffer.allocateDirect(count * 4).order(ByteOrder.nativeOrder());
+    }
+
+    private MappedByteBuffer loadModelFile(Context context, String modelPath) throws Exception {
+        return MappedAsset.map(context, modelPath);
+    }
+
+    @Override
+    public float scoreWaveform(float[] samples, int offset) {
+        // Copy waveform straight into the input tensor buffer (one bulk put)
+        inputFloats.rewind();
+        inputFloats.put(samples, offset, MODEL_INPUT_SIZE);
+        return runSingle();
+    }
+
+    @Override
+    public float scorePatch(float[] patch, int offset) {
+        // Flat [time][mels] patch, bulk-put into the bound input buffer
+        inputFloats.rewind();
+        inputFloats.put(patch, offset, DspConfig.TIME_FRAMES * DspConfig.N_MELS);
+        return runSingle();
+    }
+
+    private float runSingle() {
+        ensureBatchSize(1);
+        inputBuffer.rewind();
+        outputBuffer.rewind();
+        interpreter.run(inputBuffer, outputBuffer);
+
+        // Get Clap Score (Class 58)
+        // Note: Standard YAMNet might output logits or probabilities.
+        // Usually Softmax is applied.
+        // Check if outputTensor values sum to 1. If not, we might need sigmoid/softmax.
+        // But standard TFLite YAMNet usually includes the activation.
+
+        // Only the clap class is read back out of the 521 scores
+        return outputFloats.get(CLAP_CLASS_INDEX);
+    }
+
+    @Override
+    public void scoreWaveformBatch(float[] samples, int[] offsets, int count, float[] scores) {
+        if (count > MAX_BATCH) {
+            throw new IllegalArgumentException("Batch of " + count + " over " + MAX_BATCH);
+        }
+        if (count == 1) {
+            scores[0] = scoreWaveform(samples, offsets[0]);
+            return;
+        }
+        ensureBatchSize(count);
+        ByteBuffer input = batchInputBuffers[count];
+        ByteBuffer output = batchOutputBuffers[count];
+        FloatBuffer inputWindows = batchInputFloats[count];
+        inputWindows.rewind();
+        for (int i = 0; i < count; i++) {
+            inputWindows.put(samples, offsets[i], MODEL_INPUT_SIZE);
+        }
+        input.rewind();
+        output.rewind();
+        interpreter.run(input, output);
+        for (int i = 0; i < count; i++) {
+            scores[i] = output.getFloat((i * NUM_CLASSES + CLAP_CLASS_INDEX) * 4);
+        }
+    }
+
+    /**
+     * Resizes the input tensor to [batch, 15600] when the requested batch differs from the
+     * allocated one. Buffers are allocated once per size.
+     */
+    private void ensureBatchSize(int batch) {
+        if (batch == allocatedBatch) return;
+        interpreter.resizeInput(0, new int[]{batch, MODEL_INPUT_SIZE});
+        interpreter.allocateTensors();
+        allocatedBatch = batch;
+        if (batch > 1 && batchInputBuffers[batch] == null) {
+            // Sized exactly: the interpreter checks buffer capacity against the tensor
+            batchInputBuffers[batch] = allocateFloats(batch * MODEL_INPUT_SIZE);
+            batchInputFloats[batch] = batchInputBuffers[batch].asFloatBuffer();
+            batchOutputBuffers[batch] = allocateFloats(batch * NUM_CLASSES);
+        }
+    }
+
+    @Override
+    public boolean acceptsFeatures() {
+        return featuresModel;
+    }
+
+    @Override
+    public boolean supportsBatch() {
+        return supportsBatch;
+    }
+
+    @Override
+    public String describe() {
+        return "TFLite(" + (featuresModel ? "features" : "waveform") + ", threads "
+                + (numThreads > 0 ? String.valueOf(numThreads) : "default") + ", " + delegate
+                + (supportsBatch ? ", batch" : "") + ")";
+    }
+
+    @Override
+    public void close() {
+        interpreter.close();
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import java.nio.ShortBuffer;
+
+/**
+ * In-memory AudioSource: 16-bit PCM handed out in blocks of the given sizes (cycled),
+ * as views of the array itself. Replays and tests can cut one stream any way they like.
+ */
+public class ArrayAudioSource implements AudioSource {
+    private final ShortBuffer view;
+    private final int[] blockSizes;
+    private int position = 0;
+    private int next = 0;
+
+    /** @param blockSizes Block sizes in samples, used in turn; DspConfig.CAPTURE_BLOCK_SAMPLES if none. */
+    public ArrayAudioSource(short[] pcm, int... blockSizes) {
+        for (int size : blockSizes) {
+            if (size <= 0) throw new IllegalArgumentException("Block size " + size);
+        }
+        this.view = ShortBuffer.wrap(pcm);
+        this.blockSizes = blockSizes.length == 0 ? new int[]{DspConfig.CAPTURE_BLOCK_SAMPLES} : blockSizes;
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public ShortBuffer read() {
+        int n = Math.min(blockSizes[next], view.capacity() - position);
+        if (n == 0) return null;
+        next = (next + 1) % blockSizes.length;
+        view.limit(position + n);
+        view.position(position);
+        position += n;
+        return view;
+    }
+
+    /** Samples handed out so far. */
+    public int getPosition() {
+        return position;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ShortBuffer;
+
+/**
+ * ARCHITECT'S NOTE: Where the detection loop's PCM comes from. 16-bit mono at
+ * DspConfig.SAMPLE_RATE, delivered in blocks of whatever size the source likes
+ * (HopSequencer cuts them into hops):
+ *
+ * - MicAudioSource (app): AudioRecord into a direct buffer, paced by the hardware.
+ * - ArrayAudioSource / WavAudioSource: memory or a WAV file, as fast as the consumer reads,
+ *   so the whole loop (warmup, gate, scheduler, scorer, ClapPattern) replays faster than
+ *   real time on any JVM.
+ */
+public interface AudioSource extends Closeable {
+    /**
+     * Starts delivery (opens the device, ...).
+     * @throws IOException if the source can't deliver; the message is user-facing.
+     */
+    void start() throws IOException;
+
+    /**
+     * Next block, blocking until one is there. The view (position to limit) is only
+     * valid until the next call; the reader may consume it.
+     * @return null at end of stream.
+     */
+    ShortBuffer read() throws IOException;
+}
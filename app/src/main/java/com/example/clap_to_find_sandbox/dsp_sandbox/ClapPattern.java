@@ -0,0 +1,143 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+/**
+ * ARCHITECT'S NOTE: N-event pattern matcher on the SAMPLE CLOCK. Events carry the hop index
+ * (sample / HOP_LENGTH) of their peak, never wall time, so the result depends only on the
+ * audio: a live run, a slow device and a corpus replay at 100x real time agree.
+ *
+ * - ECHO: an event less than minGap hops after the previous one is ignored.
+ * - A gap over maxGap breaks the sequence: the event starts a new one.
+ * - The last events sit in a fixed ring of N timestamps. Events more than maxSpan hops
+ *   before the newest drop out of it, so a pattern may start at ANY event, not just the
+ *   first of a run (claps 2-4 of a late 4-clap run still match).
+ * - PATTERN when the ring is full; it is then cleared, so one more clap can't re-trigger.
+ *
+ * Allocation-free after construction. Not thread safe: one instance per stream.
+ */
+public class ClapPattern {
+    /** ClapLogic's defaults: 3 claps within 3 s, echoes under 30 ms ignored. */
+    public static final int CLAPS_PER_PATTERN = 3;
+    public static final long MAX_SEQUENCE_DURATION_MS = 3000;
+    public static final long MIN_INTERVAL_MS = 30;
+
+    /** Result of one event. */
+    public enum Outcome { ECHO, COUNTED, PATTERN }
+
+    private final long minGap;
+    private final long maxGap;
+    private final long maxSpan;
+    private final long[] ring;
+
+    private int head = 0; // Oldest event
+    private int count = 0;
+    private long patterns = 0;
+
+    /**
+     * @param events  Events per pattern (at least 1).
+     * @param minGap  Shortest gap between counted events, hops; closer ones are echoes.
+     * @param maxGap  Longest gap between consecutive events of a pattern, hops.
+     * @param maxSpan Longest first-to-last span of a pattern, hops.
+     */
+    public ClapPattern(int events, long minGap, long maxGap, long maxSpan) {
+        if (events < 1 || minGap < 0 || maxGap < minGap || maxSpan < 0) {
+            throw new IllegalArgumentException("Bad pattern: " + events + " events, gaps ["
+                    + minGap + ", " + maxGap + "], span " + maxSpan);
+        }
+        this.minGap = minGap;
+        this.maxGap = maxGap;
+        this.maxSpan = maxSpan;
+        this.ring = new long[events];
+    }
+
+    /** ClapLogic's 3-clap rule. */
+    public static ClapPattern threeClaps() {
+        long span = hopsFor(MAX_SEQUENCE_DURATION_MS);
+        return new ClapPattern(CLAPS_PER_PATTERN, hopsFor(MIN_INTERVAL_MS), span, span);
+    }
+
+    /** Milliseconds to hops, rounded up (a 30 ms minimum stays at least 30 ms). */
+    public static long hopsFor(long ms) {
+        long samples = ms * DspConfig.SAMPLE_RATE / 1000;
+        return (samples + DspConfig.HOP_LENGTH - 1) / DspConfig.HOP_LENGTH;
+    }
+
+    /**
+     * One detection, in stream order.
+     * @param hop Hop index of the event (DetectionPipeline.getLastPeakHop()).
+     */
+    public Outcome onEvent(long hop) {
+        if (count > 0) {
+            long gap = hop - newest();
+            if (gap < minGap) {
+                return Outcome.ECHO;
+            }
+            if (gap > maxGap) {
+                count = 0;
+            }
+        }
+
+        // Never full here: a full ring is a pattern and was cleared
+        ring[(head + count) % ring.length] = hop;
+        count++;
+        expire(hop);
+
+        if (count == ring.length) {
+            count = 0;
+            patterns++;
+            return Outcome.PATTERN;
+        }
+        return Outcome.COUNTED;
+    }
+
+    /**
+     * Drops events that can no longer be part of a pattern completed at or after nowHop.
+     * Only needed to keep getPendingEvents() current between detections; nowHop must not be
+     * later than any event still to come.
+     */
+    public void expire(long nowHop) {
+        while (count > 0 && nowHop - ring[head] > maxSpan) {
+            head = next(head);
+            count--;
+        }
+        if (count > 0 && nowHop - newest() > maxGap) {
+            count = 0;
+        }
+    }
+
+    /** Events counted towards the next pattern. */
+    public int getPendingEvents() {
+        return count;
+    }
+
+    /** Hop index of the newest counted event, -1 if none. */
+    public long getNewestEvent() {
+        return count == 0 ? -1 : newest();
+    }
+
+    /** Hop index of the oldest counted event, -1 if none. */
+    public long getOldestEvent() {
+        return count == 0 ? -1 : ring[head];
+    }
+
+    public long getPatterns() {
+        return patterns;
+    }
+
+    public int getEventsPerPattern() {
+        return ring.length;
+    }
+
+    public void reset() {
+        head = 0;
+        count = 0;
+        patterns = 0;
+    }
+
+    private long newest() {
+        return ring[(head + count - 1) % ring.length];
+    }
+
+    private int next(int index) {
+        return index + 1 == ring.length ? 0 : index + 1;
+    }
+}
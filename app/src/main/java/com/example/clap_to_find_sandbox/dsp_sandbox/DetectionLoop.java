@@ -0,0 +1,136 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import java.nio.ShortBuffer;
+
+/**
+ * ARCHITECT'S NOTE: The detection loop behind AudioProcessor, minus Android:
+ *
+ *     AudioSource blocks -> HopSequencer -> DetectionPipeline (warmup, pre-gate, gate,
+ *     scheduler, cascade / engine) -> CONFIDENCE_THRESHOLD -> ClapPattern on the sample clock
+ *
+ * The app feeds it blocks from its capture ring (accept) and turns the callbacks into UI
+ * updates and the alarm. Off-device, run() pulls a file or array source as fast as the CPU
+ * allows, so the same decisions replay faster than real time (corpus-scan's ReplayRunner).
+ * Single-threaded, like the pipeline; only stop() may be called from another thread.
+ */
+public class DetectionLoop implements HopSequencer.HopListener {
+    public interface Listener {
+        /** Every scored candidate (live confidence meter). */
+        void onConfidence(float probability) throws Exception;
+
+        /**
+         * A candidate over CONFIDENCE_THRESHOLD, after ClapPattern took it.
+         * @param peakSample Its peak on the sample clock (ClapPattern runs on the hop it falls in).
+         * @param outcome    ECHO, COUNTED, or PATTERN (the trigger).
+         */
+        void onClap(float probability, long peakSample, ClapPattern.Outcome outcome) throws Exception;
+    }
+
+    private final DetectionPipeline pipeline;
+    private final HopSequencer sequencer;
+    private final ClapPattern pattern;
+    private final Listener listener;
+    private final short[] scratch = new short[DspConfig.CAPTURE_BLOCK_SAMPLES]; // Direct buffers only
+
+    private volatile boolean running = false;
+    private long claps = 0;
+
+    public DetectionLoop(DetectionPipeline pipeline, ClapPattern pattern, Listener listener) {
+        this.pipeline = pipeline;
+        this.sequencer = new HopSequencer(pipeline);
+        this.pattern = pattern;
+        this.listener = listener;
+    }
+
+    /**
+     * Reads the source to its end, or until stop(), with no pacing of its own.
+     * Starts the source; the caller closes it.
+     * @return Hops analyzed.
+     */
+    public long run(AudioSource source) throws Exception {
+        running = true;
+        try {
+            source.start();
+            ShortBuffer block;
+            while (running && (block = source.read()) != null) {
+                accept(block);
+            }
+        } finally {
+            running = false;
+        }
+        return sequencer.getHops();
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    /** Analyzes every hop the block completes; the buffer is consumed. */
+    public int accept(ShortBuffer block) throws Exception {
+        if (block.hasArray()) {
+            int analyzed = accept(block.array(), block.arrayOffset() + block.position(), block.remaining());
+            block.position(block.limit());
+            return analyzed;
+        }
+        int analyzed = 0;
+        while (block.hasRemaining()) {
+            int n = Math.min(block.remaining(), scratch.length);
+            block.get(scratch, 0, n);
+            analyzed += accept(scratch, 0, n);
+        }
+        return analyzed;
+    }
+
+    public int accept(short[] pcm, int offset, int length) throws Exception {
+        return sequencer.accept(pcm, offset, length, this);
+    }
+
+    @Override
+    public void onHop(float probability) throws Exception {
+        LatencyStats stats = pipeline.getLatencyStats();
+        long start = stats != null ? System.nanoTime() : 0;
+
+        // No candidate scored from now on can peak before the window start
+        pattern.expire(pipeline.getWindowStartHop());
+        if (!Float.isNaN(probability)) {
+            // Usually one window; held-back groups batched with it come first, in stream order
+            for (int i = 0; i < pipeline.getScoredCount(); i++) {
+                onCandidate(pipeline.getScore(i), pipeline.getScoredPeakSample(i));
+            }
+        }
+        if (stats != null) stats.record(LatencyStats.Stage.CALLBACKS, System.nanoTime() - start);
+    }
+
+    private void onCandidate(float probability, long peakSample) throws Exception {
+        listener.onConfidence(probability);
+        if (probability > DspConfig.CONFIDENCE_THRESHOLD) {
+            // Timestamped at the clap's peak on the sample clock, not when scoring finished
+            long peakHop = Math.floorDiv(peakSample, DspConfig.HOP_LENGTH);
+            claps++;
+            listener.onClap(probability, peakSample, pattern.onEvent(peakHop));
+        }
+    }
+
+    public DetectionPipeline getPipeline() {
+        return pipeline;
+    }
+
+    public ClapPattern getPattern() {
+        return pattern;
+    }
+
+    /** Hops analyzed so far. */
+    public long getHops() {
+        return sequencer.getHops();
+    }
+
+    /** Candidates over CONFIDENCE_THRESHOLD, echoes included. */
+    public long getClaps() {
+        return claps;
+    }
+
+    /** Audio consumed so far, seconds. */
+    public double getAudioSeconds() {
+        return pipeline.getSampleClock() / (double) DspConfig.SAMPLE_RATE;
+    }
+}
@@ -0,0 +1,374 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+/**
+ * ARCHITECT'S NOTE: The per-hop detection loop, Android-free.
+ * One instance = one audio stream. Shared by AudioProcessor (live mic) and
+ * offline tools, so both run exactly the same gate -> scheduler -> scorer chain:
+ *
+ * 1. Newest N_FFT samples of the mirrored ring -> power spectrum (FramePipeline).
+ * 2. Log-mel frame into the FeatureStacker (only when the cascade or a features-in engine reads it).
+ * 0. ENERGY PRE-GATE (DspConfig.ENERGY_GATE): a quiet frame (EnergyGate) skips 1-3's
+ *    spectral work and gate stages; by default only frames stage 1 would reject anyway.
+ *    Features-in engines and the cascade still get the log-mel frame of every hop, so
+ *    their patches stay exact.
+ * 3. HARD GATE: StreamingImpulseTracker, after WARMUP_FRAMES hops.
+ *    With a FusedFrontEnd instead of a FramePipeline, 1-3 become: time-domain gate stages,
+ *    then one fused pass for whatever this hop still needs (log-mel, spectral summaries).
+ *    No spectrum is stored, and a hop that needs neither skips the FFT. Same decisions.
+ *    A FixedPointFrontEnd runs the same flow on its own int16 history (Q15 arithmetic).
+ * 4. InferenceScheduler coalesces clustered hits into one aligned inference.
+ *    Groups that fall due together keep their own windows: waveform engines score
+ *    them in one scoreWaveformBatch() invoke (sequentially if !supportsBatch()).
+ * 5. Cascade (optional) -> InferenceEngine on the raw window or the log-mel patch.
+ *
+ * Usage: append(N_FFT samples, PCM16 or float), then repeat { analyze(); append(HOP_LENGTH samples) }.
+ * HopSequencer does exactly that for capture blocks of any size.
+ * Single-threaded; the pattern stage (ClapLogic) stays with the caller.
+ */
+public class DetectionPipeline {
+    /** Wait for buffer warmup: 40 hops = 400 ms. */
+    public static final int WARMUP_FRAMES = 40;
+
+    private final FramePipeline framePipeline;
+    private final FusedFrontEnd fusedFrontEnd;
+    private final FixedPointFrontEnd fixedPointFrontEnd;
+    private final InferenceEngine engine;
+    private final LogMelPatchClassifier cascade;
+    private final boolean featuresModel;
+    private final boolean stackFeatures;
+
+    // INFERENCE BUFFER: Mirrored ring of 15600 samples (~0.975s) for YAMNet, plus
+    // INFERENCE_BATCH_HISTORY_SAMPLES in waveform mode for windows batched with the current one.
+    // Appending a hop is O(hop); every window in it is contiguous,
+    // and the newest N_FFT samples of it are the analysis frame.
+    private final MirroredRingBuffer sampleRing;
+    private final float[] samples;
+    private final StreamingImpulseTracker impulseTracker = new StreamingImpulseTracker(DspConfig.N_FFT);
+    // LOG-MEL PATCH: [96 Frames][64 Mels] time-major
+    private final FeatureStacker featureStacker = new FeatureStacker(DspConfig.N_MELS, DspConfig.TIME_FRAMES);
+    private final InferenceScheduler inferenceScheduler;
+
+    // Scores of the last fired batch, oldest window first
+    private final int[] batchOffsets = new int[InferenceScheduler.MAX_GROUPS];
+    private final float[] batchScores = new float[InferenceScheduler.MAX_GROUPS];
+    private final long[] batchPeakSamples = new long[InferenceScheduler.MAX_GROUPS];
+    private int scoredCount = 0;
+
+    private final EnergyGate energyGate = new EnergyGate();
+    private boolean energyGateEnabled = DspConfig.ENERGY_GATE;
+
+    // Per-stage timing (AudioProcessor); null = no clock reads at all
+    private LatencyStats latencyStats;
+
+    private int frameCount = 0;
+    private boolean lastFromCascade = false;
+
+    /**
+     * @param framePipeline Front end; owned by this stream (holds per-hop scratch).
+     * @param engine        Scorer for ambiguous candidates.
+     * @param cascade       Optional log-mel first stage, null to send every candidate to the engine.
+     */
+    public DetectionPipeline(FramePipeline framePipeline, InferenceEngine engine, LogMelPatchClassifier cascade) {
+        this(framePipeline, null, null, engine, cascade);
+    }
+
+    /**
+     * @param fusedFrontEnd Fused front end; owned by this stream. Its flatness math is set to DspConfig.FAST_MATH.
+     */
+    public DetectionPipeline(FusedFrontEnd fusedFrontEnd, InferenceEngine engine, LogMelPatchClassifier cascade) {
+        this(null, fusedFrontEnd, null, engine, cascade);
+        fusedFrontEnd.setFastMath(DspConfig.FAST_MATH);
+    }
+
+    /**
+     * @param fixedPointFrontEnd Integer front end; owned by this stream (holds the int16 history).
+     */
+    public DetectionPipeline(FixedPointFrontEnd fixedPointFrontEnd, InferenceEngine engine,
+                             LogMelPatchClassifier cascade) {
+        this(null, null, fixedPointFrontEnd, engine, cascade);
+        fixedPointFrontEnd.setFastMath(DspConfig.FAST_MATH);
+    }
+
+    private DetectionPipeline(FramePipeline framePipeline, FusedFrontEnd fusedFrontEnd,
+                              FixedPointFrontEnd fixedPointFrontEnd,
+                              InferenceEngine engine, LogMelPatchClassifier cascade) {
+        this.framePipeline = framePipeline;
+        this.fusedFrontEnd = fusedFrontEnd;
+        this.fixedPointFrontEnd = fixedPointFrontEnd;
+        this.engine = engine;
+        this.cascade = cascade;
+        this.featuresModel = engine.acceptsFeatures();
+        this.stackFeatures = cascade != null || featuresModel;
+        // Only raw windows can be rescored after the fact; a patch exists for the current hop only
+        int history = featuresModel ? 0 : DspConfig.INFERENCE_BATCH_HISTORY_SAMPLES;
+        this.sampleRing = new MirroredRingBuffer(DspConfig.MODEL_INPUT_SIZE + history);
+        this.samples = sampleRing.array();
+        this.inferenceScheduler = new InferenceScheduler(DspConfig.MODEL_INPUT_SIZE,
+                DspConfig.INFERENCE_HORIZON_SAMPLES, DspConfig.INFERENCE_PEAK_OFFSET, history);
+        impulseTracker.setFastMath(DspConfig.FAST_MATH);
+    }
+
+    /**
+     * Appends 16-bit PCM (normalized PCM / 32768.0f) and feeds the gate's envelope.
+     */
+    public void append(short[] pcm, int offset, int length) {
+        long start = latencyStats != null ? System.nanoTime() : 0;
+        sampleRing.appendPcm16(pcm, offset, length);
+        impulseTracker.push(samples, sampleRing.latestOffset(length), length);
+        if (fixedPointFrontEnd != null) fixedPointFrontEnd.push(pcm, offset, length);
+        if (latencyStats != null) latencyStats.record(LatencyStats.Stage.APPEND, System.nanoTime() - start);
+    }
+
+    /**
+     * Appends already-normalized samples (e.g. from a WavReader) and feeds the gate's envelope.
+     */
+    public void append(float[] samples, int offset, int length) {
+        long start = latencyStats != null ? System.nanoTime() : 0;
+        sampleRing.append(samples, offset, length);
+        impulseTracker.push(this.samples, sampleRing.latestOffset(length), length);
+        if (fixedPointFrontEnd != null) fixedPointFrontEnd.push(samples, offset, length);
+        if (latencyStats != null) latencyStats.record(LatencyStats.Stage.APPEND, System.nanoTime() - start);
+    }
+
+    /**
+     * Runs one hop on the newest N_FFT samples.
+     * @return Clap probability if a candidate was scored on this hop (cascade or engine),
+     *         NaN otherwise (no candidate, or the cascade rejected it). When several windows
+     *         were scored (getScoredCount() > 1), the newest one's.
+     */
+    public float analyze() throws Exception {
+        LatencyStats stats = latencyStats;
+        long hopStart = stats != null ? System.nanoTime() : 0;
+        long frontEndStart = 0;
+        long frontEndNanos = 0;
+
+        // 1. Analysis frame: newest N_FFT normalized samples, read in place
+        int frameOffset = sampleRing.latestOffset(DspConfig.N_FFT);
+
+        // 0. Energy pre-gate on the frame peak, O(1)
+        boolean active = !energyGateEnabled || energyGate.onHop(impulseTracker.framePeak());
+        // Timed for the CPU-saved estimate; quiet hops only when they still build the log-mel frame
+        long start = energyGateEnabled && (active || stackFeatures) ? System.nanoTime() : 0;
+
+        boolean isImpulse;
+        if (fusedFrontEnd != null || fixedPointFrontEnd != null) {
+            // 3a. Time-domain gate stages first: they decide whether the summaries are needed
+            boolean candidate = active && impulseTracker.checkTimeDomain();
+
+            // 2. One pass, only for what this hop consumes
+            float[] logMel;
+            double flatness;
+            float hfRatio;
+            if (stats != null) frontEndStart = System.nanoTime();
+            if (fixedPointFrontEnd != null) {
+                logMel = fixedPointFrontEnd.processLatest(stackFeatures, candidate);
+                flatness = fixedPointFrontEnd.getFlatness();
+                hfRatio = fixedPointFrontEnd.getHfRatio();
+            } else {
+                logMel = fusedFrontEnd.process(samples, frameOffset, stackFeatures, candidate);
+                flatness = fusedFrontEnd.getFlatness();
+                hfRatio = fusedFrontEnd.getHfRatio();
+            }
+            if (stackFeatures) {
+                featureStacker.addFrame(logMel);
+            }
+            if (stats != null) frontEndNanos = System.nanoTime() - frontEndStart;
+
+            // 3b. Spectral gate stages on the by-product summaries
+            isImpulse = candidate && impulseTracker.checkSpectral(flatness, hfRatio);
+        } else {
+            // 2. FFT & Power Spectrum (Required for ImpulseValidator)
+            // Windowed into the pipeline's own buffers: no per-hop allocation.
+            if (stats != null) frontEndStart = System.nanoTime();
+            float[] power = active || stackFeatures ? framePipeline.computePowerSpectrum(samples, frameOffset) : null;
+            if (stackFeatures) {
+                featureStacker.addFrame(framePipeline.computeLogMel());
+            }
+            if (stats != null) frontEndNanos = System.nanoTime() - frontEndStart;
+
+            // 3. HARD GATE: Impulse Validation (streaming, only the new hop was scanned)
+            isImpulse = active && impulseTracker.isImpulse(power);
+        }
+        if (start != 0) {
+            if (active) {
+                energyGate.recordActiveCost(System.nanoTime() - start);
+            } else {
+                energyGate.recordQuietCost(System.nanoTime() - start);
+            }
+        }
+
+        frameCount++;
+
+        // 4. Detection Trigger
+        boolean gateHit = frameCount >= WARMUP_FRAMES && isImpulse;
+
+        // Coalesce clustered hits into one inference, aligned on the strongest peak
+        scoredCount = 0;
+        boolean scheduled = inferenceScheduler.onHop(sampleRing.totalWritten(), gateHit,
+                impulseTracker.getPeakSample(), impulseTracker.getPeak());
+        if (stats != null) {
+            long gateEnd = System.nanoTime();
+            stats.record(LatencyStats.Stage.FRONT_END, frontEndNanos);
+            stats.record(LatencyStats.Stage.GATE, gateEnd - hopStart - frontEndNanos);
+            if (scheduled) {
+                float probability = scoreCandidate();
+                stats.recordInference(sampleRing.totalWritten(), System.nanoTime() - gateEnd);
+                return probability;
+            }
+        }
+        return scheduled ? scoreCandidate() : Float.NaN;
+    }
+
+    /** 5. A scheduled candidate: cascade, then the engine if still ambiguous. */
+    private float scoreCandidate() throws Exception {
+        // CASCADE: cheap log-mel score first, YAMNet only when it is ambiguous
+        LogMelPatchClassifier.Decision decision = cascade != null
+                ? cascade.classify(featureStacker)
+                : LogMelPatchClassifier.Decision.AMBIGUOUS;
+        lastFromCascade = decision == LogMelPatchClassifier.Decision.ACCEPT;
+
+        switch (decision) {
+            case REJECT:
+                return Float.NaN;
+            case ACCEPT:
+                // The patch only covers the current hop: one score, the newest window's
+                return scoreNewest(cascade.getLastScore());
+            default:
+                if (featuresModel) {
+                    // Headless YAMNet: the patch we already built, no second front end.
+                    // Newest frame last even before 96 hops, where the scheduler aligned the peak
+                    return scoreNewest(engine.scorePatch(featureStacker.patchArray(),
+                            featureStacker.modelPatchOffset()));
+                }
+                return scoreWindows();
+        }
+    }
+
+    /** Every fired window, RAW WAVEFORM straight from the ring (contiguous views, no linearizing copy). */
+    private float scoreWindows() throws Exception {
+        int count = inferenceScheduler.getFiredCount();
+        long clock = sampleRing.totalWritten();
+        for (int i = 0; i < count; i++) {
+            int lag = (int) (clock - inferenceScheduler.getFiredWindowEnd(i));
+            batchOffsets[i] = sampleRing.latestOffset(DspConfig.MODEL_INPUT_SIZE + lag);
+            batchPeakSamples[i] = inferenceScheduler.getFiredPeakSample(i);
+        }
+        if (count > 1 && engine.supportsBatch()) {
+            engine.scoreWaveformBatch(samples, batchOffsets, count, batchScores);
+        } else {
+            // Fixed-batch model: same windows, one invoke each
+            for (int i = 0; i < count; i++) {
+                batchScores[i] = engine.scoreWaveform(samples, batchOffsets[i]);
+            }
+        }
+        scoredCount = count;
+        return batchScores[count - 1];
+    }
+
+    private float scoreNewest(float probability) {
+        batchScores[0] = probability;
+        batchPeakSamples[0] = inferenceScheduler.getLastPeakSample();
+        scoredCount = 1;
+        return probability;
+    }
+
+    /** Times every stage into the given stats from now on (null to stop). Same thread as analyze(). */
+    public void setLatencyStats(LatencyStats latencyStats) {
+        this.latencyStats = latencyStats;
+    }
+
+    public LatencyStats getLatencyStats() {
+        return latencyStats;
+    }
+
+    /** Turns the energy pre-gate on or off (default DspConfig.ENERGY_GATE). */
+    public void setEnergyGateEnabled(boolean enabled) {
+        this.energyGateEnabled = enabled;
+    }
+
+    /** Pre-gate state and metrics: noise floor, skip ratio, CPU saved. */
+    public EnergyGate getEnergyGate() {
+        return energyGate;
+    }
+
+    /**
+     * Sustained quiet and no inference pending: the caller may wake less often
+     * (hops are still analyzed one by one when it does).
+     */
+    public boolean isIdle() {
+        return energyGateEnabled && energyGate.isIdle() && !inferenceScheduler.hasPending();
+    }
+
+    /** true if the last returned probability came from a cascade ACCEPT, not the engine. */
+    public boolean isLastFromCascade() {
+        return lastFromCascade;
+    }
+
+    /** Samples appended so far; the current window is [clock - 15600, clock). */
+    public long getSampleClock() {
+        return sampleRing.totalWritten();
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Windows scored by the last analyze(), oldest first: 0 if it returned NaN, more than 1
+     * when groups due on the same hop were batched.
+     */
+    public int getScoredCount() {
+        return scoredCount;
+    }
+
+    /** Clap probability of scored window i (getScoredCount() - 1 is what analyze() returned). */
+    public float getScore(int i) {
+        return batchScores[i];
+    }
+
+    /** Stream position (sample clock) of scored window i's peak. */
+    public long getScoredPeakSample(int i) {
+        return batchPeakSamples[i];
+    }
+
+    /** Where the peak of the last scored candidate sat inside its window (samples). */
+    public int getLastPeakPosition() {
+        return inferenceScheduler.getLastPeakPosition();
+    }
+
+    /** Stream position (sample clock) of the last scored candidate's peak. */
+    public long getLastPeakSample() {
+        return inferenceScheduler.getLastPeakSample();
+    }
+
+    /**
+     * Timestamp of the last scored candidate: the hop index (sample / HOP_LENGTH) its peak fell in.
+     * What ClapPattern runs on.
+     */
+    public long getLastPeakHop() {
+        return Math.floorDiv(getLastPeakSample(), DspConfig.HOP_LENGTH);
+    }
+
+    /**
+     * Hop index of the oldest sample a window can still start on (batched windows included):
+     * no candidate scored from now on peaks earlier.
+     */
+    public long getWindowStartHop() {
+        return Math.floorDiv(getSampleClock() - sampleRing.capacity(), DspConfig.HOP_LENGTH);
+    }
+
+    /** Gate hits folded into another inference by the coalescing scheduler. */
+    public long getInferencesSaved() {
+        return inferenceScheduler.getInferencesSaved();
+    }
+
+    /** Windows scored (a batch of n counts n); cascade decisions included. */
+    public long getInferencesRun() {
+        return inferenceScheduler.getInferencesRun();
+    }
+
+    /** Scheduled candidates the log-mel cascade resolved without the engine (0 when disabled). */
+    public long getCascadeResolvedCount() {
+        return cascade == null ? 0 : cascade.getRejectedCount() + cascade.getAcceptedCount();
+    }
+}
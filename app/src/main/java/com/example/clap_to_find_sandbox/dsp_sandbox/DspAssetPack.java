@@ -0,0 +1,264 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * ARCHITECT'S NOTE: The frozen front-end assets in ONE versioned, checksummed file,
+ * built from hann_window.bin + mel_filterbank.bin + dsp_config.json (see main()).
+ *
+ * Startup maps the pack once (like the .tflite model) and hands out zero-copy
+ * FloatBuffer views of the window and the dense mel matrix; nothing is decoded
+ * through per-asset streams. Layout, little-endian:
+ *
+ *     0   magic "DSPK"          4   version          8   CRC32 of bytes [12, end)
+ *     12  header size (64)      16  sampleRate       20  winLength      24  hopLength
+ *     28  nFft                  32  nMels            36  modelInputSize 40  expectedFrames
+ *     44  melMinHz (f32)        48  melMaxHz (f32)   52  window offset  56  mel offset
+ *     window: winLength f32     mel: [nMels][nFft / 2 + 1] f32, row-major
+ *
+ * A pack whose parameters disagree with DspConfig is rejected: every buffer in the
+ * pipeline is sized from DspConfig, so a stale pack must fail loudly at startup.
+ */
+public class DspAssetPack {
+    public static final String ASSET_NAME = "dsp_assets.pack";
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 'D' | ('S' << 8) | ('P' << 16) | ('K' << 24);
+    private static final int HEADER_BYTES = 64;
+    private static final int CHECKSUM_START = 12;
+
+    private final ByteBuffer buffer;
+    private final int checksum;
+    private final int sampleRate;
+    private final int winLength;
+    private final int hopLength;
+    private final int nFft;
+    private final int nMels;
+    private final int modelInputSize;
+    private final int expectedFrames;
+    private final float melMinHz;
+    private final float melMaxHz;
+    private final int windowOffset;
+    private final int melOffset;
+
+    /**
+     * Parses and verifies a pack, typically a MappedByteBuffer. The buffer is kept:
+     * the FloatBuffer views read straight from it.
+     */
+    public DspAssetPack(ByteBuffer source) throws IOException {
+        buffer = source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(0);
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a DSP asset pack");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("DSP asset pack version " + version + ", expected " + VERSION);
+        }
+        checksum = buffer.getInt(8);
+        int actual = crc32(buffer, CHECKSUM_START, buffer.limit());
+        if (actual != checksum) {
+            throw new IOException(String.format(Locale.US,
+                    "DSP asset pack checksum mismatch: stored %08x, computed %08x", checksum, actual));
+        }
+
+        sampleRate = buffer.getInt(16);
+        winLength = buffer.getInt(20);
+        hopLength = buffer.getInt(24);
+        nFft = buffer.getInt(28);
+        nMels = buffer.getInt(32);
+        modelInputSize = buffer.getInt(36);
+        expectedFrames = buffer.getInt(40);
+        melMinHz = buffer.getFloat(44);
+        melMaxHz = buffer.getFloat(48);
+        windowOffset = buffer.getInt(52);
+        melOffset = buffer.getInt(56);
+
+        if (sampleRate != DspConfig.SAMPLE_RATE || winLength != DspConfig.WIN_LENGTH
+                || hopLength != DspConfig.HOP_LENGTH || nFft != DspConfig.N_FFT || nMels != DspConfig.N_MELS
+                || modelInputSize != DspConfig.MODEL_INPUT_SIZE || expectedFrames != DspConfig.TIME_FRAMES
+                || melMinHz != DspConfig.F_MIN || melMaxHz != DspConfig.F_MAX) {
+            throw new IOException("DSP asset pack was built for a different DspConfig: " + describe());
+        }
+        if (windowOffset + winLength * 4L > buffer.limit() || melOffset + getMelMatrixSize() * 4L > buffer.limit()) {
+            throw new IOException("DSP asset pack truncated");
+        }
+    }
+
+    /** Maps a pack file (JVM tools and tests; the app maps its asset through the AssetManager). */
+    public static DspAssetPack map(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            return new DspAssetPack(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /** Hann window coefficients, winLength floats. Read-only view, no copy. */
+    public FloatBuffer window() {
+        return view(windowOffset, winLength);
+    }
+
+    /** Dense [nMels][nFft / 2 + 1] mel matrix, row-major. Read-only view, no copy. */
+    public FloatBuffer melMatrix() {
+        return view(melOffset, getMelMatrixSize());
+    }
+
+    private FloatBuffer view(int offset, int floats) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(offset).limit(offset + floats * 4);
+        return slice.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().asReadOnlyBuffer();
+    }
+
+    private int getMelMatrixSize() {
+        return nMels * (nFft / 2 + 1);
+    }
+
+    // CRC32.update(ByteBuffer) needs API 26; go through a small scratch array instead
+    private static int crc32(ByteBuffer buf, int from, int to) {
+        CRC32 crc = new CRC32();
+        byte[] scratch = new byte[8192];
+        ByteBuffer src = buf.duplicate();
+        src.position(from).limit(to);
+        while (src.hasRemaining()) {
+            int n = Math.min(scratch.length, src.remaining());
+            src.get(scratch, 0, n);
+            crc.update(scratch, 0, n);
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Builds a pack from dsp_config.json text and the raw window / dense mel matrix.
+     */
+    public static byte[] build(String configJson, float[] window, float[] melMatrix) throws IOException {
+        int sampleRate = (int) jsonNumber(configJson, "sampleRate");
+        int winLength = (int) jsonNumber(configJson, "windowSizeSamples");
+        int hopLength = (int) jsonNumber(configJson, "hopSizeSamples");
+        int nFft = (int) jsonNumber(configJson, "fftLength");
+        int nMels = (int) jsonNumber(configJson, "nMels");
+        if (window.length != winLength || melMatrix.length != nMels * (nFft / 2 + 1)) {
+            throw new IOException("Window / mel sizes do not match dsp_config.json");
+        }
+
+        int windowOffset = HEADER_BYTES;
+        int melOffset = windowOffset + window.length * 4;
+        ByteBuffer out = ByteBuffer.allocate(melOffset + melMatrix.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC).putInt(VERSION).putInt(0).putInt(HEADER_BYTES)
+                .putInt(sampleRate).putInt(winLength).putInt(hopLength).putInt(nFft).putInt(nMels)
+                .putInt((int) jsonNumber(configJson, "modelInputSize"))
+                .putInt((int) jsonNumber(configJson, "expectedFrames"))
+                .putFloat((float) jsonNumber(configJson, "melMinHz"))
+                .putFloat((float) jsonNumber(configJson, "melMaxHz"))
+                .putInt(windowOffset).putInt(melOffset);
+        out.position(windowOffset);
+        out.asFloatBuffer().put(window);
+        out.position(melOffset);
+        out.asFloatBuffer().put(melMatrix);
+        out.putInt(8, crc32(out, CHECKSUM_START, out.capacity()));
+        return out.array();
+    }
+
+    // dsp_config.json is a flat object of numbers; no JSON library on the plain JVM
+    private static double jsonNumber(String json, String key) throws IOException {
+        Matcher m = Pattern.compile("\"" + key + "\"\\s*:\\s*(-?[0-9.eE+-]+)").matcher(json);
+        if (!m.find()) throw new IOException("dsp_config.json has no " + key);
+        return Double.parseDouble(m.group(1));
+    }
+
+    public String describe() {
+        return String.format(Locale.US, "v%d crc %08x: %d Hz, win %d, hop %d, fft %d, %d mels %.0f-%.0f Hz, %d samples / %d frames",
+                VERSION, checksum, sampleRate, winLength, hopLength, nFft, nMels, melMinHz, melMaxHz,
+                modelInputSize, expectedFrames);
+    }
+
+    public int getChecksum() {
+        return checksum;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getWinLength() {
+        return winLength;
+    }
+
+    public int getHopLength() {
+        return hopLength;
+    }
+
+    public int getNFft() {
+        return nFft;
+    }
+
+    public int getNMels() {
+        return nMels;
+    }
+
+    public int getModelInputSize() {
+        return modelInputSize;
+    }
+
+    public int getExpectedFrames() {
+        return expectedFrames;
+    }
+
+    public float getMelMinHz() {
+        return melMinHz;
+    }
+
+    public float getMelMaxHz() {
+        return melMaxHz;
+    }
+
+    /**
+     * Rebuilds the pack from the source assets:
+     *   DspAssetPack <assets/dsp dir> [out file, default <dir>/dsp_assets.pack]
+     */
+    public static void main(String[] args) throws Exception {
+        File dir = new File(args.length > 0 ? args[0] : "app/src/main/assets/dsp");
+        File out = args.length > 1 ? new File(args[1]) : new File(dir, ASSET_NAME);
+
+        String json = new String(readFile(new File(dir, "dsp_config.json")), StandardCharsets.UTF_8);
+        float[] window = readFloats(new File(dir, "hann_window.bin"));
+        float[] mel = readFloats(new File(dir, "mel_filterbank.bin"));
+        byte[] pack = build(json, window, mel);
+        try (FileOutputStream os = new FileOutputStream(out)) {
+            os.write(pack);
+        }
+        System.out.println("Wrote " + out + " (" + pack.length + " bytes): " + new DspAssetPack(ByteBuffer.wrap(pack)).describe());
+    }
+
+    private static float[] readFloats(File file) throws IOException {
+        byte[] bytes = readFile(file);
+        float[] floats = new float[bytes.length / 4];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(floats);
+        return floats;
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        try (FileInputStream is = new FileInputStream(file)) {
+            int done = 0;
+            while (done < bytes.length) {
+                int n = is.read(bytes, done, bytes.length - done);
+                if (n < 0) throw new IOException("Short read: " + file);
+                done += n;
+            }
+        }
+        return bytes;
+    }
+}
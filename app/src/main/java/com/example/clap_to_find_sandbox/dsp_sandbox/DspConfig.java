@@ -14,12 +14,49 @@ public class DspConfig {
     public static final int WIN_LENGTH = 400; 
     public static final int N_MELS = 64;
     public static final int TIME_FRAMES = 96; // Standard YAMNet (0.975s) 
+    public static final int MODEL_INPUT_SIZE = 15600; // Raw waveform samples per YAMNet window
     
     public static final float F_MIN = 125.0f;
     public static final float F_MAX = 7500.0f;
     
     public static final float CONFIDENCE_THRESHOLD = 0.50f;
 
+    // Inference coalescing: gate hits within 50ms share one YAMNet run, fired once
+    // the strongest peak sits 100ms before the end of the 15600-sample window
+    public static final int INFERENCE_HORIZON_SAMPLES = 5 * HOP_LENGTH;
+    public static final int INFERENCE_PEAK_OFFSET = MODEL_INPUT_SIZE - SAMPLE_RATE / 10;
+    // Groups due on the same hop fell due less than a hop apart: waveform mode keeps one
+    // extra hop of history so each still gets its own window (batched into one invoke)
+    public static final int INFERENCE_BATCH_HISTORY_SAMPLES = HOP_LENGTH;
+
+    // Max |Java - Python| log-mel difference (dB) accepted by the parity check
+    public static final float PARITY_TOLERANCE_DB = 1e-3f;
+
+    // Opt-in table-based log/exp kernels (see FastMath for error bounds)
+    public static final boolean FAST_MATH = false;
+
+    // Opt-in specialized power-of-two RealFFT; JTransforms stays the live, parity-locked
+    // reference (Parity_Validator). Agrees to float rounding, see RealFFTTest.
+    // Detection then runs on FusedFrontEnd, bit-identical to the staged RealFFT chain.
+    public static final boolean FAST_FFT = false;
+
+    // Opt-in int16 / Q15 front end for low-power devices (FixedPointFrontEnd, error bound
+    // there). Takes precedence over FAST_FFT for the detection loop.
+    public static final boolean FIXED_POINT = false;
+
+    // AudioRecord read size (40 ms = 4 hops): one JNI read and one worker wakeup per block,
+    // HopSequencer still analyzes every hop. 10 ms gives the old one-read-per-hop loop.
+    public static final int CAPTURE_BLOCK_MS = 40;
+    public static final int CAPTURE_BLOCK_SAMPLES = SAMPLE_RATE * CAPTURE_BLOCK_MS / 1000;
+
+    // Time-domain pre-gate (EnergyGate): hops under PEAK_THRESHOLD skip all spectral work,
+    // no decision changes. After sustained quiet the capture worker wakes every IDLE_PARK_MS only.
+    public static final boolean ENERGY_GATE = true;
+    // Opt-in: also skip hops within EnergyGate.MARGIN_DB of the adaptive noise floor.
+    // Drops soft claps in a steady noisy room; off until its recall is measured.
+    public static final boolean ENERGY_GATE_FLOOR_MARGIN = false;
+    public static final int IDLE_PARK_MS = 100;
+
     // Window size for total detection buffer (0.7s at 16kHz)
     public static final int WINDOW_SAMPLES = (int) (0.7 * SAMPLE_RATE);
 }
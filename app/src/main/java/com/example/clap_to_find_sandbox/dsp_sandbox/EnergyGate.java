@@ -0,0 +1,134 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+/**
+ * ARCHITECT'S NOTE: Time-domain pre-gate in front of all spectral work.
+ * One O(1) test per hop on the frame peak (StreamingImpulseTracker keeps it for free):
+ *
+ * - QUIET if the peak is under PEAK_THRESHOLD: stage 1 of the hard gate would reject the
+ *   hop anyway, so skipping it changes no decision.
+ * - Noise floor: minimum-tracking on the frame peaks. It drops to any quieter frame at
+ *   once and creeps up FLOOR_RISE_DB_PER_S, so a clap barely moves it but a louder room
+ *   is learned within seconds.
+ * - Floor margin (DspConfig.ENERGY_GATE_FLOOR_MARGIN, off by default): also QUIET under
+ *   the floor + MARGIN_DB. The hard gate has no rule relative to the room, so this DOES
+ *   drop candidates (a soft clap in a steady noisy room). Unmeasured recall: opt-in only.
+ * - IDLE after IDLE_AFTER_MS of consecutive quiet hops, until the next active hop. The
+ *   pipeline still analyzes every hop; idle is the capture loop's cue to wake less often.
+ *
+ * Skip ratio = quiet hops / hops. CPU saved is an estimate: per quiet hop, the running
+ * mean cost of an active hop minus that of a quiet hop (non-zero when the log-mel frame
+ * is still computed), both timed by the caller.
+ * Not thread safe: one instance per stream.
+ */
+public class EnergyGate {
+    public static final float MARGIN_DB = 12.0f;
+    public static final float FLOOR_RISE_DB_PER_S = 3.0f;
+    public static final int IDLE_AFTER_MS = 2000;
+
+    private static final float COST_SMOOTHING = 1.0f / 64;
+    private static final float MIN_FLOOR = 1.0f / 32768; // 1 LSB: the floor can rise from digital silence
+
+    private final float margin = (float) Math.pow(10, MARGIN_DB / 20);
+    private final float risePerHop = (float) Math.pow(10,
+            FLOOR_RISE_DB_PER_S / 20 * DspConfig.HOP_LENGTH / DspConfig.SAMPLE_RATE);
+    private final long idleAfterHops = (long) IDLE_AFTER_MS * DspConfig.SAMPLE_RATE / 1000 / DspConfig.HOP_LENGTH;
+
+    private boolean floorMargin = DspConfig.ENERGY_GATE_FLOOR_MARGIN;
+    private float floor = Float.NaN;
+    private long quietRun = 0;
+
+    private long hops = 0;
+    private long quietHops = 0;
+    private float activeCostNanos = Float.NaN;
+    private float quietCostNanos = 0;
+    private double savedNanos = 0;
+
+    /**
+     * Call once per hop with the peak |x| of the newest frame.
+     * @return true if the hop needs the spectral front end and gate.
+     */
+    public boolean onHop(float framePeak) {
+        hops++;
+        if (Float.isNaN(floor) || framePeak < floor) {
+            floor = Math.max(framePeak, MIN_FLOOR);
+        } else {
+            floor = Math.min(framePeak, floor * risePerHop);
+        }
+
+        boolean active = framePeak >= ImpulseCriteria.PEAK_THRESHOLD && (!floorMargin || framePeak >= floor * margin);
+        if (active) {
+            quietRun = 0;
+        } else {
+            quietRun++;
+            quietHops++;
+            if (!Float.isNaN(activeCostNanos)) savedNanos += Math.max(0f, activeCostNanos - quietCostNanos);
+        }
+        return active;
+    }
+
+    /** Cost of the spectral work of one active hop, for the CPU-saved estimate. */
+    public void recordActiveCost(long nanos) {
+        activeCostNanos = Float.isNaN(activeCostNanos)
+                ? nanos
+                : activeCostNanos + (nanos - activeCostNanos) * COST_SMOOTHING;
+    }
+
+    /**
+     * Cost of the work a quiet hop still does (log-mel frame for feature stacking), for the
+     * CPU-saved estimate. Not needed when quiet hops do nothing: taken as 0.
+     */
+    public void recordQuietCost(long nanos) {
+        quietCostNanos += (nanos - quietCostNanos) * (quietCostNanos == 0 ? 1 : COST_SMOOTHING);
+    }
+
+    /** Also treats hops within MARGIN_DB of the noise floor as quiet (default DspConfig.ENERGY_GATE_FLOOR_MARGIN). */
+    public void setFloorMarginEnabled(boolean enabled) {
+        this.floorMargin = enabled;
+    }
+
+    public boolean isFloorMarginEnabled() {
+        return floorMargin;
+    }
+
+    public boolean isIdle() {
+        return quietRun >= idleAfterHops;
+    }
+
+    /** Adaptive noise floor (frame peak, full scale = 1). NaN before the first hop. */
+    public float getNoiseFloor() {
+        return floor;
+    }
+
+    /** Effective activation level this hop: PEAK_THRESHOLD, or the floor + MARGIN_DB if higher and enabled. */
+    public float getThreshold() {
+        return floorMargin ? Math.max(ImpulseCriteria.PEAK_THRESHOLD, floor * margin) : ImpulseCriteria.PEAK_THRESHOLD;
+    }
+
+    public long getHops() {
+        return hops;
+    }
+
+    public long getQuietHops() {
+        return quietHops;
+    }
+
+    /** Quiet (skipped) hops over all hops, 0 before the first hop. */
+    public float getSkipRatio() {
+        return hops == 0 ? 0f : (float) quietHops / hops;
+    }
+
+    /** Estimated front-end + gate time not spent on quiet hops. */
+    public long getCpuSavedNanos() {
+        return (long) savedNanos;
+    }
+
+    public void reset() {
+        floor = Float.NaN;
+        quietRun = 0;
+        hops = 0;
+        quietHops = 0;
+        activeCostNanos = Float.NaN;
+        quietCostNanos = 0;
+        savedNanos = 0;
+    }
+}
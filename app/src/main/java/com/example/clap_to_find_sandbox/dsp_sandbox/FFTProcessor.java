@@ -6,14 +6,31 @@ import org.jtransforms.fft.FloatFFT_1D;
  * ARCHITECT'S NOTE: Phase-3.1 Scope.
  * Computes the Power Spectrum (Real^2 + Imag^2) of a 1024-sample frame.
  * Normalized to match NumPy/Librosa's unitary-consistent FFT scaling.
+ *
+ * Backends: JTransforms (the parity reference) or, for the live front end, the
+ * specialized RealFFT, which also skips the zero-padded tail past the window.
  */
 public class FFTProcessor {
     private final int nFft;
     private final FloatFFT_1D fft;
+    private final RealFFT realFft;
+
+    // Scratch for the allocation-free path. Makes that path single-stream only.
+    private final float[] fftScratch;
 
     public FFTProcessor(int nFft) {
+        this(nFft, nFft, false);
+    }
+
+    /**
+     * @param winLength   Frames are zero from here on (HannWindow zero-pads), used by RealFFT.
+     * @param specialized RealFFT instead of JTransforms (DspConfig.FAST_FFT). Needs a power-of-two nFft.
+     */
+    public FFTProcessor(int nFft, int winLength, boolean specialized) {
         this.nFft = nFft;
-        this.fft = new FloatFFT_1D(nFft);
+        this.fft = specialized ? null : new FloatFFT_1D(nFft);
+        this.realFft = specialized ? new RealFFT(nFft, winLength) : null;
+        this.fftScratch = new float[nFft];
     }
 
     /**
@@ -25,16 +42,41 @@ public class FFTProcessor {
             throw new IllegalArgumentException("Frame must be " + nFft + " samples.");
         }
 
+        float[] powerSpectrum = new float[nFft / 2 + 1];
+        computePowerSpectrum(frame, new float[nFft], powerSpectrum);
+        return powerSpectrum;
+    }
+
+    /**
+     * Allocation-free variant of {@link #getPowerSpectrum(float[])}.
+     * Reuses an internal scratch buffer, so one instance must not be shared across threads.
+     * @param frame Float array of exactly nFft samples (left untouched).
+     * @param powerSpectrum Destination of length (nFft/2 + 1).
+     */
+    public void getPowerSpectrum(float[] frame, float[] powerSpectrum) {
+        if (frame.length != nFft) {
+            throw new IllegalArgumentException("Frame must be " + nFft + " samples.");
+        }
+        if (powerSpectrum.length != nFft / 2 + 1) {
+            throw new IllegalArgumentException("Power spectrum must be " + (nFft / 2 + 1) + " bins.");
+        }
+        computePowerSpectrum(frame, fftScratch, powerSpectrum);
+    }
+
+    private void computePowerSpectrum(float[] frame, float[] fftData, float[] powerSpectrum) {
+        if (realFft != null) {
+            // Reads the frame in place and writes the scaled power spectrum directly
+            realFft.powerSpectrum(frame, powerSpectrum);
+            return;
+        }
+
         // 1. Copy to avoid modifying original
-        float[] fftData = new float[nFft];
         System.arraycopy(frame, 0, fftData, 0, nFft);
 
         // 2. Perform In-place FFT (JTransforms)
         fft.realForward(fftData);
 
         // 3. Unpack to Power Spectrum (size 513)
-        float[] powerSpectrum = new float[nFft / 2 + 1];
-        
         // Critical: librosa.stft (via NumPy FFT) is unitary-consistent.
         // To match Python's energy scaling, we must normalize the squared magnitude by N_FFT^2.
         float normalizationFactor = (float) (nFft * nFft);
@@ -51,7 +93,5 @@ public class FFTProcessor {
             float im = fftData[2 * k + 1];
             powerSpectrum[k] = ((re * re) + (im * im)) / normalizationFactor;
         }
-
-        return powerSpectrum;
     }
 }
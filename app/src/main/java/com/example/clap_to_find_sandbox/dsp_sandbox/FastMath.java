@@ -0,0 +1,77 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+/**
+ * ARCHITECT'S NOTE: Opt-in, table-based log/exp kernels for the per-hop hot path.
+ *
+ * log2: exponent from the float bits + linearly interpolated log2(mantissa) table
+ *       (1024 segments). Interpolation error <= h^2/8 * max|f''| ~= 1.7e-7; the
+ *       float result rounding dominates, so |error| <= MAX_LOG2_ERROR over all
+ *       positive normal floats.
+ * exp2: integer part via scalb + interpolated 2^frac table (1024 segments).
+ *       Relative error <= MAX_EXP2_REL_ERROR.
+ *
+ * Domain: positive normal floats (the pipeline clamps to 1e-10 before any log).
+ * Zero, negative and subnormal inputs fall back to java.lang.Math.
+ */
+public final class FastMath {
+    private static final int TABLE_BITS = 10;
+    private static final int TABLE_SIZE = 1 << TABLE_BITS;
+    private static final int MANTISSA_SHIFT = 23 - TABLE_BITS;
+    private static final float MANTISSA_FRAC_SCALE = 1.0f / (1 << MANTISSA_SHIFT);
+
+    /** Max absolute error of {@link #log2(float)} (validated in FastMathTest). */
+    public static final float MAX_LOG2_ERROR = 4e-6f;
+    /** Max relative error of {@link #exp2(double)} (validated in FastMathTest). */
+    public static final float MAX_EXP2_REL_ERROR = 3e-7f;
+
+    public static final float LOG10_2 = 0.30102999566f;
+    public static final float LN_2 = 0.69314718056f;
+
+    // log2(1 + i / TABLE_SIZE), i = 0..TABLE_SIZE
+    private static final float[] LOG2_TABLE = new float[TABLE_SIZE + 1];
+    // 2^(i / TABLE_SIZE), i = 0..TABLE_SIZE
+    private static final float[] EXP2_TABLE = new float[TABLE_SIZE + 1];
+
+    static {
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            LOG2_TABLE[i] = (float) (Math.log(1.0 + i / (double) TABLE_SIZE) / Math.log(2.0));
+            EXP2_TABLE[i] = (float) Math.pow(2.0, i / (double) TABLE_SIZE);
+        }
+    }
+
+    private FastMath() {
+    }
+
+    public static float log2(float x) {
+        int bits = Float.floatToRawIntBits(x);
+        int exponentField = (bits >>> 23) & 0xFF;
+        if (bits <= 0 || exponentField == 0 || exponentField == 0xFF) {
+            return (float) (Math.log(x) / Math.log(2.0));
+        }
+        int mantissa = bits & 0x7FFFFF;
+        int idx = mantissa >>> MANTISSA_SHIFT;
+        float frac = (mantissa & ((1 << MANTISSA_SHIFT) - 1)) * MANTISSA_FRAC_SCALE;
+        float lo = LOG2_TABLE[idx];
+        return (exponentField - 127) + (lo + frac * (LOG2_TABLE[idx + 1] - lo));
+    }
+
+    public static float log10(float x) {
+        return log2(x) * LOG10_2;
+    }
+
+    public static float ln(float x) {
+        return log2(x) * LN_2;
+    }
+
+    public static double exp2(double x) {
+        if (!(x > -126.0 && x < 128.0)) {
+            return Math.pow(2.0, x);
+        }
+        double floor = Math.floor(x);
+        double scaled = (x - floor) * TABLE_SIZE;
+        int idx = (int) scaled;
+        float frac = (float) (scaled - idx);
+        float lo = EXP2_TABLE[idx];
+        return Math.scalb(lo + frac * (EXP2_TABLE[idx + 1] - lo), (int) floor);
+    }
+}
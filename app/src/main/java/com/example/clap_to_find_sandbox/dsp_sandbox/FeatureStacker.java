@@ -1,67 +1,129 @@
 package com.example.clap_to_find_sandbox.dsp_sandbox;
 
+import java.nio.FloatBuffer;
+
 /**
  * ARCHITECT'S NOTE: Phase-3.5 FIXED.
  * Maintains a rolling 2D window and linearizes time for the CNN.
+ *
+ * Storage is TIME-MAJOR and mirrored (MirroredRingBuffer of nFrames * nMels):
+ * one frame = nMels contiguous floats, and the whole chronological patch is
+ * always one flat region in the model's [time][mels] layout:
+ *
+ *     patchArray()[patchOffset() .. patchOffset() + nFrames * nMels)
+ *
+ * addFrame is one bulk copy; exporting the patch is one bulk put, no modulo.
  */
 public class FeatureStacker {
+    private static final float SILENCE_DB = -100.0f;
+
     private final int nMels;
     private final int nFrames;
-    private final float[][] circularBuffer;
-    private int currentFrameIndex = 0;
+    private final MirroredRingBuffer frames;
     private boolean isBufferFull = false;
 
     public FeatureStacker(int nMels, int nFrames) {
         this.nMels = nMels;
         this.nFrames = nFrames;
-        this.circularBuffer = new float[nMels][nFrames];
-
         // Initialize with silence (-100dB)
-        float silenceValue = -100.0f;
-        for (int i = 0; i < nMels; i++) {
-            for (int j = 0; j < nFrames; j++) {
-                circularBuffer[i][j] = silenceValue;
-            }
-        }
+        this.frames = new MirroredRingBuffer(nMels * nFrames, SILENCE_DB);
     }
 
     public void addFrame(float[] logMelFrame) {
         if (logMelFrame.length != nMels) {
             throw new IllegalArgumentException("Frame size mismatch.");
         }
-
-        // Insert new frame at the current pointer
-        for (int m = 0; m < nMels; m++) {
-            circularBuffer[m][currentFrameIndex] = logMelFrame[m];
-        }
-
-        // Advance pointer
-        currentFrameIndex = (currentFrameIndex + 1) % nFrames;
-        if (currentFrameIndex == 0) {
+        frames.append(logMelFrame, 0, nMels);
+        if (frames.isFull()) {
             isBufferFull = true;
         }
     }
 
+    /**
+     * Backing array of the flat [time][mels] patch. Only read inside
+     * [patchOffset(), patchOffset() + getPatchSize()).
+     */
+    public float[] patchArray() {
+        return frames.array();
+    }
+
+    /**
+     * Start of the flat patch. If buffer isn't full, oldest is slot 0 (frames so far,
+     * then silence), matching the original ordering. If full, oldest is the write slot.
+     */
+    public int patchOffset() {
+        return isBufferFull ? frames.offset() : 0;
+    }
+
+    /**
+     * Start of the flat patch as a live model input: NEWEST frame always last. While filling,
+     * the silence comes first (like the zeros ahead of a young waveform ring), so a frame sits
+     * where it will once the buffer is full. Same as patchOffset() once isReady().
+     */
+    public int modelPatchOffset() {
+        return frames.offset();
+    }
+
+    public int getPatchSize() {
+        return nMels * nFrames;
+    }
+
+    /**
+     * Bulk-puts the flat [time][mels] patch into dst (e.g. a direct buffer bound to the
+     * model input) starting at position 0. Position is back at 0 afterwards.
+     */
+    public void exportPatch(FloatBuffer dst) {
+        dst.rewind();
+        dst.put(frames.array(), patchOffset(), getPatchSize());
+        dst.rewind();
+    }
+
     /**
      * UNPACKS THE CIRCULAR BUFFER INTO CHRONOLOGICAL ORDER.
      * Output: [mels][time] where index 0 is OLDEST and index (nFrames-1) is NEWEST.
+     * Compatibility view; prefer the flat patch.
      */
     public float[][] getOrderedMatrix() {
         float[][] ordered = new float[nMels][nFrames];
+        copyOrderedMatrix(ordered);
+        return ordered;
+    }
 
-        // If buffer isn't full, oldest is 0. If full, oldest is currentFrameIndex.
-        int oldestIndex = isBufferFull ? currentFrameIndex : 0;
-
+    /**
+     * Allocation-free variant of {@link #getOrderedMatrix()} into a caller-owned [mels][time] array.
+     */
+    public void copyOrderedMatrix(float[][] ordered) {
+        float[] data = frames.array();
+        int src = patchOffset();
         for (int t = 0; t < nFrames; t++) {
-            int srcTimeIndex = (oldestIndex + t) % nFrames;
             for (int m = 0; m < nMels; m++) {
-                ordered[m][t] = circularBuffer[m][srcTimeIndex];
+                ordered[m][t] = data[src++];
             }
         }
-        return ordered;
+    }
+
+    /**
+     * Same patch as {@link #copyOrderedMatrix(float[][])}, in the model's
+     * [time][mels] layout (YAMNet patch [96][64]). Index 0 is OLDEST.
+     */
+    public void copyTimeMajorPatch(float[][] patch) {
+        float[] data = frames.array();
+        int src = patchOffset();
+        for (int t = 0; t < nFrames; t++) {
+            System.arraycopy(data, src, patch[t], 0, nMels);
+            src += nMels;
+        }
     }
 
     public boolean isReady() {
         return isBufferFull;
     }
-}
\ No newline at end of file
+
+    public int getNMels() {
+        return nMels;
+    }
+
+    public int getNFrames() {
+        return nFrames;
+    }
+}
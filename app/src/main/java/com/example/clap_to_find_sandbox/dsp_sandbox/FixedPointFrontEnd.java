@@ -0,0 +1,417 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+/**
+ * ARCHITECT'S NOTE: Integer front end for low-power devices (opt-in, DspConfig.FIXED_POINT).
+ * Stays on the int16 samples from AudioRecord; no float until the 64 final dB values:
+ *
+ * 1. Q15 window: pcm * w_q15, shifted down (r bits) if the frame is loud enough to need it,
+ *    so it fits in frameBits (20 for N = 512). One block exponent per frame.
+ * 2. 256-point complex FFT on int re/im, RealFFT's radix-2^2 DIF passes with Q30 twiddles
+ *    and 64-bit products. frameBits leaves headroom for the growth of every stage, so there
+ *    are no per-pass overflow checks or rescaling. Real/imag split step in long.
+ * 3. Integer power (long) and banded mel projection with weights scaled to 15 bits (ws),
+ *    power shifted down (p bits) only as far as the sums need to stay inside a long.
+ * 4. Table-based log2 of each mel sum (Q16), the exponents r, p, ws folded back in as
+ *    integers, then one multiply to dB and the same -100 dB floor as LogMelExtractor.
+ *
+ * Error vs the float dsp_sandbox path (FixedPointFrontEndTest): mel bins within
+ * DYNAMIC_RANGE_DB of the frame's strongest bin agree to MAX_ERROR_DB (measured 0.023 dB over
+ * clip, noise, tone and full-scale frames). Quieter bins are dominated by the Q15 window
+ * and twiddle rounding and are not bounded.
+ *
+ * The gate's spectral summaries (candidate hops only) convert the integer power to float
+ * and go through ImpulseCriteria, so they carry the same quantization error.
+ * One instance per stream; not thread safe.
+ */
+public class FixedPointFrontEnd {
+    /** Max |dB| difference to the float front end, for bins within DYNAMIC_RANGE_DB of the frame peak. */
+    public static final float MAX_ERROR_DB = 0.05f;
+    public static final float DYNAMIC_RANGE_DB = 60.0f;
+
+    private static final int ONE_Q15 = 1 << 15;
+    // Twiddles in Q30: |stage value| < 2^29.5, so each product and sum stays inside a long
+    private static final int TWIDDLE_BITS = 30;
+    private static final long TWIDDLE_ROUND = 1L << (TWIDDLE_BITS - 1);
+    private static final float LOG2_Q16_TO_DB = 10.0f * FastMath.LOG10_2 / 65536.0f;
+    private static final float FLOOR_DB = -100.0f;      // 10 * log10(1e-10)
+
+    // log2(1 + i / 1024) in Q16, i = 0..1024
+    private static final int LOG_TABLE_BITS = 10;
+    private static final int[] LOG2_TABLE_Q16 = new int[(1 << LOG_TABLE_BITS) + 1];
+
+    static {
+        for (int i = 0; i < LOG2_TABLE_Q16.length; i++) {
+            LOG2_TABLE_Q16[i] = (int) Math.round(Math.log(1.0 + i / 1024.0) / Math.log(2.0) * 65536.0);
+        }
+    }
+
+    private final int n;
+    private final int half;
+    private final int nBins;
+    private final int log2N;
+    private final int winLength;
+    // Windowed samples stay below 2^frameBits: each of the log2(N) - 1 passes at most doubles a
+    // magnitude and the split step adds two more bits, so |2X| < 2^31 and |2X|^2 < 2^62
+    private final int frameBits;
+    private final int[] windowQ15;
+    private final int[] cosQ30;        // cos(2 pi k / N) * 2^30, k in [0, N)
+    private final int[] sinQ30;
+    private final int[] bitReverse;
+
+    // Banded mel weights, scaled by 2^melShift to use 15 bits
+    private final int nMels;
+    private final int[] bandStart;
+    private final int[] bandEnd;
+    private final int[] weightOffset;
+    private final int[] weightsQ;
+    private final int melShift;
+    private final int melSumBits;      // bits of the largest filter's weight sum
+
+    private final int[] re;
+    private final int[] im;
+    private final long[] power;        // |2 X[k]|^2 in frame units
+    private final float[] spectrum;    // float power, summaries only
+    private final float[] logMelFrame;
+
+    // Newest N samples of int16 history, mirrored (written at p and p + N)
+    private final short[] history;
+    private int writePos = 0;
+
+    private int exponent;              // log2 of the float value of one power unit, this frame
+    private long powerBits;            // OR of power[], for the mel shift
+    private boolean silent;
+    private boolean useFastMath = false;
+    private double flatness = Double.NaN;
+    private float hfRatio = Float.NaN;
+
+    public FixedPointFrontEnd(HannWindow hannWindow, MelFilterbank melFilterbank, int nFft) {
+        if (nFft < 8 || Integer.bitCount(nFft) != 1) {
+            throw new IllegalArgumentException("FFT size must be a power of two >= 8, got " + nFft);
+        }
+        if (hannWindow.getWinLength() > nFft) {
+            throw new IllegalArgumentException("Window length " + hannWindow.getWinLength()
+                    + " exceeds FFT size " + nFft);
+        }
+        if (melFilterbank.getNFreqs() != nFft / 2 + 1) {
+            throw new IllegalArgumentException("Mel filterbank has " + melFilterbank.getNFreqs()
+                    + " bins, FFT size " + nFft + " gives " + (nFft / 2 + 1));
+        }
+        this.n = nFft;
+        this.half = nFft / 2;
+        this.nBins = half + 1;
+        this.log2N = Integer.numberOfTrailingZeros(nFft);
+        this.winLength = hannWindow.getWinLength();
+        this.frameBits = 29 - log2N;
+
+        this.windowQ15 = new int[winLength];
+        float[] w = hannWindow.coefficients();
+        for (int i = 0; i < winLength; i++) {
+            windowQ15[i] = Math.max(-32767, Math.min(32767, Math.round(w[i] * ONE_Q15)));
+        }
+        this.cosQ30 = new int[n];
+        this.sinQ30 = new int[n];
+        for (int k = 0; k < n; k++) {
+            double angle = 2.0 * Math.PI * k / n;
+            cosQ30[k] = (int) Math.round(Math.scalb(Math.cos(angle), TWIDDLE_BITS));
+            sinQ30[k] = (int) Math.round(Math.scalb(Math.sin(angle), TWIDDLE_BITS));
+        }
+        int bits = Integer.numberOfTrailingZeros(half);
+        this.bitReverse = new int[half];
+        for (int k = 0; k < half; k++) {
+            bitReverse[k] = Integer.reverse(k) >>> (32 - bits);
+        }
+
+        this.nMels = melFilterbank.getNMels();
+        this.bandStart = new int[nMels];
+        this.bandEnd = new int[nMels];
+        this.weightOffset = new int[nMels];
+        float maxWeight = 0;
+        int nnz = 0;
+        for (int m = 0; m < nMels; m++) {
+            bandStart[m] = melFilterbank.bandStart(m);
+            bandEnd[m] = melFilterbank.bandEnd(m);
+            weightOffset[m] = nnz;
+            nnz += bandEnd[m] - bandStart[m];
+            for (int f = bandStart[m]; f < bandEnd[m]; f++) {
+                maxWeight = Math.max(maxWeight, Math.abs(melFilterbank.bandWeight(m, f)));
+            }
+        }
+        // Largest shift that keeps every weight below 2^15
+        this.melShift = maxWeight > 0 ? 14 - Math.getExponent(maxWeight) : 0;
+        this.weightsQ = new int[nnz];
+        long maxWeightSum = 0;
+        for (int m = 0; m < nMels; m++) {
+            long weightSum = 0;
+            for (int f = bandStart[m]; f < bandEnd[m]; f++) {
+                int q = (int) Math.round(Math.scalb((double) melFilterbank.bandWeight(m, f), melShift));
+                weightsQ[weightOffset[m] + f - bandStart[m]] = q;
+                weightSum += Math.abs(q);
+            }
+            maxWeightSum = Math.max(maxWeightSum, weightSum);
+        }
+        this.melSumBits = 64 - Long.numberOfLeadingZeros(maxWeightSum);
+
+        this.re = new int[half];
+        this.im = new int[half];
+        this.power = new long[nBins];
+        this.spectrum = new float[nBins];
+        this.logMelFrame = new float[nMels];
+        this.history = new short[2 * n];
+    }
+
+    /**
+     * Appends int16 samples to the frame history (e.g. one hop from AudioRecord).
+     */
+    public void push(short[] pcm, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            short v = pcm[offset + i];
+            history[writePos] = v;
+            history[writePos + n] = v;
+            if (++writePos == n) writePos = 0;
+        }
+    }
+
+    /**
+     * Appends normalized float samples (e.g. a 16-bit WAV through WavReader), back to int16.
+     * Exact for samples that came from int16; anything finer is rounded.
+     */
+    public void push(float[] samples, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            int v = Math.round(samples[offset + i] * 32768.0f);
+            short s = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, v));
+            history[writePos] = s;
+            history[writePos + n] = s;
+            if (++writePos == n) writePos = 0;
+        }
+    }
+
+    /**
+     * Newest N pushed samples. Same flags and results as {@link #process(short[], int, boolean, boolean)}.
+     */
+    public float[] processLatest(boolean logMel, boolean summaries) {
+        return process(history, writePos, logMel, summaries);
+    }
+
+    /** Log-mel frame and spectral summaries of pcm[offset .. offset + N). */
+    public float[] process(short[] pcm, int offset) {
+        return process(pcm, offset, true, true);
+    }
+
+    /**
+     * @param logMel    Compute the log-mel frame (otherwise the returned buffer is stale).
+     * @param summaries Compute getFlatness() / getHfRatio() (otherwise both are NaN).
+     * @return The internal log-mel buffer (nMels values, dB).
+     */
+    public float[] process(short[] pcm, int offset, boolean logMel, boolean summaries) {
+        if (offset < 0 || offset + winLength > pcm.length) {
+            throw new IllegalArgumentException("Frame [" + offset + ", " + (offset + winLength)
+                    + ") outside " + pcm.length + " samples.");
+        }
+        flatness = Double.NaN;
+        hfRatio = Float.NaN;
+        if (!logMel && !summaries) {
+            return logMelFrame;
+        }
+        powerSpectrum(pcm, offset);
+        if (logMel) {
+            logMel();
+        }
+        if (summaries) {
+            summaries();
+        }
+        return logMelFrame;
+    }
+
+    private void powerSpectrum(short[] pcm, int offset) {
+        int peak = 0;
+        for (int i = 0; i < winLength; i++) {
+            peak = Math.max(peak, Math.abs(pcm[offset + i]));
+        }
+        silent = peak == 0;
+        if (silent) {
+            java.util.Arrays.fill(power, 0);
+            return;
+        }
+
+        // 1. Q15 window; |pcm * w| < 2^(bits(peak) + 15), shifted down to frameBits if above
+        int r = Math.max(0, 32 - Integer.numberOfLeadingZeros(peak) + 15 - frameBits);
+        int round = (1 << r) >> 1;
+        final int[] re = this.re;
+        final int[] im = this.im;
+        int pairs = winLength / 2;
+        for (int j = 0; j < pairs; j++) {
+            re[j] = (pcm[offset + 2 * j] * windowQ15[2 * j] + round) >> r;
+            im[j] = (pcm[offset + 2 * j + 1] * windowQ15[2 * j + 1] + round) >> r;
+        }
+        if ((winLength & 1) != 0) {
+            re[pairs] = (pcm[offset + winLength - 1] * windowQ15[winLength - 1] + round) >> r;
+            im[pairs++] = 0;
+        }
+        java.util.Arrays.fill(re, pairs, half, 0);
+        java.util.Arrays.fill(im, pairs, half, 0);
+
+        // 2. DIF passes, natural order in, bit-reversed out. No overflow checks: see frameBits
+        butterflies();
+
+        // 3. Split step in long: 2X[k] = 2Fe + W^k 2Fo
+        long z0r = re[0];
+        long z0i = im[0];
+        power[0] = 4 * (z0r + z0i) * (z0r + z0i);
+        power[half] = 4 * (z0r - z0i) * (z0r - z0i);
+        long bitsPower = power[0] | power[half];
+        for (int k = 1; k <= half / 2; k++) {
+            int p = bitReverse[k];
+            int q = bitReverse[half - k];
+            long er = (long) re[p] + re[q];
+            long ei = (long) im[p] - im[q];
+            long or = (long) im[p] + im[q];
+            long oi = (long) re[q] - re[p];
+            long c = cosQ30[k];
+            long s = sinQ30[k];
+            long tr = (or * c + oi * s + TWIDDLE_ROUND) >> TWIDDLE_BITS;
+            long ti = (oi * c - or * s + TWIDDLE_ROUND) >> TWIDDLE_BITS;
+            long xr = er + tr;
+            long xi = ei + ti;
+            power[k] = xr * xr + xi * xi;
+            long yr = er - tr;
+            long yi = ei - ti;
+            power[half - k] = yr * yr + yi * yi;
+            bitsPower |= power[k] | power[half - k];
+        }
+        powerBits = bitsPower;
+
+        // One unit of power[] in float terms: |2X|^2 * 0.25 / N^2 (FFTProcessor scaling), samples
+        // were pcm / 2^15 * w / 2^15 * 2^-r
+        exponent = 2 * r - 60 - 2 - 2 * log2N;
+    }
+
+    /*
+     * RealFFT's radix-2^2 passes on int re/im (two DIF radix-2 stages per pass, a last radix-2
+     * stage if log2(N/2) is odd), each twiddle product rounded back from Q30:
+     *   [a]      = t0 + t2
+     *   [a + q]  = (t0 - t2) W^2j
+     *   [a + 2q] = (t1 - i t3) W^j
+     *   [a + 3q] = (t1 + i t3) W^3j
+     */
+    private void butterflies() {
+        final int[] re = this.re;
+        final int[] im = this.im;
+        for (int q = half / 4; q >= 1; q /= 4) {
+            // j = 0: W^0 = 1, exact
+            for (int a0 = 0; a0 < half; a0 += 4 * q) {
+                int a1 = a0 + q, a2 = a1 + q, a3 = a2 + q;
+                int t0r = re[a0] + re[a2], t0i = im[a0] + im[a2];
+                int t1r = re[a0] - re[a2], t1i = im[a0] - im[a2];
+                int t2r = re[a1] + re[a3], t2i = im[a1] + im[a3];
+                int t3r = re[a1] - re[a3], t3i = im[a1] - im[a3];
+                re[a0] = t0r + t2r;
+                im[a0] = t0i + t2i;
+                re[a1] = t0r - t2r;
+                im[a1] = t0i - t2i;
+                re[a2] = t1r + t3i;
+                im[a2] = t1i - t3r;
+                re[a3] = t1r - t3i;
+                im[a3] = t1i + t3r;
+            }
+
+            int step = n / (4 * q);
+            for (int j = 1; j < q; j++) {
+                int t = j * step;
+                long c1 = cosQ30[t], s1 = sinQ30[t];
+                long c2 = cosQ30[2 * t], s2 = sinQ30[2 * t];
+                long c3 = cosQ30[3 * t], s3 = sinQ30[3 * t];
+                for (int a0 = j; a0 < half; a0 += 4 * q) {
+                    int a1 = a0 + q, a2 = a1 + q, a3 = a2 + q;
+                    int t0r = re[a0] + re[a2], t0i = im[a0] + im[a2];
+                    int t1r = re[a0] - re[a2], t1i = im[a0] - im[a2];
+                    int t2r = re[a1] + re[a3], t2i = im[a1] + im[a3];
+                    int t3r = re[a1] - re[a3], t3i = im[a1] - im[a3];
+
+                    re[a0] = t0r + t2r;
+                    im[a0] = t0i + t2i;
+                    long yr = t0r - t2r, yi = t0i - t2i;
+                    re[a1] = (int) ((yr * c2 + yi * s2 + TWIDDLE_ROUND) >> TWIDDLE_BITS);
+                    im[a1] = (int) ((yi * c2 - yr * s2 + TWIDDLE_ROUND) >> TWIDDLE_BITS);
+                    yr = t1r + t3i;
+                    yi = t1i - t3r;
+                    re[a2] = (int) ((yr * c1 + yi * s1 + TWIDDLE_ROUND) >> TWIDDLE_BITS);
+                    im[a2] = (int) ((yi * c1 - yr * s1 + TWIDDLE_ROUND) >> TWIDDLE_BITS);
+                    yr = t1r - t3i;
+                    yi = t1i + t3r;
+                    re[a3] = (int) ((yr * c3 + yi * s3 + TWIDDLE_ROUND) >> TWIDDLE_BITS);
+                    im[a3] = (int) ((yi * c3 - yr * s3 + TWIDDLE_ROUND) >> TWIDDLE_BITS);
+                }
+            }
+        }
+        if (Integer.numberOfTrailingZeros(half) % 2 == 1) {
+            // log2(N/2) odd: one radix-2 stage left
+            for (int a = 0; a < half; a += 2) {
+                int tr = re[a] - re[a + 1];
+                int ti = im[a] - im[a + 1];
+                re[a] += re[a + 1];
+                im[a] += im[a + 1];
+                re[a + 1] = tr;
+                im[a + 1] = ti;
+            }
+        }
+    }
+
+    private void logMel() {
+        if (silent) {
+            java.util.Arrays.fill(logMelFrame, FLOOR_DB);
+            return;
+        }
+        // Largest power times the largest weight sum must stay below 2^63
+        int p = Math.max(0, 64 - Long.numberOfLeadingZeros(powerBits) + melSumBits - 63);
+        int offsetQ16 = (exponent + p - melShift) << 16;
+        for (int m = 0; m < nMels; m++) {
+            long sum = 0;
+            int w = weightOffset[m];
+            for (int f = bandStart[m]; f < bandEnd[m]; f++) {
+                sum += (power[f] >> p) * weightsQ[w++];
+            }
+            logMelFrame[m] = sum <= 0
+                    ? FLOOR_DB
+                    : Math.max(FLOOR_DB, (log2Q16(sum) + offsetQ16) * LOG2_Q16_TO_DB);
+        }
+    }
+
+    // Float spectrum through ImpulseCriteria: rare (candidate hops), so exactness of code beats speed
+    private void summaries() {
+        for (int k = 0; k < nBins; k++) {
+            spectrum[k] = silent ? 0f : (float) Math.scalb((double) power[k], exponent);
+        }
+        flatness = useFastMath
+                ? ImpulseCriteria.spectralFlatnessFast(spectrum)
+                : ImpulseCriteria.spectralFlatness(spectrum);
+        hfRatio = ImpulseCriteria.hfRatio(spectrum);
+    }
+
+    /** log2(v) in Q16 for v > 0: bit position + interpolated mantissa table. */
+    static int log2Q16(long v) {
+        int lz = Long.numberOfLeadingZeros(v);
+        long norm = v << lz; // leading one at bit 63
+        int idx = (int) (norm >>> (63 - LOG_TABLE_BITS)) & ((1 << LOG_TABLE_BITS) - 1);
+        int frac = (int) (norm >>> (63 - LOG_TABLE_BITS - 16)) & 0xFFFF;
+        int lo = LOG2_TABLE_Q16[idx];
+        int interp = lo + (int) (((long) (LOG2_TABLE_Q16[idx + 1] - lo) * frac) >> 16);
+        return ((63 - lz) << 16) + interp;
+    }
+
+    /** Flatness through {@link FastMath}, as StreamingImpulseTracker.setFastMath(); keep the two in step. */
+    public void setFastMath(boolean useFastMath) {
+        this.useFastMath = useFastMath;
+    }
+
+    public double getFlatness() {
+        return flatness;
+    }
+
+    public float getHfRatio() {
+        return hfRatio;
+    }
+
+    public float[] getLogMelFrame() {
+        return logMelFrame;
+    }
+}
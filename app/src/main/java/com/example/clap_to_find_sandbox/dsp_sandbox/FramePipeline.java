@@ -0,0 +1,81 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+/**
+ * ARCHITECT'S NOTE: Per-stream, allocation-free front end.
+ * Chains Hann -> Power Spectrum -> Mel -> Log-Mel through buffers it owns,
+ * so the audio thread allocates nothing per hop.
+ *
+ * Output is bit-identical to the allocating stage APIs.
+ * The returned arrays are reused on the next call: copy them if you need to keep them.
+ * One instance per stream; not thread safe.
+ */
+public class FramePipeline {
+    private final HannWindow hannWindow;
+    private final FFTProcessor fftProcessor;
+    private final MelFilterbank melFilterbank;
+    private final LogMelExtractor logMelExtractor;
+
+    private final float[] windowedFrame;
+    private final float[] powerSpectrum;
+    private final float[] melEnergies;
+    private final float[] logMelFrame;
+
+    public FramePipeline(HannWindow hannWindow, FFTProcessor fftProcessor,
+                         MelFilterbank melFilterbank, LogMelExtractor logMelExtractor,
+                         int nFft, int nMels) {
+        this.hannWindow = hannWindow;
+        this.fftProcessor = fftProcessor;
+        this.melFilterbank = melFilterbank;
+        this.logMelExtractor = logMelExtractor;
+
+        this.windowedFrame = new float[nFft];
+        this.powerSpectrum = new float[nFft / 2 + 1];
+        this.melEnergies = new float[nMels];
+        this.logMelFrame = new float[nMels];
+    }
+
+    /**
+     * STAGE 0 + 1: Windows samples[offset ..] and computes its power spectrum.
+     * @return The internal power spectrum buffer (nFft/2 + 1 bins).
+     */
+    public float[] computePowerSpectrum(float[] samples, int offset) {
+        hannWindow.applyWindow(samples, offset, windowedFrame);
+        fftProcessor.getPowerSpectrum(windowedFrame, powerSpectrum);
+        return powerSpectrum;
+    }
+
+    /**
+     * STAGE 2 + 3: Mel projection and log of the last computed power spectrum.
+     * @return The internal log-mel buffer (nMels values).
+     */
+    public float[] computeLogMel() {
+        melFilterbank.applyFilterbank(powerSpectrum, melEnergies);
+        logMelExtractor.computeLogMel(melEnergies, logMelFrame);
+        return logMelFrame;
+    }
+
+    /**
+     * Full chain for one frame.
+     * @return The internal log-mel buffer (nMels values).
+     */
+    public float[] process(float[] samples, int offset) {
+        computePowerSpectrum(samples, offset);
+        return computeLogMel();
+    }
+
+    public float[] getWindowedFrame() {
+        return windowedFrame;
+    }
+
+    public float[] getPowerSpectrum() {
+        return powerSpectrum;
+    }
+
+    public float[] getMelEnergies() {
+        return melEnergies;
+    }
+
+    public float[] getLogMelFrame() {
+        return logMelFrame;
+    }
+}
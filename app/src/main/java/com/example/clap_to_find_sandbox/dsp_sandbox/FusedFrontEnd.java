@@ -0,0 +1,196 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+/**
+ * ARCHITECT'S NOTE: Window -> FFT -> power -> mel -> log in one kernel.
+ * Reads the newest N_FFT samples straight out of the mirrored ring (hop + history,
+ * contiguous) and writes the 64 log-mels, without the windowed frame or the power
+ * spectrum ever being stored:
+ *
+ * 1. Hann window folded into the RealFFT packing (RealFFT.transform).
+ * 2. Bins come out of the split step one at a time, ascending (RealFFT.*BinPower).
+ * 3. Each bin is scattered into the two triangular filters that contain it (rising edge
+ *    of one, falling edge of the previous), through a per-bin transpose of the mel bands.
+ * 4. Same bin, same pass: the gate's spectral summaries (flatness sums, HF energies),
+ *    only when asked for, since only frames that passed the time-domain checks need them.
+ *
+ * Bit-identical to FramePipeline over FFTProcessor(N_FFT, WIN_LENGTH, true) + ImpulseCriteria:
+ * every product is the same, and every sum (each mel filter, each summary) is accumulated
+ * in the same ascending bin order from the same start value. FusedFrontEndTest checks this.
+ *
+ * The returned array is reused on the next call. One instance per stream; not thread safe.
+ */
+public class FusedFrontEnd {
+    private final RealFFT fft;
+    private final float[] window;        // Hann coefficients, padded to RealFFT's packed length
+    private final LogMelExtractor logMelExtractor;
+    private final int nBins;
+    private final int quarter;           // first bin of RealFFT's upper half
+    private final int hfLowEnd;
+    private final int hfHighEnd;
+
+    // Bins -> filters, two slots per bin: bin k adds into slotMel[2k], slotMel[2k + 1] with
+    // slotWeight[..]. Unused slots point at the spare accumulator nMels with weight 0.
+    private final int[] slotMel;
+    private final float[] slotWeight;
+    private final float[] accumulators; // nMels + 1
+    private final float[] melEnergies;
+    private final float[] logMelFrame;
+
+    private boolean useFastMath = false;
+    private double flatness = Double.NaN;
+    private float hfRatio = Float.NaN;
+
+    public FusedFrontEnd(HannWindow hannWindow, MelFilterbank melFilterbank,
+                         LogMelExtractor logMelExtractor, int nFft) {
+        int nBins = nFft / 2 + 1;
+        if (melFilterbank.getNFreqs() != nBins) {
+            throw new IllegalArgumentException("Mel filterbank has " + melFilterbank.getNFreqs()
+                    + " bins, FFT size " + nFft + " gives " + nBins);
+        }
+        this.fft = new RealFFT(nFft, hannWindow.getWinLength());
+        this.logMelExtractor = logMelExtractor;
+        this.nBins = nBins;
+        this.quarter = (nBins - 1) / 2;
+        this.hfLowEnd = ImpulseCriteria.hfLowEnd(nBins);
+        this.hfHighEnd = ImpulseCriteria.hfHighEnd(nBins);
+
+        // An odd window length leaves one zero coefficient to round up to a whole pair
+        this.window = new float[fft.getPackedLength()];
+        System.arraycopy(hannWindow.coefficients(), 0, window, 0, hannWindow.getWinLength());
+
+        int nMels = melFilterbank.getNMels();
+        int[] filtersPerBin = new int[nBins];
+        this.slotMel = new int[2 * nBins];
+        this.slotWeight = new float[2 * nBins];
+        java.util.Arrays.fill(slotMel, nMels);
+        // Interior zero weights are kept, like the bands: the same terms get added
+        for (int m = 0; m < nMels; m++) {
+            for (int f = melFilterbank.bandStart(m); f < melFilterbank.bandEnd(m); f++) {
+                if (filtersPerBin[f] == 2) {
+                    throw new IllegalArgumentException("Bin " + f + " is in more than two mel filters");
+                }
+                int e = 2 * f + filtersPerBin[f]++;
+                slotMel[e] = m;
+                slotWeight[e] = melFilterbank.bandWeight(m, f);
+            }
+        }
+        this.accumulators = new float[nMels + 1];
+        this.melEnergies = new float[nMels];
+        this.logMelFrame = new float[nMels];
+    }
+
+    /**
+     * Log-mel frame and spectral summaries of samples[offset .. offset + N_FFT).
+     * @return The internal log-mel buffer (nMels values).
+     */
+    public float[] process(float[] samples, int offset) {
+        return process(samples, offset, true, true);
+    }
+
+    /**
+     * One pass over the bins, doing only what is asked for.
+     * @param logMel    Compute the log-mel frame (otherwise the returned buffer is stale).
+     * @param summaries Compute getFlatness() / getHfRatio() (otherwise both are NaN).
+     * @return The internal log-mel buffer (nMels values).
+     */
+    public float[] process(float[] samples, int offset, boolean logMel, boolean summaries) {
+        if (offset < 0 || offset + window.length > samples.length) {
+            throw new IllegalArgumentException("Frame [" + offset + ", " + (offset + window.length)
+                    + ") outside " + samples.length + " samples.");
+        }
+        flatness = Double.NaN;
+        hfRatio = Float.NaN;
+        if (!logMel && !summaries) {
+            return logMelFrame;
+        }
+        fft.transform(samples, offset, window);
+
+        if (logMel) java.util.Arrays.fill(accumulators, 0.0f);
+        if (logMel && !summaries) {
+            scatterBins();
+        } else {
+            scatterBinsWithSummaries(logMel);
+        }
+        if (logMel) {
+            System.arraycopy(accumulators, 0, melEnergies, 0, melEnergies.length);
+            logMelExtractor.computeLogMel(melEnergies, logMelFrame);
+        }
+        return logMelFrame;
+    }
+
+    // The common hop: log-mel only. RealFFT's three bin ranges as separate loops
+    private void scatterBins() {
+        final RealFFT fft = this.fft;
+        int half = nBins - 1;
+        addBin(0, fft.edgeBinPower(0));
+        for (int k = 1; k < quarter; k++) {
+            addBin(k, fft.lowerBinPower(k));
+        }
+        for (int k = quarter; k < half; k++) {
+            addBin(k, fft.upperBinPower(k));
+        }
+        addBin(half, fft.edgeBinPower(half));
+    }
+
+    private void addBin(int k, float p) {
+        int e = 2 * k;
+        accumulators[slotMel[e]] += p * slotWeight[e];
+        accumulators[slotMel[e + 1]] += p * slotWeight[e + 1];
+    }
+
+    private float binPower(int k) {
+        if (k == 0 || k == nBins - 1) return fft.edgeBinPower(k);
+        return k < quarter ? fft.lowerBinPower(k) : fft.upperBinPower(k);
+    }
+
+    // ImpulseCriteria.spectralFlatness / hfRatio, term for term, plus the mels if asked for
+    private void scatterBinsWithSummaries(boolean logMel) {
+        double sumLog = 0;
+        double sum = 0;
+        float energyLow = 0;
+        float energyHigh = 0;
+        for (int k = 0; k < nBins; k++) {
+            float p = binPower(k);
+            if (logMel) {
+                addBin(k, p);
+            }
+            float val = p + 1e-10f;
+            sumLog += useFastMath ? FastMath.log2(val) : Math.log(val);
+            sum += val;
+            if (k < hfLowEnd) {
+                energyLow += p * p;
+            } else if (k < hfHighEnd) {
+                energyHigh += p * p;
+            }
+        }
+        flatness = useFastMath
+                ? ImpulseCriteria.spectralFlatnessFast(sumLog, sum, nBins)
+                : ImpulseCriteria.spectralFlatness(sumLog, sum, nBins);
+        hfRatio = ImpulseCriteria.hfRatio(energyLow, energyHigh);
+    }
+
+    /**
+     * Flatness through {@link FastMath}, as StreamingImpulseTracker.setFastMath(); keep the two in step.
+     */
+    public void setFastMath(boolean useFastMath) {
+        this.useFastMath = useFastMath;
+    }
+
+    /** Spectral flatness of the last frame processed with summaries, NaN otherwise. */
+    public double getFlatness() {
+        return flatness;
+    }
+
+    /** High-frequency ratio of the last frame processed with summaries, NaN otherwise. */
+    public float getHfRatio() {
+        return hfRatio;
+    }
+
+    public float[] getMelEnergies() {
+        return melEnergies;
+    }
+
+    public float[] getLogMelFrame() {
+        return logMelFrame;
+    }
+}
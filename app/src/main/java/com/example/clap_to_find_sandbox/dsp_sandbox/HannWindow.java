@@ -1,12 +1,15 @@
 package com.example.clap_to_find_sandbox.dsp_sandbox;
 
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 
 /**
  * ARCHITECT'S NOTE: Pure Java version.
- * Loads the frozen Hann window from an InputStream.
+ * Loads the frozen Hann window from an InputStream or a DspAssetPack view.
  * Updated to handle cases where window size is smaller than FFT size (zero padding).
  */
 public class HannWindow {
@@ -19,13 +22,25 @@ public class HannWindow {
         loadWindow(is);
     }
 
+    /**
+     * From a mapped pack: one bulk get out of the view, no stream or byte[] in between.
+     */
+    public HannWindow(FloatBuffer coefficients, int winLength) throws Exception {
+        this.winLength = winLength;
+        this.windowCoefficients = new float[winLength];
+        if (coefficients.remaining() != winLength) {
+            throw new Exception("Hann window size mismatch. Expected " + winLength + " floats, got " + coefficients.remaining());
+        }
+        coefficients.duplicate().get(windowCoefficients);
+    }
+
     private void loadWindow(InputStream is) throws Exception {
         byte[] bytes = new byte[winLength * 4];
-        int read = is.read(bytes);
-        is.close();
-
-        if (read != bytes.length) {
-            throw new Exception("Hann window file size mismatch. Expected " + bytes.length + " bytes, read " + read);
+        // readFully: a single read() may legally return fewer bytes
+        try (DataInputStream in = new DataInputStream(is)) {
+            in.readFully(bytes);
+        } catch (EOFException e) {
+            throw new Exception("Hann window file size mismatch. Expected " + bytes.length + " bytes");
         }
 
         ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(windowCoefficients);
@@ -47,4 +62,29 @@ public class HannWindow {
             frame[i] = 0;
         }
     }
+
+    /**
+     * Out-of-place variant: windows src[srcOffset .. srcOffset + WIN_LENGTH) into the
+     * start of dst and zero-pads the rest of dst. The source is left untouched.
+     */
+    public void applyWindow(float[] src, int srcOffset, float[] dst) {
+        if (dst.length < winLength || srcOffset < 0 || srcOffset + winLength > src.length) {
+            throw new IllegalArgumentException("Frame length must be at least window size.");
+        }
+        for (int i = 0; i < winLength; i++) {
+            dst[i] = src[srcOffset + i] * windowCoefficients[i];
+        }
+        for (int i = winLength; i < dst.length; i++) {
+            dst[i] = 0;
+        }
+    }
+
+    public int getWinLength() {
+        return winLength;
+    }
+
+    /** The coefficients themselves (FusedFrontEnd folds them into its FFT packing). Do not modify. */
+    float[] coefficients() {
+        return windowCoefficients;
+    }
 }
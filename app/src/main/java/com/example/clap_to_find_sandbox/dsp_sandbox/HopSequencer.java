@@ -0,0 +1,90 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+/**
+ * ARCHITECT'S NOTE: Capture blocks of any size -> the DetectionPipeline's hop sequence.
+ * The mic is read in blocks of several hops (DspConfig.CAPTURE_BLOCK_SAMPLES); the gate
+ * and scheduler still run once per hop, at the same sample clock as one read per hop:
+ *
+ * - the first N_FFT samples prime the frame, then one analyze() per HOP_LENGTH samples;
+ * - a block ending mid-hop is appended as is and the hop completes with the next block
+ *   (append() is per sample: ring, envelope and int16 history don't see block edges).
+ *
+ * So the probability sequence depends only on the samples, not on how they were cut
+ * (HopSequencerTest). Single-threaded, like the pipeline it drives.
+ */
+public class HopSequencer {
+    public interface HopListener {
+        /** Called after every analyzed hop, with analyze()'s result (NaN if nothing was scored). */
+        void onHop(float probability) throws Exception;
+    }
+
+    private final DetectionPipeline pipeline;
+    private int untilNextHop = DspConfig.N_FFT;
+    private long hops = 0;
+
+    public HopSequencer(DetectionPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Appends a block of 16-bit PCM and analyzes every hop it completes.
+     * @return Number of hops analyzed.
+     */
+    public int accept(short[] pcm, int offset, int length, HopListener listener) throws Exception {
+        int analyzed = 0;
+        while (length > 0) {
+            int take = Math.min(length, untilNextHop);
+            pipeline.append(pcm, offset, take);
+            offset += take;
+            length -= take;
+            if (completeHop(take, listener)) analyzed++;
+        }
+        return analyzed;
+    }
+
+    /**
+     * Same for normalized float samples (ENCODING_PCM_FLOAT, WavReader).
+     */
+    public int accept(float[] samples, int offset, int length, HopListener listener) throws Exception {
+        int analyzed = 0;
+        while (length > 0) {
+            int take = Math.min(length, untilNextHop);
+            pipeline.append(samples, offset, take);
+            offset += take;
+            length -= take;
+            if (completeHop(take, listener)) analyzed++;
+        }
+        return analyzed;
+    }
+
+    private boolean completeHop(int appended, HopListener listener) throws Exception {
+        untilNextHop -= appended;
+        if (untilNextHop > 0) return false;
+        untilNextHop = DspConfig.HOP_LENGTH;
+        hops++;
+        LatencyStats stats = pipeline.getLatencyStats();
+        if (stats == null) {
+            listener.onHop(pipeline.analyze());
+            return true;
+        }
+        // Whole hop: slower than HOP_BUDGET_NANOS means falling behind real time
+        long start = System.nanoTime();
+        listener.onHop(pipeline.analyze());
+        stats.recordHop(pipeline.getSampleClock(), System.nanoTime() - start);
+        return true;
+    }
+
+    /** Hops analyzed so far. */
+    public long getHops() {
+        return hops;
+    }
+
+    /** Samples still missing before the next analyze(). */
+    public int getSamplesUntilNextHop() {
+        return untilNextHop;
+    }
+
+    public DetectionPipeline getPipeline() {
+        return pipeline;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+/**
+ * ARCHITECT'S NOTE: Single source of truth for the hard-gate thresholds.
+ * Shared by the reference {@link ImpulseValidator} and the {@link StreamingImpulseTracker},
+ * so the two can never drift apart. Pure Java (no Android imports).
+ */
+public final class ImpulseCriteria {
+
+    // Thresholds (Synced with Python config.py)
+    public static final float PEAK_THRESHOLD = 0.05f; // Lowered slightly
+    public static final float ATTACK_TIME_MAX_MS = 30.0f; // Relaxed from 20 to 30
+    public static final float DECAY_TIME_MAX_MS = 200.0f; // Relaxed from 120 to 200
+
+    // DISABLED QUALITY CHECKS (Letting YAMNet decide)
+    public static final float RINGING_THRESHOLD = 999.0f;          // DISABLED (Was 0.6f)
+    public static final float SPECTRAL_FLATNESS_THRESHOLD = 0.0f;  // DISABLED (Was 0.05f)
+    public static final float HF_RATIO_THRESHOLD = 0.0f;           // DISABLED (Was 0.5f)
+
+    // Scan extents, in samples
+    public static final int ATTACK_LOOKBACK = (int) (DspConfig.SAMPLE_RATE * 0.05f);  // 50ms
+    public static final int DECAY_LOOKAHEAD = (int) (DspConfig.SAMPLE_RATE * 0.2f);   // 200ms
+    public static final int RINGING_GUARD = (int) (DspConfig.SAMPLE_RATE * 0.01f);    // 10ms
+
+    private ImpulseCriteria() {
+    }
+
+    /**
+     * Spectral Flatness (Geometric Mean / Arithmetic Mean).
+     * Same arithmetic as {@link ImpulseValidator#isImpulse(float[], float[])}.
+     */
+    public static double spectralFlatness(float[] spectrum) {
+        double sumLog = 0;
+        double sum = 0;
+        int nBins = spectrum.length;
+
+        for (float bin : spectrum) {
+            float val = bin + 1e-10f; // Avoid log(0)
+            sumLog += Math.log(val);
+            sum += val;
+        }
+
+        return spectralFlatness(sumLog, sum, nBins);
+    }
+
+    /**
+     * Flatness from running sums over (bin + 1e-10f) in ascending bin order: sum of Math.log, plain sum.
+     * For producers that see the bins once and keep no spectrum (FusedFrontEnd).
+     */
+    public static double spectralFlatness(double sumLog, double sum, int nBins) {
+        double gMean = Math.exp(sumLog / nBins);
+        double aMean = sum / nBins;
+        return gMean / aMean;
+    }
+
+    /**
+     * Fast-math flatness: log2/exp2 via {@link FastMath} instead of Math.log/Math.exp.
+     * Geometric mean is 2^(mean log2), so the relative error stays within
+     * ln(2) * MAX_LOG2_ERROR + MAX_EXP2_REL_ERROR (~3e-6).
+     */
+    public static double spectralFlatnessFast(float[] spectrum) {
+        double sumLog2 = 0;
+        double sum = 0;
+        int nBins = spectrum.length;
+
+        for (float bin : spectrum) {
+            float val = bin + 1e-10f; // Avoid log(0)
+            sumLog2 += FastMath.log2(val);
+            sum += val;
+        }
+
+        return spectralFlatnessFast(sumLog2, sum, nBins);
+    }
+
+    /** Fast-math flatness from running sums (FastMath.log2 instead of Math.log). */
+    public static double spectralFlatnessFast(double sumLog2, double sum, int nBins) {
+        double gMean = FastMath.exp2(sumLog2 / nBins);
+        double aMean = sum / nBins;
+        return gMean / aMean;
+    }
+
+    /**
+     * High Frequency Ratio (2k-8k vs <2k).
+     * Same arithmetic as {@link ImpulseValidator#isImpulse(float[], float[])}.
+     */
+    public static float hfRatio(float[] spectrum) {
+        int idx2k = hfLowEnd(spectrum.length);
+        int idx8k = hfHighEnd(spectrum.length);
+
+        float energyLow = 0;
+        float energyHigh = 0;
+
+        for (int i = 0; i < idx2k; i++) energyLow += spectrum[i] * spectrum[i];
+        for (int i = idx2k; i < idx8k; i++) energyHigh += spectrum[i] * spectrum[i];
+
+        return hfRatio(energyLow, energyHigh);
+    }
+
+    /** HF ratio from float sums of bin^2, ascending order: [0, hfLowEnd) and [hfLowEnd, hfHighEnd). */
+    public static float hfRatio(float energyLow, float energyHigh) {
+        if (energyLow == 0) energyLow = 1e-10f;
+        return energyHigh / energyLow;
+    }
+
+    /** End (exclusive) of the < 2 kHz band, for a spectrum of nBins bins. */
+    public static int hfLowEnd(int nBins) {
+        float binWidth = DspConfig.SAMPLE_RATE / (float) DspConfig.N_FFT;
+        int idx2k = (int) (2000 / binWidth);
+        return idx2k >= nBins ? nBins - 1 : idx2k;
+    }
+
+    /** End (exclusive) of the 2-8 kHz band, for a spectrum of nBins bins. */
+    public static int hfHighEnd(int nBins) {
+        float binWidth = DspConfig.SAMPLE_RATE / (float) DspConfig.N_FFT;
+        int idx8k = (int) (8000 / binWidth);
+        return idx8k >= nBins ? nBins - 1 : idx8k;
+    }
+
+    public static float samplesToMs(int samples) {
+        return (samples / (float) DspConfig.SAMPLE_RATE) * 1000.0f;
+    }
+}
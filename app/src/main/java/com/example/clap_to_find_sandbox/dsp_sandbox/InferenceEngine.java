@@ -0,0 +1,40 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+/**
+ * ARCHITECT'S NOTE: Backend boundary between the detection loop and the model.
+ * ClapDetector owns validation, logging and locking; an engine only turns one
+ * input (or a batch) into the clap-class score. Engines are NOT thread-safe.
+ *
+ * Implementations:
+ * - TfliteInferenceEngine (app): YAMNet on TFLite, thread count + delegate selectable.
+ * - SimulatedInferenceEngine (here): deterministic pure-Java stand-in with a configurable
+ *   cost, so the pipeline can be benchmarked / load-tested on a plain JVM.
+ */
+public interface InferenceEngine {
+
+    /** Clap score for samples[offset .. offset + MODEL_INPUT_SIZE). */
+    float scoreWaveform(float[] samples, int offset) throws Exception;
+
+    /**
+     * Clap score for a flat [time][mels] log-mel patch at patch[offset ..)
+     * (FeatureStacker.patchArray() / modelPatchOffset()). Only valid when {@link #acceptsFeatures()}.
+     */
+    float scorePatch(float[] patch, int offset) throws Exception;
+
+    /**
+     * Scores count windows samples[offsets[i] .. + MODEL_INPUT_SIZE) in one invoke.
+     * Only valid when {@link #supportsBatch()}.
+     */
+    void scoreWaveformBatch(float[] samples, int[] offsets, int count, float[] scores) throws Exception;
+
+    /** true: the model takes the [96][64] log-mel patch; false: the raw 15600-sample waveform. */
+    boolean acceptsFeatures();
+
+    /** false for fixed-batch models: callers score the windows one by one instead. */
+    boolean supportsBatch();
+
+    /** Human-readable backend configuration, for logs and side-by-side reports. */
+    String describe();
+
+    void close();
+}
@@ -0,0 +1,208 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+/**
+ * ARCHITECT'S NOTE: Coalescing scheduler between the hard gate and YAMNet.
+ * One clap passes the gate on 3-5 consecutive hops; without this every hop pays
+ * for a full inference on a window that is 99% identical to the previous one.
+ *
+ * Rules:
+ * 1. The first gate hit opens a group; every hit within horizonSamples of it joins.
+ * 2. The group keeps its STRONGEST peak (absolute sample index).
+ * 3. The group fires once the horizon has closed AND that peak has reached
+ *    peakOffset inside the model window (window = newest windowSize samples).
+ * 4. Hits after the horizon while a group is still waiting open a new group
+ *    (fixed-size queue, no allocation).
+ * 5. Groups due on the same hop fire together, each on its OWN window: the latest-due one
+ *    on the current window, the others on windows ending earlier by how much earlier they
+ *    fell due (at most historySamples back), so every peak sits where it would have alone.
+ *    The caller scores them in one batched invoke. With historySamples = 0 they share the
+ *    current window.
+ *
+ * All times are on the sample clock (samples since the stream started).
+ */
+public class InferenceScheduler {
+    /** Pending groups, and so the largest batch onHop() can fire. */
+    public static final int MAX_GROUPS = 4;
+
+    private final int windowSize;
+    private final int horizonSamples;
+    private final int peakOffset;
+    private final int historySamples;
+
+    // Pending groups, oldest first
+    private final long[] groupStart = new long[MAX_GROUPS];
+    private final long[] groupPeakSample = new long[MAX_GROUPS];
+    private final float[] groupPeakValue = new float[MAX_GROUPS];
+    private int groupCount = 0;
+
+    // Windows fired by the last onHop(), oldest first
+    private final long[] firedWindowEnd = new long[MAX_GROUPS];
+    private final long[] firedPeakSample = new long[MAX_GROUPS];
+    private int firedCount = 0;
+
+    // Stats
+    private long impulseHits = 0;
+    private long inferencesRun = 0;
+    private long inferencesSaved = 0;
+    private int lastPeakPosition = -1;
+    private long lastPeakSample = -1;
+
+    /**
+     * @param windowSize     Model window in samples (15600).
+     * @param horizonSamples Hits within this many samples of a group's first hit are coalesced.
+     * @param peakOffset     Target position of the peak inside the window, in [0, windowSize).
+     */
+    public InferenceScheduler(int windowSize, int horizonSamples, int peakOffset) {
+        this(windowSize, horizonSamples, peakOffset, 0);
+    }
+
+    /**
+     * @param historySamples How far before the current window a held-back group's window may end
+     *                       (the caller keeps windowSize + historySamples samples).
+     */
+    public InferenceScheduler(int windowSize, int horizonSamples, int peakOffset, int historySamples) {
+        if (historySamples < 0) {
+            throw new IllegalArgumentException("History must not be negative.");
+        }
+        if (peakOffset < 0 || peakOffset >= windowSize) {
+            throw new IllegalArgumentException("Peak offset must be inside the window.");
+        }
+        if (horizonSamples < 0 || horizonSamples >= windowSize) {
+            throw new IllegalArgumentException("Horizon must be shorter than the window.");
+        }
+        this.windowSize = windowSize;
+        this.horizonSamples = horizonSamples;
+        this.peakOffset = peakOffset;
+        this.historySamples = historySamples;
+    }
+
+    /**
+     * Call once per hop, after the gate.
+     * @param sampleClock Samples seen so far; the model window is [sampleClock - windowSize, sampleClock).
+     * @param impulse     Gate decision for this hop.
+     * @param peakSample  Absolute sample index of this hop's peak (only read when impulse).
+     * @param peakValue   |peak| of this hop (only read when impulse).
+     * @return true if inference should run now: on getFiredCount() windows, see getFiredWindowEnd().
+     */
+    public boolean onHop(long sampleClock, boolean impulse, long peakSample, float peakValue) {
+        if (impulse) {
+            impulseHits++;
+            addHit(sampleClock, peakSample, peakValue);
+        }
+
+        // Fire every due group, one window each
+        int due = 0;
+        long latestDue = Long.MIN_VALUE;
+        while (due < groupCount && sampleClock >= fireTime(due)) {
+            latestDue = Math.max(latestDue, fireTime(due));
+            due++;
+        }
+        firedCount = 0;
+        if (due == 0) return false;
+
+        for (int i = 0; i < due; i++) {
+            long end = Math.max(sampleClock - (latestDue - fireTime(i)), sampleClock - historySamples);
+            if (firedCount > 0 && firedWindowEnd[firedCount - 1] == end) {
+                // Same window as the previous group: one score covers both
+                firedPeakSample[firedCount - 1] = groupPeakSample[i];
+                continue;
+            }
+            firedWindowEnd[firedCount] = end;
+            firedPeakSample[firedCount] = groupPeakSample[i];
+            firedCount++;
+        }
+
+        lastPeakPosition = getFiredPeakPosition(firedCount - 1);
+        lastPeakSample = firedPeakSample[firedCount - 1];
+        inferencesRun += firedCount;
+        inferencesSaved += due - firedCount;
+        removeGroups(due);
+        return true;
+    }
+
+    private void addHit(long sampleClock, long peakSample, float peakValue) {
+        int last = groupCount - 1;
+        if (last >= 0 && (sampleClock - groupStart[last] <= horizonSamples || groupCount == MAX_GROUPS)) {
+            // Coalesce into the open group (or the newest one if the queue is full)
+            if (peakValue > groupPeakValue[last]) {
+                groupPeakValue[last] = peakValue;
+                groupPeakSample[last] = peakSample;
+            }
+            inferencesSaved++;
+            return;
+        }
+        groupStart[groupCount] = sampleClock;
+        groupPeakSample[groupCount] = peakSample;
+        groupPeakValue[groupCount] = peakValue;
+        groupCount++;
+    }
+
+    private long fireTime(int group) {
+        long horizonClosed = groupStart[group] + horizonSamples;
+        long peakAligned = groupPeakSample[group] + (windowSize - peakOffset);
+        return Math.max(horizonClosed, peakAligned);
+    }
+
+    private void removeGroups(int n) {
+        for (int i = n; i < groupCount; i++) {
+            groupStart[i - n] = groupStart[i];
+            groupPeakSample[i - n] = groupPeakSample[i];
+            groupPeakValue[i - n] = groupPeakValue[i];
+        }
+        groupCount -= n;
+    }
+
+    public void reset() {
+        groupCount = 0;
+        firedCount = 0;
+    }
+
+    public boolean hasPending() {
+        return groupCount > 0;
+    }
+
+    /** Gate hits seen (each would have been one inference without coalescing). */
+    public long getImpulseHits() {
+        return impulseHits;
+    }
+
+    /** Windows scored (a batch of n counts n). */
+    public long getInferencesRun() {
+        return inferencesRun;
+    }
+
+    /** Windows fired by the last onHop() (0 if it returned false). */
+    public int getFiredCount() {
+        return firedCount;
+    }
+
+    /** Sample clock at the end of fired window i (oldest first); the window is [end - windowSize, end). */
+    public long getFiredWindowEnd(int i) {
+        return firedWindowEnd[i];
+    }
+
+    /** Absolute sample index of fired window i's peak. */
+    public long getFiredPeakSample(int i) {
+        return firedPeakSample[i];
+    }
+
+    /** Where fired window i's peak sits inside it (samples). */
+    public int getFiredPeakPosition(int i) {
+        return (int) (firedPeakSample[i] - (firedWindowEnd[i] - windowSize));
+    }
+
+    /** Gate hits that were folded into another inference. */
+    public long getInferencesSaved() {
+        return inferencesSaved;
+    }
+
+    /** Where the peak of the last fired group sat inside its window (samples), -1 before the first. */
+    public int getLastPeakPosition() {
+        return lastPeakPosition;
+    }
+
+    /** Absolute sample index of the last fired group's peak, -1 before the first. */
+    public long getLastPeakSample() {
+        return lastPeakSample;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * ARCHITECT'S NOTE: HDR-style latency histogram for the audio threads, in nanoseconds.
+ *
+ * - Log-linear buckets: every power of two is split into SUB_BUCKETS linear steps, so any
+ *   recorded value is known to within 1 / SUB_BUCKETS (12.5%) from 1 ns up to MAX_NANOS
+ *   (~18 min, larger values are clamped) in 304 counters.
+ * - record() is allocation-free and lock-free: ONE writer thread, ordered writes (lazySet)
+ *   that a reader on any thread can copy at any time. A snapshot taken mid-record may miss
+ *   that one sample, never tear a counter.
+ */
+public class LatencyHistogram {
+    public static final int SUB_BUCKET_BITS = 3;
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    public static final long MAX_NANOS = (1L << 40) - 1;
+
+    // Values under 2 * SUB_BUCKETS get one bucket each, then SUB_BUCKETS per power of two
+    private static final int LINEAR = 2 * SUB_BUCKETS;
+    private static final int TOP_EXPONENT = 63 - Long.numberOfLeadingZeros(MAX_NANOS);
+    public static final int BUCKETS = LINEAR + (TOP_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /** Records one duration. Single writer thread only. */
+    public void record(long nanos) {
+        long v = Math.max(0, Math.min(nanos, MAX_NANOS));
+        int index = bucketOf(v);
+        counts.lazySet(index, counts.get(index) + 1);
+        sum.lazySet(sum.get() + v);
+        if (v > max.get()) max.lazySet(v);
+        count.lazySet(count.get() + 1);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /** Copy of the counters; safe from any thread. */
+    public Snapshot snapshot() {
+        long n = count.get();
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) copy[i] = counts.get(i);
+        return new Snapshot(copy, n, sum.get(), max.get());
+    }
+
+    static int bucketOf(long v) {
+        if (v < LINEAR) return (int) v;
+        int exponent = 63 - Long.numberOfLeadingZeros(v);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return LINEAR + (shift - 1) * SUB_BUCKETS + (int) (v >>> shift) - SUB_BUCKETS;
+    }
+
+    /** Largest value that falls in the bucket. */
+    static long bucketUpperBound(int index) {
+        if (index < LINEAR) return index;
+        int shift = (index - LINEAR) / SUB_BUCKETS + 1;
+        long sub = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /** Frozen view of a histogram. */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMaxNanos() {
+            return max;
+        }
+
+        public double getMeanNanos() {
+            return count == 0 ? 0 : sum / (double) count;
+        }
+
+        /**
+         * Value at or under which `percentile` % of the samples fall, to bucket precision
+         * (upper bound of the bucket, never above the max). 0 when empty.
+         */
+        public long getPercentileNanos(double percentile) {
+            long total = 0;
+            for (long c : counts) total += c;
+            if (total == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(bucketUpperBound(i), max);
+            }
+            return max;
+        }
+
+        /** Samples over the given duration, to bucket precision (buckets entirely above it). */
+        public long countAbove(long nanos) {
+            long above = 0;
+            for (int i = bucketOf(Math.max(0, Math.min(nanos, MAX_NANOS))) + 1; i < counts.length; i++) {
+                above += counts[i];
+            }
+            return above;
+        }
+    }
+}
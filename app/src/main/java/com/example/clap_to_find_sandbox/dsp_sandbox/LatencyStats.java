@@ -0,0 +1,137 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * ARCHITECT'S NOTE: Where the 10 ms hop budget goes. One LatencyHistogram per stage of the
+ * audio hot path, plus the counters that say whether audio was missed:
+ *
+ *     READ_WAIT   capture thread blocked in AudioSource.read()      (per block)
+ *     APPEND      ring + envelope (+ int16 history) append         (per append)
+ *     FRONT_END   FFT / fused pass / log-mel                       (per hop)
+ *     GATE        energy pre-gate, hard gate stages, scheduler     (per hop)
+ *     INFERENCE   cascade + YAMNet / engine                        (per scored candidate)
+ *     CALLBACKS   threshold, ClapPattern, listeners                (per hop)
+ *     HOP         analyze() + callbacks: over HOP_BUDGET_NANOS = slower than real time
+ *
+ * Recording is allocation-free and lock-free (see LatencyHistogram). Each stage has ONE
+ * writer: READ_WAIT the capture thread, everything else the analysis thread. snapshot()
+ * may run on any thread (AudioService.LocalBinder). Inferences per minute are counted on
+ * the sample clock in per-second slots, so they mean "per minute of audio".
+ */
+public class LatencyStats {
+    public enum Stage { READ_WAIT, APPEND, FRONT_END, GATE, INFERENCE, CALLBACKS, HOP }
+
+    /** Real time for one hop. */
+    public static final long HOP_BUDGET_NANOS = 1_000_000_000L * DspConfig.HOP_LENGTH / DspConfig.SAMPLE_RATE;
+
+    private static final int WINDOW_SECONDS = 60;
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+    private final AtomicLong overBudgetHops = new AtomicLong();
+    private final AtomicLong inferences = new AtomicLong();
+    // Inferences per second of audio, last WINDOW_SECONDS; slot = second % WINDOW_SECONDS
+    private final AtomicLongArray perSecond = new AtomicLongArray(WINDOW_SECONDS);
+    private final AtomicLong currentSecond = new AtomicLong();
+
+    public LatencyStats() {
+        for (int i = 0; i < histograms.length; i++) histograms[i] = new LatencyHistogram();
+    }
+
+    public void record(Stage stage, long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * HOP stage, the over-budget count, and the audio clock of the per-minute window.
+     * @param sampleClock Stream position after the hop (DetectionPipeline.getSampleClock()).
+     */
+    public void recordHop(long sampleClock, long nanos) {
+        histograms[Stage.HOP.ordinal()].record(nanos);
+        if (nanos > HOP_BUDGET_NANOS) overBudgetHops.lazySet(overBudgetHops.get() + 1);
+        advance(sampleClock);
+    }
+
+    /** INFERENCE stage, and the per-minute count. */
+    public void recordInference(long sampleClock, long nanos) {
+        histograms[Stage.INFERENCE.ordinal()].record(nanos);
+        int slot = (int) (advance(sampleClock) % WINDOW_SECONDS);
+        perSecond.lazySet(slot, perSecond.get(slot) + 1);
+        inferences.lazySet(inferences.get() + 1);
+    }
+
+    /** Moves the window to the second holding sampleClock; clears the seconds it skips. */
+    private long advance(long sampleClock) {
+        long second = sampleClock / DspConfig.SAMPLE_RATE;
+        long current = currentSecond.get();
+        if (second > current) {
+            for (long s = Math.max(current + 1, second - WINDOW_SECONDS + 1); s <= second; s++) {
+                perSecond.lazySet((int) (s % WINDOW_SECONDS), 0);
+            }
+            currentSecond.lazySet(second);
+            return second;
+        }
+        return current;
+    }
+
+    public Snapshot snapshot() {
+        LatencyHistogram.Snapshot[] stages = new LatencyHistogram.Snapshot[histograms.length];
+        for (int i = 0; i < histograms.length; i++) stages[i] = histograms[i].snapshot();
+        long lastMinute = 0;
+        for (int i = 0; i < WINDOW_SECONDS; i++) lastMinute += perSecond.get(i);
+        return new Snapshot(stages, overBudgetHops.get(), inferences.get(), lastMinute);
+    }
+
+    /** Frozen view of all stages. */
+    public static final class Snapshot {
+        private final LatencyHistogram.Snapshot[] stages;
+        private final long overBudgetHops;
+        private final long inferences;
+        private final long inferencesLastMinute;
+
+        Snapshot(LatencyHistogram.Snapshot[] stages, long overBudgetHops, long inferences, long inferencesLastMinute) {
+            this.stages = stages;
+            this.overBudgetHops = overBudgetHops;
+            this.inferences = inferences;
+            this.inferencesLastMinute = inferencesLastMinute;
+        }
+
+        public LatencyHistogram.Snapshot get(Stage stage) {
+            return stages[stage.ordinal()];
+        }
+
+        /** Hops whose analyze() + callbacks took longer than the audio they cover. */
+        public long getOverBudgetHops() {
+            return overBudgetHops;
+        }
+
+        public long getHops() {
+            return get(Stage.HOP).getCount();
+        }
+
+        public long getInferences() {
+            return inferences;
+        }
+
+        /** Inferences in the last minute of audio (whole seconds, up to the newest hop). */
+        public long getInferencesLastMinute() {
+            return inferencesLastMinute;
+        }
+
+        /** One line per stage: count, mean, p50, p99, max in microseconds; then the counters. */
+        public String describe() {
+            StringBuilder out = new StringBuilder();
+            for (Stage stage : Stage.values()) {
+                LatencyHistogram.Snapshot h = get(stage);
+                out.append(String.format(Locale.ROOT, "%-10s n=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus%n",
+                        stage, h.getCount(), h.getMeanNanos() / 1e3, h.getPercentileNanos(50) / 1e3,
+                        h.getPercentileNanos(99) / 1e3, h.getMaxNanos() / 1e3));
+            }
+            out.append(String.format(Locale.ROOT, "over-budget hops %d / %d, inferences %d (%d in the last minute)",
+                    overBudgetHops, getHops(), inferences, inferencesLastMinute));
+            return out.toString();
+        }
+    }
+}
@@ -9,13 +9,44 @@ import java.util.Arrays;
 public class LogMelExtractor {
     private final float epsilon = 1e-10f;
     private final float logMultiplier = 10.0f;
+    private final boolean useFastMath;
+
+    public LogMelExtractor() {
+        this(false);
+    }
+
+    /**
+     * @param useFastMath Use the table-based {@link FastMath#log10(float)} instead of Math.log10.
+     *                    Error <= 10 * LOG10_2 * MAX_LOG2_ERROR dB, well inside DspConfig.PARITY_TOLERANCE_DB.
+     */
+    public LogMelExtractor(boolean useFastMath) {
+        this.useFastMath = useFastMath;
+    }
 
     public float[] computeLogMel(float[] melEnergies) {
         float[] logMelFeatures = new float[melEnergies.length];
+        computeLogMel(melEnergies, logMelFeatures);
+        return logMelFeatures;
+    }
+
+    /**
+     * Allocation-free variant. logMelFeatures must be at least as long as melEnergies.
+     */
+    public void computeLogMel(float[] melEnergies, float[] logMelFeatures) {
+        if (useFastMath) {
+            for (int i = 0; i < melEnergies.length; i++) {
+                float energy = Math.max(melEnergies[i], epsilon);
+                logMelFeatures[i] = logMultiplier * FastMath.log10(energy);
+            }
+            return;
+        }
         for (int i = 0; i < melEnergies.length; i++) {
             float energy = Math.max(melEnergies[i], epsilon);
             logMelFeatures[i] = logMultiplier * (float) Math.log10(energy);
         }
-        return logMelFeatures;
+    }
+
+    public boolean isFastMath() {
+        return useFastMath;
     }
 }
@@ -0,0 +1,131 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import java.io.DataInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * ARCHITECT'S NOTE: Pure-Java first stage of the detection cascade.
+ * A linear model (logistic regression) over the stacked [64 mels][96 frames]
+ * log-mel patch that FeatureStacker already maintains. It runs on every
+ * scheduled impulse. YAMNet only runs when this score is ambiguous.
+ *
+ * Asset layout (little-endian float32, like the other dsp/*.bin files):
+ *   weights[nMels * nFrames]   -- [mel][time], time 0 = OLDEST frame
+ *   bias
+ *   rejectBelow                -- score < rejectBelow  -> REJECT (skip YAMNet)
+ *   acceptAbove                -- score > acceptAbove  -> ACCEPT (skip YAMNet)
+ *
+ * score = sigmoid(bias + sum(weights * patch)). Cost: 6144 MACs per candidate.
+ * An ACCEPT score goes through the same CONFIDENCE_THRESHOLD as a YAMNet score, so
+ * acceptAbove must be at least CONFIDENCE_THRESHOLD or accepted claps would be dropped.
+ *
+ * DORMANT: no trained weights are bundled, so the app sends every candidate to YAMNet
+ * until dsp/cascade_weights.bin is added.
+ */
+public class LogMelPatchClassifier {
+
+    public enum Decision { REJECT, AMBIGUOUS, ACCEPT }
+
+    private final int nMels;
+    private final int nFrames;
+    // Stored time-major ([time][mel] flat) to match FeatureStacker's patch layout
+    private final float[] weights;
+    private final float bias;
+    private final float rejectBelow;
+    private final float acceptAbove;
+
+    private float lastScore = Float.NaN;
+    private long rejected = 0;
+    private long accepted = 0;
+    private long ambiguous = 0;
+
+    public LogMelPatchClassifier(InputStream is, int nMels, int nFrames) throws Exception {
+        this.nMels = nMels;
+        this.nFrames = nFrames;
+        this.weights = new float[nMels * nFrames];
+
+        byte[] bytes = new byte[(nMels * nFrames + 3) * 4];
+        try (DataInputStream in = new DataInputStream(is)) {
+            in.readFully(bytes);
+            if (in.read() != -1) {
+                throw new Exception("Cascade weights file size mismatch. Expected " + bytes.length + " bytes.");
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        for (int m = 0; m < nMels; m++) {
+            for (int t = 0; t < nFrames; t++) {
+                weights[t * nMels + m] = buffer.getFloat();
+            }
+        }
+        this.bias = buffer.getFloat();
+        this.rejectBelow = buffer.getFloat();
+        this.acceptAbove = buffer.getFloat();
+
+        if (!(rejectBelow <= acceptAbove)) {
+            throw new Exception("Cascade thresholds out of order: " + rejectBelow + " > " + acceptAbove);
+        }
+        if (!(acceptAbove >= DspConfig.CONFIDENCE_THRESHOLD)) {
+            throw new Exception("Cascade acceptAbove " + acceptAbove + " is under the confidence threshold "
+                    + DspConfig.CONFIDENCE_THRESHOLD + ": accepted candidates would be discarded.");
+        }
+    }
+
+    /**
+     * Scores the current patch. An unfilled stacker (still warming up) is AMBIGUOUS.
+     */
+    public Decision classify(FeatureStacker stacker) {
+        if (!stacker.isReady()) {
+            lastScore = Float.NaN;
+            ambiguous++;
+            return Decision.AMBIGUOUS;
+        }
+        lastScore = score(stacker);
+        if (lastScore < rejectBelow) {
+            rejected++;
+            return Decision.REJECT;
+        }
+        if (lastScore > acceptAbove) {
+            accepted++;
+            return Decision.ACCEPT;
+        }
+        ambiguous++;
+        return Decision.AMBIGUOUS;
+    }
+
+    /** Logistic score in [0, 1] for the current patch. */
+    public float score(FeatureStacker stacker) {
+        if (stacker.getNMels() != nMels || stacker.getNFrames() != nFrames) {
+            throw new IllegalArgumentException("Patch size mismatch.");
+        }
+        // Dot product straight over the stacker's flat patch, no copy
+        float[] x = stacker.patchArray();
+        int offset = stacker.patchOffset();
+        float logit = bias;
+        for (int i = 0; i < weights.length; i++) {
+            logit += weights[i] * x[offset + i];
+        }
+        return (float) (1.0 / (1.0 + Math.exp(-logit)));
+    }
+
+    public float getLastScore() {
+        return lastScore;
+    }
+
+    /** Candidates dropped without running YAMNet. */
+    public long getRejectedCount() {
+        return rejected;
+    }
+
+    /** Candidates confirmed without running YAMNet. */
+    public long getAcceptedCount() {
+        return accepted;
+    }
+
+    /** Candidates passed on to YAMNet. */
+    public long getAmbiguousCount() {
+        return ambiguous;
+    }
+}
@@ -1,52 +1,145 @@
 package com.example.clap_to_find_sandbox.dsp_sandbox;
 
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 
 /**
  * ARCHITECT'S NOTE: Pure Java version.
  * Projects 513 FFT power bins onto 64 Mel frequency bins.
+ *
+ * The dense [nMels][nFreqs] matrix in mel_filterbank.bin is compacted at load time
+ * into a banded (CSR-style) layout: each triangular filter keeps only the span
+ * between its first and last non-zero bin. For the 512-point config that is
+ * ~400 weights instead of 64 x 257.
  */
 public class MelFilterbank {
     private final int nMels;
     private final int nFreqs; // 513
-    private final float[][] melMatrix;
+
+    // Banded layout: filter m covers bins [bandStart[m], bandEnd[m]) and its
+    // weights live at weights[weightOffset[m] .. weightOffset[m] + bandEnd[m] - bandStart[m]).
+    private final int[] bandStart;
+    private final int[] bandEnd;
+    private final int[] weightOffset;
+    private float[] weights;
 
     public MelFilterbank(InputStream is, int nMels, int nFreqs) throws Exception {
         this.nMels = nMels;
         this.nFreqs = nFreqs;
-        this.melMatrix = new float[nMels][nFreqs];
+        this.bandStart = new int[nMels];
+        this.bandEnd = new int[nMels];
+        this.weightOffset = new int[nMels];
         loadMatrix(is);
     }
 
+    /**
+     * From a mapped pack: the bands are compacted straight out of the dense view.
+     */
+    public MelFilterbank(FloatBuffer dense, int nMels, int nFreqs) throws Exception {
+        this.nMels = nMels;
+        this.nFreqs = nFreqs;
+        this.bandStart = new int[nMels];
+        this.bandEnd = new int[nMels];
+        this.weightOffset = new int[nMels];
+        if (dense.remaining() != nMels * nFreqs) {
+            throw new Exception("Mel matrix size mismatch.");
+        }
+        compact(dense.slice());
+    }
+
     private void loadMatrix(InputStream is) throws Exception {
         int totalBytes = nMels * nFreqs * 4;
         byte[] bytes = new byte[totalBytes];
-        int read = is.read(bytes);
-        is.close();
-
-        if (read != totalBytes) {
+        // readFully: a single read() may legally return fewer bytes
+        try (DataInputStream in = new DataInputStream(is)) {
+            in.readFully(bytes);
+        } catch (EOFException e) {
             throw new Exception("Mel matrix file size mismatch.");
         }
 
-        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
-        for (int i = 0; i < nMels; i++) {
-            for (int j = 0; j < nFreqs; j++) {
-                melMatrix[i][j] = buffer.getFloat();
+        compact(ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer());
+    }
+
+    private void compact(FloatBuffer dense) {
+        // Pass 1: locate the non-zero band of every filter
+        int nnz = 0;
+        for (int m = 0; m < nMels; m++) {
+            int rowBase = m * nFreqs;
+            int start = 0;
+            int end = 0;
+            for (int f = 0; f < nFreqs; f++) {
+                if (dense.get(rowBase + f) != 0.0f) {
+                    if (end == 0) start = f;
+                    end = f + 1;
+                }
+            }
+            bandStart[m] = start;
+            bandEnd[m] = end;
+            weightOffset[m] = nnz;
+            nnz += end - start;
+        }
+
+        // Pass 2: pack the bands (interior zeros are kept so each band stays contiguous)
+        weights = new float[nnz];
+        for (int m = 0; m < nMels; m++) {
+            int rowBase = m * nFreqs;
+            for (int f = bandStart[m]; f < bandEnd[m]; f++) {
+                weights[weightOffset[m] + f - bandStart[m]] = dense.get(rowBase + f);
             }
         }
     }
 
     public float[] applyFilterbank(float[] powerSpectrum) {
         float[] melEnergies = new float[nMels];
+        applyFilterbank(powerSpectrum, melEnergies);
+        return melEnergies;
+    }
+
+    /**
+     * Allocation-free variant. Writes nMels energies into melEnergies.
+     * Only the non-zero band of each filter is visited; for finite spectra the
+     * skipped terms are exact zeros, so the result matches the dense product.
+     */
+    public void applyFilterbank(float[] powerSpectrum, float[] melEnergies) {
         for (int m = 0; m < nMels; m++) {
             float sum = 0.0f;
-            for (int f = 0; f < nFreqs; f++) {
-                sum += powerSpectrum[f] * melMatrix[m][f];
+            int w = weightOffset[m];
+            for (int f = bandStart[m]; f < bandEnd[m]; f++) {
+                sum += powerSpectrum[f] * weights[w++];
             }
             melEnergies[m] = sum;
         }
-        return melEnergies;
     }
-}
\ No newline at end of file
+
+    /** First bin of filter m's non-zero band. */
+    int bandStart(int m) {
+        return bandStart[m];
+    }
+
+    /** One past the last bin of filter m's non-zero band. */
+    int bandEnd(int m) {
+        return bandEnd[m];
+    }
+
+    /** Weight of bin f in filter m, f inside [bandStart(m), bandEnd(m)). */
+    float bandWeight(int m, int f) {
+        return weights[weightOffset[m] + f - bandStart[m]];
+    }
+
+    public int getNMels() {
+        return nMels;
+    }
+
+    public int getNFreqs() {
+        return nFreqs;
+    }
+
+    /** Total number of stored weights across all bands. */
+    public int getBandedWeightCount() {
+        return weights.length;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import java.util.Arrays;
+
+/**
+ * ARCHITECT'S NOTE: Mirrored (double-written) circular buffer.
+ * Every value is written twice, at slot p and p + capacity, so the last
+ * `capacity` values are ALWAYS one contiguous region of the backing array:
+ *
+ *     array()[offset() .. offset() + capacity)   (index 0 = OLDEST)
+ *
+ * Appending n values costs O(n); nothing is ever shifted.
+ * Works for raw samples (YAMNet window) and for fixed-width frames
+ * (append nMels values per frame with capacity = nFrames * nMels).
+ * Single writer; readers on the same thread.
+ */
+public class MirroredRingBuffer {
+    private final int capacity;
+    private final float[] data;
+    private int writePos = 0;
+    private long totalWritten = 0;
+
+    public MirroredRingBuffer(int capacity) {
+        this(capacity, 0.0f);
+    }
+
+    public MirroredRingBuffer(int capacity, float fillValue) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        this.capacity = capacity;
+        this.data = new float[capacity * 2];
+        Arrays.fill(data, fillValue);
+    }
+
+    public void append(float value) {
+        data[writePos] = value;
+        data[writePos + capacity] = value;
+        writePos++;
+        if (writePos == capacity) writePos = 0;
+        totalWritten++;
+    }
+
+    public void append(float[] src, int offset, int length) {
+        if (length > capacity) {
+            for (int i = 0; i < length; i++) {
+                append(src[offset + i]);
+            }
+            return;
+        }
+        // Bulk path: at most two runs, each copied into both halves
+        int first = Math.min(length, capacity - writePos);
+        System.arraycopy(src, offset, data, writePos, first);
+        System.arraycopy(src, offset, data, writePos + capacity, first);
+        int rest = length - first;
+        if (rest > 0) {
+            System.arraycopy(src, offset + first, data, 0, rest);
+            System.arraycopy(src, offset + first, data, capacity, rest);
+        }
+        writePos += length;
+        if (writePos >= capacity) writePos -= capacity;
+        totalWritten += length;
+    }
+
+    /**
+     * Appends 16-bit PCM normalized exactly like the rest of the pipeline (PCM / 32768.0f).
+     */
+    public void appendPcm16(short[] src, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            append(src[offset + i] / 32768.0f);
+        }
+    }
+
+    /** Backing array. Only read inside [offset(), offset() + capacity). */
+    public float[] array() {
+        return data;
+    }
+
+    /** Start of the chronological window (oldest value). */
+    public int offset() {
+        return writePos;
+    }
+
+    /** Start of the newest {@code n} values, contiguous up to the newest value. */
+    public int latestOffset(int n) {
+        if (n < 0 || n > capacity) {
+            throw new IllegalArgumentException("Requested " + n + " values from a ring of " + capacity);
+        }
+        return writePos + capacity - n;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /** Number of values appended since creation (also the sample clock for PCM rings). */
+    public long totalWritten() {
+        return totalWritten;
+    }
+
+    public boolean isFull() {
+        return totalWritten >= capacity;
+    }
+}
@@ -19,20 +19,20 @@ public class Parity_Validator {
     private final LogMelExtractor logMelExtractor;
 
     public Parity_Validator(InputStream hannStream, InputStream melStream) throws Exception {
-        int nFft = 1024;
-        int nMels = 64;
+        int nFft = DspConfig.N_FFT;
+        int nMels = DspConfig.N_MELS;
         int nFreqs = nFft / 2 + 1;
 
-        this.hannWindow = new HannWindow(hannStream, nFft);
+        this.hannWindow = new HannWindow(hannStream, DspConfig.WIN_LENGTH);
         this.fftProcessor = new FFTProcessor(nFft);
         this.melFilterbank = new MelFilterbank(melStream, nMels, nFreqs);
         this.logMelExtractor = new LogMelExtractor();
     }
 
     public void runParityTest(float[] wavData, String outputCsvPath) {
-        int nFft = 1024;
-        int hop = 256;
-        int nMels = 64;
+        int nFft = DspConfig.N_FFT;
+        int hop = DspConfig.HOP_LENGTH;
+        int nMels = DspConfig.N_MELS;
         int targetFrames = 40;
 
         FeatureStacker stacker = new FeatureStacker(nMels, targetFrames);
@@ -41,30 +41,64 @@ public class Parity_Validator {
         for (int i = 0; i < availableFrames; i++) {
             float[] frame = new float[nFft];
             System.arraycopy(wavData, i * hop, frame, 0, nFft);
+            processFrame(frame, i == 0, stacker);
+        }
 
-            // STAGE 0: Hann
-            hannWindow.applyWindow(frame);
-            if (i == 0) dumpStage("Stage 0: Hann (First Frame)", frame);
+        float[][] result = stacker.getOrderedMatrix();
+        saveCsv(result, nMels, targetFrames, outputCsvPath);
+    }
 
-            // STAGE 1: Power Spectrum
-            float[] power = fftProcessor.getPowerSpectrum(frame);
-            if (i == 0) dumpStage("Stage 1: Power Spectrum (First Frame)", power);
+    /**
+     * Streaming variant: the WAV is read one hop at a time, so memory stays constant
+     * whatever the file length. Same frames as the array version (trailing partial hop dropped).
+     */
+    public void runParityTest(WavReader wav, String outputCsvPath) throws Exception {
+        int nFft = DspConfig.N_FFT;
+        int hop = DspConfig.HOP_LENGTH;
+        int nMels = DspConfig.N_MELS;
+        int targetFrames = 40;
 
-            // STAGE 2: Mel
-            float[] mels = melFilterbank.applyFilterbank(power);
-            if (i == 0) dumpStage("Stage 2: Mel Filterbank (First Frame)", mels);
+        FeatureStacker stacker = new FeatureStacker(nMels, targetFrames);
+        MirroredRingBuffer window = new MirroredRingBuffer(nFft);
+        float[] block = new float[nFft];
 
-            // STAGE 3: Log-Mel
-            float[] logMels = logMelExtractor.computeLogMel(mels);
-            if (i == 0) dumpStage("Stage 3: Log-Mel (First Frame)", logMels);
+        if (!wav.readFully(block, 0, nFft)) {
+            throw new Exception("WAV shorter than one frame: " + wav.getSampleCount() + " samples");
+        }
+        window.append(block, 0, nFft);
+        for (int i = 0; ; i++) {
+            float[] frame = new float[nFft];
+            System.arraycopy(window.array(), window.offset(), frame, 0, nFft);
+            processFrame(frame, i == 0, stacker);
 
-            stacker.addFrame(logMels);
+            if (!wav.readFully(block, 0, hop)) break;
+            window.append(block, 0, hop);
         }
 
         float[][] result = stacker.getOrderedMatrix();
         saveCsv(result, nMels, targetFrames, outputCsvPath);
     }
 
+    private void processFrame(float[] frame, boolean dump, FeatureStacker stacker) {
+        // STAGE 0: Hann
+        hannWindow.applyWindow(frame);
+        if (dump) dumpStage("Stage 0: Hann (First Frame)", frame);
+
+        // STAGE 1: Power Spectrum
+        float[] power = fftProcessor.getPowerSpectrum(frame);
+        if (dump) dumpStage("Stage 1: Power Spectrum (First Frame)", power);
+
+        // STAGE 2: Mel
+        float[] mels = melFilterbank.applyFilterbank(power);
+        if (dump) dumpStage("Stage 2: Mel Filterbank (First Frame)", mels);
+
+        // STAGE 3: Log-Mel
+        float[] logMels = logMelExtractor.computeLogMel(mels);
+        if (dump) dumpStage("Stage 3: Log-Mel (First Frame)", logMels);
+
+        stacker.addFrame(logMels);
+    }
+
     private void dumpStage(String label, float[] data) {
         System.out.println("--- " + label + " ---");
         System.out.println("Size: " + data.length);
@@ -0,0 +1,128 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import java.nio.ShortBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ARCHITECT'S NOTE: Lock-free single-producer / single-consumer PCM ring.
+ * The capture thread writes, the analysis worker reads. No locks, no allocation
+ * after construction. Indices only grow; the slot is index & mask.
+ *
+ * Overrun policy: the producer never overwrites unread samples. If the consumer
+ * falls behind and the ring is full, the new block is dropped and counted.
+ */
+public class PcmRingBuffer {
+    private final short[] data;
+    private final int capacity;
+    private final int mask;
+
+    // Producer-owned index, published with lazySet (ordered store)
+    private final AtomicLong writeIndex = new AtomicLong();
+    // Consumer-owned index, published with lazySet
+    private final AtomicLong readIndex = new AtomicLong();
+
+    // Written by the producer only
+    private final AtomicLong overrunEvents = new AtomicLong();
+    private final AtomicLong droppedSamples = new AtomicLong();
+
+    /**
+     * @param capacity Rounded up to a power of two.
+     */
+    public PcmRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.data = new short[size];
+        this.capacity = size;
+        this.mask = size - 1;
+    }
+
+    // ---- Producer side ----
+
+    /**
+     * Writes the whole block, or drops it (and counts an overrun) if it does not fit.
+     * @return true if written.
+     */
+    public boolean write(short[] src, int offset, int length) {
+        long w = writeIndex.get();
+        long free = capacity - (w - readIndex.get());
+        if (length > free) {
+            overrunEvents.lazySet(overrunEvents.get() + 1);
+            droppedSamples.lazySet(droppedSamples.get() + length);
+            return false;
+        }
+        int slot = (int) (w & mask);
+        int first = Math.min(length, capacity - slot);
+        System.arraycopy(src, offset, data, slot, first);
+        if (first < length) {
+            System.arraycopy(src, offset + first, data, 0, length - first);
+        }
+        writeIndex.lazySet(w + length);
+        return true;
+    }
+
+    /**
+     * Same, from src's position to its limit (e.g. a view of AudioRecord's direct ByteBuffer),
+     * copied straight into the ring. The position advances only if the block was written.
+     */
+    public boolean write(ShortBuffer src) {
+        int length = src.remaining();
+        long w = writeIndex.get();
+        long free = capacity - (w - readIndex.get());
+        if (length > free) {
+            overrunEvents.lazySet(overrunEvents.get() + 1);
+            droppedSamples.lazySet(droppedSamples.get() + length);
+            return false;
+        }
+        int slot = (int) (w & mask);
+        int first = Math.min(length, capacity - slot);
+        src.get(data, slot, first);
+        if (first < length) {
+            src.get(data, 0, length - first);
+        }
+        writeIndex.lazySet(w + length);
+        return true;
+    }
+
+    // ---- Consumer side ----
+
+    public int available() {
+        return (int) (writeIndex.get() - readIndex.get());
+    }
+
+    /**
+     * Reads up to length samples.
+     * @return Number of samples read (0 if empty).
+     */
+    public int read(short[] dst, int offset, int length) {
+        long r = readIndex.get();
+        int n = (int) Math.min(length, writeIndex.get() - r);
+        if (n <= 0) return 0;
+        int slot = (int) (r & mask);
+        int first = Math.min(n, capacity - slot);
+        System.arraycopy(data, slot, dst, offset, first);
+        if (first < n) {
+            System.arraycopy(data, 0, dst, offset + first, n - first);
+        }
+        readIndex.lazySet(r + n);
+        return n;
+    }
+
+    // ---- Stats (any thread) ----
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /** Number of blocks dropped because the consumer was behind. */
+    public long getOverrunEvents() {
+        return overrunEvents.get();
+    }
+
+    public long getDroppedSamples() {
+        return droppedSamples.get();
+    }
+
+    /** Total samples accepted since creation. */
+    public long getWrittenSamples() {
+        return writeIndex.get();
+    }
+}
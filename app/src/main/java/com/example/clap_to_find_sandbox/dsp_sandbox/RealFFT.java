@@ -0,0 +1,346 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+/**
+ * ARCHITECT'S NOTE: Fixed-size real FFT, specialized for our front end.
+ * Power-of-two N only; everything size-dependent is planned once in the constructor.
+ *
+ * 1. The N real samples are packed as N/2 complex points z[n] = x[2n] + i x[2n+1].
+ * 2. Radix-2^2 decimation-in-frequency FFT of size N/2 on split re/im arrays: each pass
+ *    does two radix-2 stages (radix-4 butterflies, half the passes over the data), natural
+ *    order in, bit-reversed order out. The first pass is fused with the packing and pruned:
+ *    frames are known to be zero beyond nonZeroLength (400-sample Hann window in a
+ *    512-point frame), so 56 of its 64 butterflies have a zero fourth input.
+ * 3. Split step: the N/2 + 1 real-input bins are recovered from Z[k] and Z[N/2 - k],
+ *    read straight through the bit-reversal table (no permutation pass), and written
+ *    as |X[k]|^2 / N^2 into the caller's buffer. Same scaling as FFTProcessor.
+ *
+ * FusedFrontEnd drives the same passes with the window folded into the packing
+ * (transform()) and reads the bins one at a time, in order (*BinPower()).
+ *
+ * Results match JTransforms to float rounding (see RealFFTTest), not bit for bit.
+ * Owns scratch: one instance per stream, not thread safe.
+ */
+public class RealFFT {
+    private final int n;
+    private final int half;            // complex points, N/2
+    private final int nonZeroPairs;    // z[n] is zero from here on
+    private final float[] cos;         // cos(2 pi k / N), k in [0, N)
+    private final float[] sin;         // sin(2 pi k / N)
+    private final int[] bitReverse;    // over log2(N/2) bits
+    private final float scale;         // 1 / N^2, with the split step's two 1/2 factors folded in
+    private final float[] unitWindow;  // 1.0f over [0, 2 * nonZeroPairs): frames that arrive windowed
+
+    private final float[] re;
+    private final float[] im;
+
+    public RealFFT(int n) {
+        this(n, n);
+    }
+
+    /**
+     * @param n             FFT size, power of two, at least 8.
+     * @param nonZeroLength Frames passed in are zero from this index on (e.g. WIN_LENGTH).
+     */
+    public RealFFT(int n, int nonZeroLength) {
+        if (n < 8 || Integer.bitCount(n) != 1) {
+            throw new IllegalArgumentException("FFT size must be a power of two >= 8, got " + n);
+        }
+        if (nonZeroLength < 0 || nonZeroLength > n) {
+            throw new IllegalArgumentException("Non-zero length must be in [0, " + n + "], got " + nonZeroLength);
+        }
+        this.n = n;
+        this.half = n / 2;
+        this.nonZeroPairs = (nonZeroLength + 1) / 2;
+
+        // Radix-4 butterflies need W^{3j}, up to index 3N/4
+        this.cos = new float[n];
+        this.sin = new float[n];
+        for (int k = 0; k < n; k++) {
+            double angle = 2.0 * Math.PI * k / n;
+            cos[k] = (float) Math.cos(angle);
+            sin[k] = (float) Math.sin(angle);
+        }
+
+        int bits = Integer.numberOfTrailingZeros(half);
+        this.bitReverse = new int[half];
+        for (int k = 0; k < half; k++) {
+            bitReverse[k] = Integer.reverse(k) >>> (32 - bits);
+        }
+
+        this.scale = 0.25f / ((float) n * n);
+        this.unitWindow = new float[2 * nonZeroPairs];
+        java.util.Arrays.fill(unitWindow, 1.0f);
+        this.re = new float[half];
+        this.im = new float[half];
+    }
+
+    /**
+     * @param frame         n samples; only [0, nonZeroLength) is read, the rest must be zero.
+     * @param powerSpectrum Destination, n/2 + 1 bins.
+     */
+    public void powerSpectrum(float[] frame, float[] powerSpectrum) {
+        if (frame.length < n) {
+            throw new IllegalArgumentException("Frame must be " + n + " samples.");
+        }
+        if (powerSpectrum.length < half + 1) {
+            throw new IllegalArgumentException("Power spectrum must be " + (half + 1) + " bins.");
+        }
+        transform(frame, 0, unitWindow);
+        split(powerSpectrum);
+    }
+
+    /**
+     * Packs x[offset + i] * window[i] and runs every FFT pass; the bins are then read
+     * with the *BinPower() methods. window must cover [0, 2 * ceil(nonZeroLength / 2)), x[offset ..]
+     * as many samples. x * 1.0f is exact, so the unit window reproduces powerSpectrum().
+     */
+    void transform(float[] x, int offset, float[] window) {
+        packFirstStage(x, offset, window);
+        butterflies();
+    }
+
+    // Pack (windowed) + first radix-2^2 pass (quarter span N/8)
+    private void packFirstStage(float[] x, int o, float[] w) {
+        final float[] re = this.re;
+        final float[] im = this.im;
+        int q = half / 4;
+        int step = n / (4 * q);
+        // z[j + 3q] is non-zero only below this j
+        int full = Math.max(0, Math.min(q, nonZeroPairs - 3 * q));
+        for (int j = 0; j < q; j++) {
+            int a0 = j, a1 = j + q, a2 = a1 + q, a3 = a2 + q;
+            float t0r, t0i, t1r, t1i, t2r, t2i, t3r, t3i;
+            if (j < full) {
+                float x0r = x[o + 2 * a0] * w[2 * a0], x0i = x[o + 2 * a0 + 1] * w[2 * a0 + 1];
+                float x2r = x[o + 2 * a2] * w[2 * a2], x2i = x[o + 2 * a2 + 1] * w[2 * a2 + 1];
+                float x1r = x[o + 2 * a1] * w[2 * a1], x1i = x[o + 2 * a1 + 1] * w[2 * a1 + 1];
+                float x3r = x[o + 2 * a3] * w[2 * a3], x3i = x[o + 2 * a3 + 1] * w[2 * a3 + 1];
+                t0r = x0r + x2r; t0i = x0i + x2i;
+                t1r = x0r - x2r; t1i = x0i - x2i;
+                t2r = x1r + x3r; t2i = x1i + x3i;
+                t3r = x1r - x3r; t3i = x1i - x3i;
+            } else if (a2 < nonZeroPairs) {
+                // Zero fourth input: the common case for a 400-in-512 frame
+                float x0r = x[o + 2 * a0] * w[2 * a0], x0i = x[o + 2 * a0 + 1] * w[2 * a0 + 1];
+                float x2r = x[o + 2 * a2] * w[2 * a2], x2i = x[o + 2 * a2 + 1] * w[2 * a2 + 1];
+                t0r = x0r + x2r; t0i = x0i + x2i;
+                t1r = x0r - x2r; t1i = x0i - x2i;
+                t2r = t3r = x[o + 2 * a1] * w[2 * a1];
+                t2i = t3i = x[o + 2 * a1 + 1] * w[2 * a1 + 1];
+            } else {
+                float x0r = pair(x, o, w, a0, 0), x0i = pair(x, o, w, a0, 1);
+                float x2r = pair(x, o, w, a2, 0), x2i = pair(x, o, w, a2, 1);
+                float x1r = pair(x, o, w, a1, 0), x1i = pair(x, o, w, a1, 1);
+                t0r = x0r + x2r; t0i = x0i + x2i;
+                t1r = x0r - x2r; t1i = x0i - x2i;
+                t2r = t3r = x1r;
+                t2i = t3i = x1i;
+            }
+
+            int t = j * step;
+            re[a0] = t0r + t2r;
+            im[a0] = t0i + t2i;
+            float yr = t0r - t2r, yi = t0i - t2i;
+            float c = cos[2 * t], s = sin[2 * t];
+            re[a1] = yr * c + yi * s;
+            im[a1] = yi * c - yr * s;
+            yr = t1r + t3i;
+            yi = t1i - t3r;
+            c = cos[t];
+            s = sin[t];
+            re[a2] = yr * c + yi * s;
+            im[a2] = yi * c - yr * s;
+            yr = t1r - t3i;
+            yi = t1i + t3r;
+            c = cos[3 * t];
+            s = sin[3 * t];
+            re[a3] = yr * c + yi * s;
+            im[a3] = yi * c - yr * s;
+        }
+    }
+
+    private float pair(float[] x, int o, float[] w, int index, int part) {
+        int i = 2 * index + part;
+        return index < nonZeroPairs ? x[o + i] * w[i] : 0f;
+    }
+
+    /*
+     * Remaining radix-2^2 passes; a last radix-2 stage if log2(N/2) is odd.
+     * One radix-2^2 butterfly = two DIF radix-2 stages on z[a + {0, q, 2q, 3q}], written back
+     * so the output stays in plain bit-reversed order:
+     *   [a]      = t0 + t2
+     *   [a + q]  = (t0 - t2) W^2j
+     *   [a + 2q] = (t1 - i t3) W^j
+     *   [a + 3q] = (t1 + i t3) W^3j
+     * with t0 = x0 + x2, t1 = x0 - x2, t2 = x1 + x3, t3 = x1 - x3, and
+     * (xr + i xi)(c - i s) = (xr c + xi s) + i (xi c - xr s) for each twiddle.
+     */
+    private void butterflies() {
+        final float[] re = this.re;
+        final float[] im = this.im;
+        int q = half / 16;
+        for (; q >= 1; q /= 4) {
+            // j = 0: W^0 = 1, no multiplies (this is the whole last pass when q == 1)
+            unitTwiddleQuads(q);
+
+            int step = n / (4 * q);
+            for (int j = 1; j < q; j++) {
+                int t = j * step;
+                float c1 = cos[t], s1 = sin[t];
+                float c2 = cos[2 * t], s2 = sin[2 * t];
+                float c3 = cos[3 * t], s3 = sin[3 * t];
+                for (int a0 = j; a0 < half; a0 += 4 * q) {
+                    int a1 = a0 + q, a2 = a1 + q, a3 = a2 + q;
+                    float t0r = re[a0] + re[a2], t0i = im[a0] + im[a2];
+                    float t1r = re[a0] - re[a2], t1i = im[a0] - im[a2];
+                    float t2r = re[a1] + re[a3], t2i = im[a1] + im[a3];
+                    float t3r = re[a1] - re[a3], t3i = im[a1] - im[a3];
+
+                    re[a0] = t0r + t2r;
+                    im[a0] = t0i + t2i;
+                    float yr = t0r - t2r, yi = t0i - t2i;
+                    re[a1] = yr * c2 + yi * s2;
+                    im[a1] = yi * c2 - yr * s2;
+                    yr = t1r + t3i;
+                    yi = t1i - t3r;
+                    re[a2] = yr * c1 + yi * s1;
+                    im[a2] = yi * c1 - yr * s1;
+                    yr = t1r - t3i;
+                    yi = t1i + t3r;
+                    re[a3] = yr * c3 + yi * s3;
+                    im[a3] = yi * c3 - yr * s3;
+                }
+            }
+        }
+        if (Integer.numberOfTrailingZeros(half) % 2 == 1) {
+            // log2(N/2) odd: one radix-2 stage left
+            for (int a = 0; a < half; a += 2) {
+                float tr = re[a] - re[a + 1];
+                float ti = im[a] - im[a + 1];
+                re[a] += re[a + 1];
+                im[a] += im[a + 1];
+                re[a + 1] = tr;
+                im[a + 1] = ti;
+            }
+        }
+    }
+
+    private void unitTwiddleQuads(int q) {
+        final float[] re = this.re;
+        final float[] im = this.im;
+        for (int a0 = 0; a0 < half; a0 += 4 * q) {
+            int a1 = a0 + q, a2 = a1 + q, a3 = a2 + q;
+            float t0r = re[a0] + re[a2], t0i = im[a0] + im[a2];
+            float t1r = re[a0] - re[a2], t1i = im[a0] - im[a2];
+            float t2r = re[a1] + re[a3], t2i = im[a1] + im[a3];
+            float t3r = re[a1] - re[a3], t3i = im[a1] - im[a3];
+            re[a0] = t0r + t2r;
+            im[a0] = t0i + t2i;
+            re[a1] = t0r - t2r;
+            im[a1] = t0i - t2i;
+            re[a2] = t1r + t3i;
+            im[a2] = t1i - t3r;
+            re[a3] = t1r - t3i;
+            im[a3] = t1i + t3r;
+        }
+    }
+
+    // X[k] = Fe + W_N^k Fo, X[N/2 - k] = conj(Fe - W_N^k Fo); Fe, Fo from Z[k] and conj(Z[N/2 - k])
+    private void split(float[] power) {
+        float z0r = re[0];
+        float z0i = im[0];
+        // DC and Nyquist are real; 4x because scale carries the two 1/2 factors
+        power[0] = 4 * (z0r + z0i) * (z0r + z0i) * scale;
+        power[half] = 4 * (z0r - z0i) * (z0r - z0i) * scale;
+
+        for (int k = 1; k <= half / 2; k++) {
+            int p = bitReverse[k];
+            int q = bitReverse[half - k];
+            float zkr = re[p];
+            float zki = im[p];
+            float zmr = re[q];
+            float zmi = im[q];
+
+            // 2 * Fe and 2 * Fo
+            float er = zkr + zmr;
+            float ei = zki - zmi;
+            float or = zki + zmi;
+            float oi = zmr - zkr;
+
+            // W_N^k * 2Fo, W_N^k = cos - i sin
+            float c = cos[k];
+            float s = sin[k];
+            float tr = or * c + oi * s;
+            float ti = oi * c - or * s;
+
+            float xr = er + tr;
+            float xi = ei + ti;
+            power[k] = (xr * xr + xi * xi) * scale;
+            float yr = er - tr;
+            float yi = ei - ti;
+            power[half - k] = (yr * yr + yi * yi) * scale;
+        }
+    }
+
+    /*
+     * Bins of the last transform(), one at a time in ascending order, with split()'s arithmetic
+     * (so bit-identical to powerSpectrum()). Each call redoes the Fe / Fo combination split()
+     * shares between k and N/2 - k: a few flops per bin, in exchange for no spectrum array.
+     *   edgeBinPower(k)   k = 0 or N/2
+     *   lowerBinPower(k)  0 < k < N/4          (split()'s X[k])
+     *   upperBinPower(k)  N/4 <= k < N/2       (split()'s X[N/2 - k'], k' = N/2 - k; the middle bin
+     *                                           takes split()'s second write)
+     */
+    float edgeBinPower(int k) {
+        float z0r = re[0];
+        float z0i = im[0];
+        float d = k == 0 ? z0r + z0i : z0r - z0i;
+        return 4 * d * d * scale;
+    }
+
+    float lowerBinPower(int k) {
+        int p = bitReverse[k];
+        int q = bitReverse[half - k];
+        float zkr = re[p];
+        float zki = im[p];
+        float zmr = re[q];
+        float zmi = im[q];
+        float er = zkr + zmr;
+        float ei = zki - zmi;
+        float or = zki + zmi;
+        float oi = zmr - zkr;
+        float c = cos[k];
+        float s = sin[k];
+        float xr = er + (or * c + oi * s);
+        float xi = ei + (oi * c - or * s);
+        return (xr * xr + xi * xi) * scale;
+    }
+
+    float upperBinPower(int k) {
+        int j = half - k;
+        int p = bitReverse[j];
+        int q = bitReverse[k];
+        float zkr = re[p];
+        float zki = im[p];
+        float zmr = re[q];
+        float zmi = im[q];
+        float er = zkr + zmr;
+        float ei = zki - zmi;
+        float or = zki + zmi;
+        float oi = zmr - zkr;
+        float c = cos[j];
+        float s = sin[j];
+        float yr = er - (or * c + oi * s);
+        float yi = ei - (oi * c - or * s);
+        return (yr * yr + yi * yi) * scale;
+    }
+
+    /** Window length transform() reads: nonZeroLength rounded up to a whole complex pair. */
+    int getPackedLength() {
+        return 2 * nonZeroPairs;
+    }
+
+    public int getSize() {
+        return n;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+/**
+ * ARCHITECT'S NOTE: Deterministic pure-Java stand-in for the YAMNet backend.
+ * No Android, no TFLite: lets the detection loop run (and be timed) on a plain JVM.
+ *
+ * Score: the same input always gives the same score.
+ *   Waveform: min(1, peak |x| in the window / FULL_SCORE_PEAK).
+ *   Patch:    loudest log-mel bin mapped linearly from SILENCE_DB (0) to FULL_SCORE_DB (1).
+ * Cost: each invoke busy-spins for costNanos (a CPU-bound backend occupies the calling
+ *   thread, it does not sleep). A batch of n costs costNanos * (1 + BATCH_MARGINAL_COST * (n - 1)).
+ */
+public class SimulatedInferenceEngine implements InferenceEngine {
+    public static final float FULL_SCORE_PEAK = 0.5f;
+    public static final float SILENCE_DB = -100.0f;
+    public static final float FULL_SCORE_DB = 0.0f;
+    public static final float BATCH_MARGINAL_COST = 0.35f;
+
+    private final long costNanos;
+    private final boolean featuresIn;
+    private final boolean batch;
+    private final int patchSize = DspConfig.TIME_FRAMES * DspConfig.N_MELS;
+
+    private long invocations = 0;
+    private long spentNanos = 0;
+
+    /** Waveform-in, no batching. */
+    public SimulatedInferenceEngine(long costNanos) {
+        this(costNanos, false, false);
+    }
+
+    /** No batching (a fixed-batch model). */
+    public SimulatedInferenceEngine(long costNanos, boolean featuresIn) {
+        this(costNanos, featuresIn, false);
+    }
+
+    public SimulatedInferenceEngine(long costNanos, boolean featuresIn, boolean batch) {
+        if (costNanos < 0) {
+            throw new IllegalArgumentException("Cost must not be negative.");
+        }
+        if (featuresIn && batch) {
+            throw new IllegalArgumentException("Batching is only defined for waveform input.");
+        }
+        this.costNanos = costNanos;
+        this.featuresIn = featuresIn;
+        this.batch = batch;
+    }
+
+    @Override
+    public float scoreWaveform(float[] samples, int offset) {
+        requireWaveform();
+        spin(costNanos);
+        return waveformScore(samples, offset);
+    }
+
+    @Override
+    public float scorePatch(float[] patch, int offset) {
+        if (!featuresIn) {
+            throw new IllegalStateException("Waveform engine cannot score a log-mel patch.");
+        }
+        spin(costNanos);
+        float max = SILENCE_DB;
+        for (int i = 0; i < patchSize; i++) {
+            max = Math.max(max, patch[offset + i]);
+        }
+        float score = (max - SILENCE_DB) / (FULL_SCORE_DB - SILENCE_DB);
+        return Math.max(0.0f, Math.min(1.0f, score));
+    }
+
+    @Override
+    public void scoreWaveformBatch(float[] samples, int[] offsets, int count, float[] scores) {
+        if (!batch) {
+            throw new IllegalStateException("Engine was created without batch support.");
+        }
+        spin((long) (costNanos * (1.0 + BATCH_MARGINAL_COST * (count - 1))));
+        for (int i = 0; i < count; i++) {
+            scores[i] = waveformScore(samples, offsets[i]);
+        }
+    }
+
+    private float waveformScore(float[] samples, int offset) {
+        float peak = 0.0f;
+        for (int i = 0; i < DspConfig.MODEL_INPUT_SIZE; i++) {
+            peak = Math.max(peak, Math.abs(samples[offset + i]));
+        }
+        return Math.min(1.0f, peak / FULL_SCORE_PEAK);
+    }
+
+    private void requireWaveform() {
+        if (featuresIn) {
+            throw new IllegalStateException("Features-in engine cannot score a waveform.");
+        }
+    }
+
+    private void spin(long nanos) {
+        invocations++;
+        long start = System.nanoTime();
+        if (nanos > 0) {
+            while (System.nanoTime() - start < nanos) {
+                // busy: the worker thread is occupied exactly like a real invoke
+            }
+        }
+        spentNanos += System.nanoTime() - start;
+    }
+
+    @Override
+    public boolean acceptsFeatures() {
+        return featuresIn;
+    }
+
+    @Override
+    public boolean supportsBatch() {
+        return batch;
+    }
+
+    @Override
+    public String describe() {
+        return "Simulated(" + (featuresIn ? "features" : "waveform") + ", cost " + costNanos / 1000 + " us"
+                + (batch ? ", batch" : "") + ")";
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /** Interpreter invokes (a batch counts once). */
+    public long getInvocations() {
+        return invocations;
+    }
+
+    /** Wall time spent inside simulated invokes. */
+    public long getSpentNanos() {
+        return spentNanos;
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+/**
+ * ARCHITECT'S NOTE: Streaming version of the hard gate.
+ * Equivalent to {@link ImpulseValidator#isImpulse(float[], float[])} on the newest
+ * frameLength samples, but keeps its state across hops instead of rescanning:
+ *
+ * - |x| envelope history in a ring (power-of-two, >= 2 frames)
+ * - Sliding-window peak via a monotonic deque (earliest index wins ties, like the reference)
+ * - Per-block maxima, so the secondary (ringing) peak is a few block lookups
+ *
+ * Per hop, push() touches only the new samples. isImpulse() is O(1) for quiet frames.
+ * Frames over the peak threshold pay for the short attack/decay scans around the peak.
+ * Not thread safe: one instance per stream.
+ */
+public class StreamingImpulseTracker {
+    private static final int BLOCK_SHIFT = 5;
+    private static final int BLOCK = 1 << BLOCK_SHIFT; // 32 samples
+
+    private final int frameLength;
+    private final int mask;
+    private final float[] envelope;
+    private final float[] blockMax;
+    private final int blockMask;
+
+    // Monotonic deque of absolute sample indices (values non-increasing front to back)
+    private final long[] maxQueue;
+    private long queueHead = 0;
+    private long queueTail = 0;
+
+    private long samplesSeen = 0;
+    private boolean useFastMath = false;
+
+    // Metrics of the last isImpulse() call (NaN when that stage was not reached)
+    private float peak;
+    private long peakSample;
+    private float attackMs;
+    private float decayMs;
+    private float ringingRatio;
+    private double flatness;
+    private float hfRatio;
+
+    public StreamingImpulseTracker(int frameLength) {
+        this.frameLength = frameLength;
+        int ringSize = Integer.highestOneBit(Math.max(frameLength, BLOCK) - 1) << 2; // >= 2 * frameLength
+        this.mask = ringSize - 1;
+        this.envelope = new float[ringSize];
+        this.maxQueue = new long[ringSize];
+        this.blockMax = new float[ringSize >> BLOCK_SHIFT];
+        this.blockMask = blockMax.length - 1;
+        resetMetrics();
+    }
+
+    /**
+     * Feeds the newest samples (e.g. one hop). O(length).
+     */
+    public void push(float[] samples, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            float v = Math.abs(samples[offset + i]);
+            long abs = samplesSeen++;
+            envelope[(int) (abs & mask)] = v;
+
+            int b = (int) ((abs >> BLOCK_SHIFT) & blockMask);
+            if ((abs & (BLOCK - 1)) == 0 || v > blockMax[b]) blockMax[b] = v;
+
+            // Strict '<' keeps older equal values in front: first occurrence of the max wins
+            while (queueTail > queueHead && envelope[(int) (maxQueue[(int) ((queueTail - 1) & mask)] & mask)] < v) {
+                queueTail--;
+            }
+            maxQueue[(int) (queueTail & mask)] = abs;
+            queueTail++;
+
+            long oldest = abs - frameLength + 1;
+            while (maxQueue[(int) (queueHead & mask)] < oldest) {
+                queueHead++;
+            }
+        }
+    }
+
+    /**
+     * Peak |x| of the newest frameLength samples, O(1) (head of the max deque).
+     * The value stage 1 of checkTimeDomain() tests, without running any stage.
+     */
+    public float framePeak() {
+        return queueTail > queueHead ? envelope[(int) (maxQueue[(int) (queueHead & mask)] & mask)] : 0f;
+    }
+
+    /**
+     * Gate decision for the newest frameLength samples.
+     * @param spectrum Power spectrum of that frame (only read if the time-domain checks pass).
+     */
+    public boolean isImpulse(float[] spectrum) {
+        if (!checkTimeDomain()) {
+            return false;
+        }
+        double flat = useFastMath
+                ? ImpulseCriteria.spectralFlatnessFast(spectrum)
+                : ImpulseCriteria.spectralFlatness(spectrum);
+        return checkSpectral(flat, ImpulseCriteria.hfRatio(spectrum));
+    }
+
+    /**
+     * Stages 1-4 (peak, attack, decay, ringing) on the newest frameLength samples.
+     * Resets the metrics. Only a frame that passes needs a spectrum at all, so a caller
+     * with a fused front end (FusedFrontEnd) can skip its summaries for every other hop.
+     */
+    public boolean checkTimeDomain() {
+        resetMetrics();
+        long frameStart = samplesSeen - frameLength;
+
+        // 1. Peak Check
+        float peakVal = 0;
+        long peakAbs = Math.max(frameStart, 0);
+        if (queueTail > queueHead) {
+            peakAbs = maxQueue[(int) (queueHead & mask)];
+            peakVal = envelope[(int) (peakAbs & mask)];
+        }
+        peak = peakVal;
+        peakSample = peakAbs;
+        if (peakVal < ImpulseCriteria.PEAK_THRESHOLD) {
+            return false;
+        }
+        int peakIdx = (int) (peakAbs - frameStart);
+
+        // 2. Attack Time Check (Scan backwards for 10% drop)
+        float attackThreshold = peakVal * 0.1f;
+        int startIdx = 0;
+        int scanStart = Math.max(0, peakIdx - ImpulseCriteria.ATTACK_LOOKBACK);
+        for (int i = peakIdx; i >= scanStart; i--) {
+            if (envelopeAt(frameStart + i) < attackThreshold) {
+                startIdx = i;
+                break;
+            }
+        }
+        attackMs = ImpulseCriteria.samplesToMs(peakIdx - startIdx);
+        if (attackMs > ImpulseCriteria.ATTACK_TIME_MAX_MS) {
+            return false;
+        }
+
+        // 3. Decay Time Check (Scan forwards for 20% drop)
+        float decayThreshold = peakVal * 0.2f;
+        int endIdx = frameLength - 1;
+        int scanEnd = Math.min(frameLength, peakIdx + ImpulseCriteria.DECAY_LOOKAHEAD);
+        for (int i = peakIdx; i < scanEnd; i++) {
+            if (envelopeAt(frameStart + i) < decayThreshold) {
+                endIdx = i;
+                break;
+            }
+        }
+        decayMs = ImpulseCriteria.samplesToMs(endIdx - peakIdx);
+        if (decayMs > ImpulseCriteria.DECAY_TIME_MAX_MS) {
+            return false;
+        }
+
+        // 4. Ringing Check (largest peak outside the main event)
+        int exclusionStart = Math.max(0, startIdx - ImpulseCriteria.RINGING_GUARD);
+        int exclusionEnd = Math.min(frameLength, endIdx + ImpulseCriteria.RINGING_GUARD);
+        float secondaryPeak = Math.max(
+                rangeMax(frameStart, frameStart + exclusionStart - 1),
+                rangeMax(frameStart + exclusionEnd + 1, frameStart + frameLength - 1));
+        ringingRatio = secondaryPeak / peakVal;
+        return !(ringingRatio > ImpulseCriteria.RINGING_THRESHOLD);
+    }
+
+    /**
+     * Stages 5-6, after checkTimeDomain() passed for the same frame.
+     * @param flatness Spectral flatness of the frame, reference or fast math as per isFastMath().
+     * @param hfRatio  High-frequency ratio of the frame.
+     */
+    public boolean checkSpectral(double flatness, float hfRatio) {
+        // 5. Spectral Flatness
+        this.flatness = flatness;
+        if (flatness < ImpulseCriteria.SPECTRAL_FLATNESS_THRESHOLD) {
+            return false;
+        }
+
+        // 6. High Frequency Ratio
+        this.hfRatio = hfRatio;
+        return !(hfRatio < ImpulseCriteria.HF_RATIO_THRESHOLD);
+    }
+
+    private float envelopeAt(long abs) {
+        return abs < 0 ? 0 : envelope[(int) (abs & mask)];
+    }
+
+    /** Max |x| over absolute samples [from, to], inclusive. 0 for an empty range. */
+    private float rangeMax(long from, long to) {
+        float max = 0;
+        long i = from;
+        while (i <= to && (i & (BLOCK - 1)) != 0) {
+            max = Math.max(max, envelopeAt(i++));
+        }
+        while (i + BLOCK - 1 <= to) {
+            if (i >= 0) max = Math.max(max, blockMax[(int) ((i >> BLOCK_SHIFT) & blockMask)]);
+            i += BLOCK;
+        }
+        while (i <= to) {
+            max = Math.max(max, envelopeAt(i++));
+        }
+        return max;
+    }
+
+    private void resetMetrics() {
+        peak = Float.NaN;
+        peakSample = -1;
+        attackMs = Float.NaN;
+        decayMs = Float.NaN;
+        ringingRatio = Float.NaN;
+        flatness = Double.NaN;
+        hfRatio = Float.NaN;
+    }
+
+    public void reset() {
+        samplesSeen = 0;
+        queueHead = 0;
+        queueTail = 0;
+        java.util.Arrays.fill(envelope, 0);
+        java.util.Arrays.fill(blockMax, 0);
+        resetMetrics();
+    }
+
+    /**
+     * Opt-in {@link FastMath} flatness. Decisions can only differ from the reference
+     * when flatness lies within ~3e-6 (relative) of its threshold.
+     */
+    public void setFastMath(boolean useFastMath) {
+        this.useFastMath = useFastMath;
+    }
+
+    public boolean isFastMath() {
+        return useFastMath;
+    }
+
+    public long getSamplesSeen() {
+        return samplesSeen;
+    }
+
+    public float getPeak() {
+        return peak;
+    }
+
+    /** Absolute sample index (since creation) of the frame peak. */
+    public long getPeakSample() {
+        return peakSample;
+    }
+
+    public float getAttackMs() {
+        return attackMs;
+    }
+
+    public float getDecayMs() {
+        return decayMs;
+    }
+
+    public float getRingingRatio() {
+        return ringingRatio;
+    }
+
+    public double getFlatness() {
+        return flatness;
+    }
+
+    public float getHfRatio() {
+        return hfRatio;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ShortBuffer;
+
+/**
+ * WAV file as an AudioSource, streamed through WavReader (memory-mapped, constant memory).
+ * 16-bit PCM comes back sample-exact; 32-bit float is quantized to 16 bits like the mic.
+ * Delivers as fast as it is read: no real-time pacing.
+ */
+public class WavAudioSource implements AudioSource {
+    private final File file;
+    private final short[] pcm;
+    private final ShortBuffer view;
+    private WavReader reader;
+
+    public WavAudioSource(File file) {
+        this(file, DspConfig.CAPTURE_BLOCK_SAMPLES);
+    }
+
+    public WavAudioSource(File file, int blockSamples) {
+        this.file = file;
+        this.pcm = new short[blockSamples];
+        this.view = ShortBuffer.wrap(pcm);
+    }
+
+    @Override
+    public void start() throws IOException {
+        reader = new WavReader(file);
+        if (reader.getSampleRate() != DspConfig.SAMPLE_RATE) {
+            close();
+            throw new IOException("Need " + DspConfig.SAMPLE_RATE + " Hz, got " + file.getName()
+                    + " at " + reader.getSampleRate() + " Hz");
+        }
+    }
+
+    @Override
+    public ShortBuffer read() throws IOException {
+        int n = reader.read(pcm, 0, pcm.length);
+        if (n <= 0) return null;
+        view.clear();
+        view.limit(n);
+        return view;
+    }
+
+    /** Length of the file in seconds (after start()). */
+    public double getDurationSeconds() {
+        return reader.getDurationSeconds();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (reader != null) {
+            reader.close();
+        }
+    }
+}
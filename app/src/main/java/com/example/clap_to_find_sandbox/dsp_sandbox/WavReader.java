@@ -0,0 +1,278 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * ARCHITECT'S NOTE: Streaming RIFF/WAVE reader, Android-free.
+ *
+ * The chunk list is walked properly, so LIST / fact / cue / odd-sized chunks before
+ * or after `data` are skipped instead of being read as audio. The data chunk is
+ * memory-mapped in fixed windows (WINDOW_BYTES), so a multi-hour file costs one
+ * window of address space and no heap copy of the file:
+ *
+ *     reader.read(hop, 0, HOP_LENGTH)   -> next hop, normalized floats
+ *
+ * Supported: mono 16-bit PCM (normalized PCM / 32768.0f, same as the rest of the
+ * pipeline) and mono 32-bit IEEE float (passed through), plain or WAVE_FORMAT_EXTENSIBLE.
+ * The sample rate is reported, not enforced. Single reader thread.
+ */
+public class WavReader implements Closeable {
+    public static final int FORMAT_PCM = 1;
+    public static final int FORMAT_IEEE_FLOAT = 3;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+
+    /** Mapped window size. Large enough that remapping is rare, small enough for 32-bit address spaces. */
+    static final int WINDOW_BYTES = 16 << 20;
+
+    private final FileChannel channel;
+    private final int formatTag;
+    private final int channels;
+    private final int sampleRate;
+    private final int bitsPerSample;
+    private final int bytesPerSample;
+    private final long dataOffset;
+    private final long sampleCount;
+    private final int windowSamples;
+
+    // Current mapped window, viewed as little-endian shorts or floats
+    private ShortBuffer shortWindow;
+    private FloatBuffer floatWindow;
+    private long windowStart = 0; // first sample of the current window
+    private long position = 0;    // next sample to read
+    private short[] pcmScratch = new short[0];
+
+    public WavReader(File file) throws IOException {
+        this(file, WINDOW_BYTES);
+    }
+
+    /** windowBytes is rounded down to whole samples (tests use tiny windows to cross boundaries). */
+    WavReader(File file, int windowBytes) throws IOException {
+        // RandomAccessFile rather than FileChannel.open(Path): the latter needs API 26
+        channel = new RandomAccessFile(file, "r").getChannel();
+        try {
+            long fileSize = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(40).order(ByteOrder.LITTLE_ENDIAN);
+
+            readAt(header, 0, 12);
+            if (header.getInt(0) != fourCc("RIFF") || header.getInt(8) != fourCc("WAVE")) {
+                throw new IOException("Not a RIFF/WAVE file: " + file);
+            }
+
+            int tag = -1;
+            int nChannels = 0;
+            int rate = 0;
+            int bits = 0;
+            long dataStart = -1;
+            long dataSize = 0;
+
+            // Chunk walk: [id][size][body, padded to an even length]
+            long pos = 12;
+            while (pos + 8 <= fileSize && (tag < 0 || dataStart < 0)) {
+                readAt(header, pos, 8);
+                int id = header.getInt(0);
+                long size = header.getInt(4) & 0xFFFFFFFFL;
+                long body = pos + 8;
+
+                if (id == fourCc("fmt ")) {
+                    if (size < 16) throw new IOException("fmt chunk too short: " + size);
+                    int n = (int) Math.min(size, 40);
+                    readAt(header, body, n);
+                    tag = header.getShort(0) & 0xFFFF;
+                    nChannels = header.getShort(2) & 0xFFFF;
+                    rate = header.getInt(4);
+                    bits = header.getShort(14) & 0xFFFF;
+                    if (tag == FORMAT_EXTENSIBLE) {
+                        // Real format tag = first two bytes of the SubFormat GUID
+                        if (n < 26) throw new IOException("WAVE_FORMAT_EXTENSIBLE without SubFormat");
+                        tag = header.getShort(24) & 0xFFFF;
+                    }
+                } else if (id == fourCc("data")) {
+                    dataStart = body;
+                    // Writers that never finalized the header leave 0 or 0xFFFFFFFF: use what is on disk
+                    long available = fileSize - body;
+                    dataSize = size == 0 || size > available ? available : size;
+                }
+                pos = body + size + (size & 1);
+            }
+
+            if (tag < 0) throw new IOException("No fmt chunk: " + file);
+            if (dataStart < 0) throw new IOException("No data chunk: " + file);
+            if (nChannels != 1) throw new IOException("Need mono, got " + nChannels + " channels");
+            if (!(tag == FORMAT_PCM && bits == 16) && !(tag == FORMAT_IEEE_FLOAT && bits == 32)) {
+                throw new IOException("Need 16-bit PCM or 32-bit float, got format " + tag + " / " + bits + " bits");
+            }
+
+            this.formatTag = tag;
+            this.channels = nChannels;
+            this.sampleRate = rate;
+            this.bitsPerSample = bits;
+            this.bytesPerSample = bits / 8;
+            this.dataOffset = dataStart;
+            this.sampleCount = dataSize / bytesPerSample;
+            this.windowSamples = Math.max(1, windowBytes / bytesPerSample);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads up to len samples into dst[offset ..).
+     * @return Samples read; fewer than len only at the end of the data chunk, -1 once exhausted.
+     */
+    public int read(float[] dst, int offset, int len) throws IOException {
+        if (position >= sampleCount) return -1;
+        int done = 0;
+        while (done < len && position < sampleCount) {
+            if (position >= windowStart + windowSamples || (shortWindow == null && floatWindow == null)) {
+                map(position);
+            }
+            int inWindow = (int) (position - windowStart);
+            int n = (int) Math.min(len - done, Math.min(windowSamples - inWindow, sampleCount - position));
+
+            if (formatTag == FORMAT_IEEE_FLOAT) {
+                floatWindow.position(inWindow);
+                floatWindow.get(dst, offset + done, n);
+            } else {
+                if (pcmScratch.length < n) pcmScratch = new short[n];
+                shortWindow.position(inWindow);
+                shortWindow.get(pcmScratch, 0, n);
+                for (int i = 0; i < n; i++) {
+                    dst[offset + done + i] = pcmScratch[i] / 32768.0f;
+                }
+            }
+            done += n;
+            position += n;
+        }
+        return done;
+    }
+
+    /**
+     * Same as read(float[], ...) but as 16-bit PCM, what AudioRecord delivers: 16-bit files are
+     * copied straight out of the mapping, float files are quantized (rounded, clamped).
+     */
+    public int read(short[] dst, int offset, int len) throws IOException {
+        if (position >= sampleCount) return -1;
+        int done = 0;
+        while (done < len && position < sampleCount) {
+            if (position >= windowStart + windowSamples || (shortWindow == null && floatWindow == null)) {
+                map(position);
+            }
+            int inWindow = (int) (position - windowStart);
+            int n = (int) Math.min(len - done, Math.min(windowSamples - inWindow, sampleCount - position));
+
+            if (formatTag == FORMAT_IEEE_FLOAT) {
+                floatWindow.position(inWindow);
+                for (int i = 0; i < n; i++) {
+                    long v = Math.round(floatWindow.get() * 32768.0);
+                    dst[offset + done + i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, v));
+                }
+            } else {
+                shortWindow.position(inWindow);
+                shortWindow.get(dst, offset + done, n);
+            }
+            done += n;
+            position += n;
+        }
+        return done;
+    }
+
+    /**
+     * Reads exactly len samples, or returns false if the data ends first
+     * (the partial block is still written to dst).
+     */
+    public boolean readFully(float[] dst, int offset, int len) throws IOException {
+        int done = 0;
+        while (done < len) {
+            int n = read(dst, offset + done, len - done);
+            if (n <= 0) return false;
+            done += n;
+        }
+        return true;
+    }
+
+    private void map(long sample) throws IOException {
+        windowStart = sample;
+        long count = Math.min(windowSamples, sampleCount - sample);
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+                dataOffset + sample * bytesPerSample, count * bytesPerSample);
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        if (formatTag == FORMAT_IEEE_FLOAT) {
+            floatWindow = mapped.asFloatBuffer();
+        } else {
+            shortWindow = mapped.asShortBuffer();
+        }
+    }
+
+    /** Whole file as normalized floats. Convenience for short test clips only. */
+    public static float[] readAll(File file) throws IOException {
+        try (WavReader reader = new WavReader(file)) {
+            if (reader.getSampleCount() > Integer.MAX_VALUE) {
+                throw new IOException("Too long to load at once, stream it: " + file);
+            }
+            float[] data = new float[(int) reader.getSampleCount()];
+            reader.readFully(data, 0, data.length);
+            return data;
+        }
+    }
+
+    private void readAt(ByteBuffer buf, long pos, int len) throws IOException {
+        buf.clear().limit(len);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, pos + buf.position()) < 0) {
+                throw new IOException("Truncated chunk header at " + pos);
+            }
+        }
+    }
+
+    private static int fourCc(String id) {
+        return (id.charAt(0)) | (id.charAt(1) << 8) | (id.charAt(2) << 16) | (id.charAt(3) << 24);
+    }
+
+    /** Samples in the data chunk (after clamping a bogus chunk size to the file). */
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    /** Next sample to be read. */
+    public long getPosition() {
+        return position;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getBitsPerSample() {
+        return bitsPerSample;
+    }
+
+    /** FORMAT_PCM or FORMAT_IEEE_FLOAT. */
+    public int getFormatTag() {
+        return formatTag;
+    }
+
+    public double getDurationSeconds() {
+        return sampleCount / (double) sampleRate;
+    }
+
+    @Override
+    public void close() throws IOException {
+        shortWindow = null;
+        floatWindow = null;
+        channel.close();
+    }
+}
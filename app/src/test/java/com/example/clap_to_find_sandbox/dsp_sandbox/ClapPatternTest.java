@@ -0,0 +1,108 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ClapPatternTest {
+    private static final long SECOND = ClapPattern.hopsFor(1000);
+
+    @Test
+    public void threeClapsWithinWindowTrigger() {
+        ClapPattern pattern = ClapPattern.threeClaps();
+        assertEquals(ClapPattern.Outcome.COUNTED, pattern.onEvent(100));
+        assertEquals(ClapPattern.Outcome.COUNTED, pattern.onEvent(100 + SECOND));
+        assertEquals(ClapPattern.Outcome.PATTERN, pattern.onEvent(100 + 3 * SECOND));
+        assertEquals(0, pattern.getPendingEvents());
+        // Cleared: a 4th clap starts over
+        assertEquals(ClapPattern.Outcome.COUNTED, pattern.onEvent(100 + 3 * SECOND + SECOND / 2));
+        assertEquals(1, pattern.getPatterns());
+    }
+
+    @Test
+    public void echoesAreIgnored() {
+        ClapPattern pattern = ClapPattern.threeClaps();
+        long echo = ClapPattern.hopsFor(ClapPattern.MIN_INTERVAL_MS);
+        assertEquals(3, echo);
+        pattern.onEvent(0);
+        assertEquals(ClapPattern.Outcome.ECHO, pattern.onEvent(echo - 1));
+        assertEquals(1, pattern.getPendingEvents());
+        assertEquals(ClapPattern.Outcome.COUNTED, pattern.onEvent(echo));
+        assertEquals(ClapPattern.Outcome.ECHO, pattern.onEvent(echo + 1));
+        assertEquals(ClapPattern.Outcome.PATTERN, pattern.onEvent(2 * echo));
+    }
+
+    /** A first-clap window would reset at clap 4 and miss claps 2-4. */
+    @Test
+    public void patternMayStartAtAnyClap() {
+        ClapPattern pattern = ClapPattern.threeClaps();
+        assertEquals(ClapPattern.Outcome.COUNTED, pattern.onEvent(0));
+        assertEquals(ClapPattern.Outcome.COUNTED, pattern.onEvent(2 * SECOND));
+        assertEquals(ClapPattern.Outcome.COUNTED, pattern.onEvent(4 * SECOND)); // Clap 1 out of the 3 s span
+        assertEquals(2, pattern.getPendingEvents());
+        assertEquals(2 * SECOND, pattern.getOldestEvent());
+        assertEquals(ClapPattern.Outcome.PATTERN, pattern.onEvent(4 * SECOND + SECOND / 2));
+    }
+
+    @Test
+    public void gapsAndSpanAreConfigurable() {
+        // 4 knocks, 200-600 ms apart, within 1.5 s
+        ClapPattern knocks = new ClapPattern(4, ClapPattern.hopsFor(200), ClapPattern.hopsFor(600),
+                ClapPattern.hopsFor(1500));
+        long ms100 = ClapPattern.hopsFor(100);
+        assertEquals(ClapPattern.Outcome.COUNTED, knocks.onEvent(0));
+        assertEquals(ClapPattern.Outcome.ECHO, knocks.onEvent(ms100));
+        assertEquals(ClapPattern.Outcome.COUNTED, knocks.onEvent(5 * ms100));
+        // 700 ms gap breaks the sequence: this knock starts a new one
+        assertEquals(ClapPattern.Outcome.COUNTED, knocks.onEvent(12 * ms100));
+        assertEquals(1, knocks.getPendingEvents());
+        assertEquals(ClapPattern.Outcome.COUNTED, knocks.onEvent(17 * ms100));
+        assertEquals(ClapPattern.Outcome.COUNTED, knocks.onEvent(22 * ms100));
+        assertEquals(ClapPattern.Outcome.PATTERN, knocks.onEvent(27 * ms100));
+    }
+
+    @Test
+    public void expireFollowsTheClockBetweenEvents() {
+        ClapPattern pattern = ClapPattern.threeClaps();
+        pattern.onEvent(0);
+        pattern.onEvent(SECOND);
+        pattern.expire(3 * SECOND);
+        assertEquals(2, pattern.getPendingEvents());
+        pattern.expire(3 * SECOND + 1);
+        assertEquals(1, pattern.getPendingEvents());
+        pattern.expire(4 * SECOND + 1);
+        assertEquals(0, pattern.getPendingEvents());
+    }
+
+    /** Replay: a 24 h click track in a few ms, same outcome sequence on every run. */
+    @Test
+    public void replaysFasterThanRealTimeDeterministically() {
+        List<ClapPattern.Outcome> first = replay();
+        assertEquals(first, replay());
+        int patterns = 0;
+        for (ClapPattern.Outcome outcome : first) if (outcome == ClapPattern.Outcome.PATTERN) patterns++;
+        assertEquals(24 * 60, patterns); // One 3-clap burst per minute, plus stray claps between
+    }
+
+    private static List<ClapPattern.Outcome> replay() {
+        ClapPattern pattern = ClapPattern.threeClaps();
+        List<ClapPattern.Outcome> outcomes = new ArrayList<>();
+        for (long minute = 0; minute < 24 * 60; minute++) {
+            long t = minute * 60 * SECOND;
+            outcomes.add(pattern.onEvent(t + 10 * SECOND)); // Stray clap
+            outcomes.add(pattern.onEvent(t + 30 * SECOND));
+            outcomes.add(pattern.onEvent(t + 30 * SECOND + 1)); // Echo
+            outcomes.add(pattern.onEvent(t + 31 * SECOND));
+            outcomes.add(pattern.onEvent(t + 32 * SECOND));
+        }
+        return outcomes;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyPattern() {
+        new ClapPattern(0, 0, 1, 1);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DetectionLoopTest {
+
+    private File root;
+    private HannWindow hann;
+    private MelFilterbank mel;
+    private short[] stream;
+
+    @Before
+    public void setup() throws Exception {
+        root = TestAssets.dspDir();
+        hann = new HannWindow(new FileInputStream(new File(root, "hann_window.bin")), DspConfig.WIN_LENGTH);
+        mel = new MelFilterbank(new FileInputStream(new File(root, "mel_filterbank.bin")),
+                DspConfig.N_MELS, DspConfig.N_FFT / 2 + 1);
+
+        // 5 s of low noise: 3 claps 700 ms apart after the warmup, another one 1.5 s later
+        float[] clap = WavReader.readAll(new File(root, "test_clap.wav"));
+        stream = new short[5 * DspConfig.SAMPLE_RATE];
+        Random rng = new Random(24);
+        for (int i = 0; i < stream.length; i++) stream[i] = (short) (rng.nextGaussian() * 60);
+        for (int at : new int[]{DspConfig.SAMPLE_RATE, 27200, 38400, 62400}) {
+            for (int i = 0; i < clap.length; i++) stream[at + i] += (short) Math.round(clap[i] * 32768.0f);
+        }
+    }
+
+    /** What the listener saw, in order: "outcome@peakHop". */
+    private static final class Recorder implements DetectionLoop.Listener {
+        final List<String> claps = new ArrayList<>();
+        int scored = 0;
+
+        @Override
+        public void onConfidence(float probability) {
+            scored++;
+        }
+
+        @Override
+        public void onClap(float probability, long peakSample, ClapPattern.Outcome outcome) {
+            claps.add(outcome + "@" + Math.floorDiv(peakSample, DspConfig.HOP_LENGTH));
+        }
+    }
+
+    private Recorder replay(AudioSource source) throws Exception {
+        Recorder recorder = new Recorder();
+        DetectionLoop loop = new DetectionLoop(new DetectionPipeline(
+                new FusedFrontEnd(hann, mel, new LogMelExtractor(), DspConfig.N_FFT),
+                new SimulatedInferenceEngine(0), null), ClapPattern.threeClaps(), recorder);
+        try {
+            assertEquals((stream.length - DspConfig.N_FFT) / DspConfig.HOP_LENGTH + 1, loop.run(source));
+        } finally {
+            source.close();
+        }
+        assertEquals(stream.length / (double) DspConfig.SAMPLE_RATE, loop.getAudioSeconds(), 0);
+        assertEquals(recorder.claps.size(), loop.getClaps());
+        return recorder;
+    }
+
+    /** Every clap the loop reports went through ClapPattern at its peak hop, in stream order. */
+    @Test
+    public void clapsReplayThroughThePatternEngine() throws Exception {
+        Recorder recorder = replay(new ArrayAudioSource(stream));
+        assertTrue(recorder.scored >= recorder.claps.size());
+
+        ClapPattern pattern = ClapPattern.threeClaps();
+        long previous = -1;
+        for (String clap : recorder.claps) {
+            long hop = Long.parseLong(clap.substring(clap.indexOf('@') + 1));
+            assertTrue(clap, hop >= DspConfig.SAMPLE_RATE / DspConfig.HOP_LENGTH && hop > previous);
+            assertEquals(clap, clap.substring(0, clap.indexOf('@')), pattern.onEvent(hop).name());
+            previous = hop;
+        }
+        assertTrue(pattern.getPatterns() >= 1);
+    }
+
+    /** Block size and buffer kind don't change a single decision. */
+    @Test
+    public void decisionsDoNotDependOnTheSource() throws Exception {
+        List<String> expected = replay(new ArrayAudioSource(stream)).claps;
+        assertEquals(expected, replay(new ArrayAudioSource(stream, DspConfig.HOP_LENGTH)).claps);
+        assertEquals(expected, replay(new ArrayAudioSource(stream, 4096, 13, 700)).claps);
+        assertEquals(expected, replay(new DirectSource(stream)).claps);
+    }
+
+    @Test
+    public void wavSourceDeliversThePcm16Samples() throws Exception {
+        float[] clap = WavReader.readAll(new File(root, "test_clap.wav"));
+        List<Short> read = new ArrayList<>();
+        try (WavAudioSource source = new WavAudioSource(new File(root, "test_clap.wav"), 1000)) {
+            source.start();
+            ShortBuffer block;
+            while ((block = source.read()) != null) {
+                assertTrue(block.remaining() <= 1000);
+                while (block.hasRemaining()) read.add(block.get());
+            }
+        }
+        assertEquals(clap.length, read.size());
+        for (int i = 0; i < clap.length; i++) {
+            assertEquals(clap[i], read.get(i) / 32768.0f, 0f);
+        }
+    }
+
+    /** Like the mic: blocks in a direct, native-order buffer (no backing array). */
+    private static final class DirectSource implements AudioSource {
+        private final ArrayAudioSource blocks;
+        private final ShortBuffer direct = ByteBuffer.allocateDirect(2 * DspConfig.CAPTURE_BLOCK_SAMPLES)
+                .order(ByteOrder.nativeOrder()).asShortBuffer();
+
+        DirectSource(short[] pcm) {
+            blocks = new ArrayAudioSource(pcm, DspConfig.CAPTURE_BLOCK_SAMPLES);
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public ShortBuffer read() {
+            ShortBuffer block = blocks.read();
+            if (block == null) return null;
+            direct.clear();
+            direct.put(block);
+            direct.flip();
+            return direct;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
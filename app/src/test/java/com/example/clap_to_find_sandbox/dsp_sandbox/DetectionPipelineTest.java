@@ -0,0 +1,377 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DetectionPipelineTest {
+
+    private File root;
+    private HannWindow hann;
+    private MelFilterbank mel;
+    private FramePipeline framePipeline;
+
+    @Before
+    public void setup() throws Exception {
+        root = TestAssets.dspDir();
+        hann = new HannWindow(new FileInputStream(new File(root, "hann_window.bin")), DspConfig.WIN_LENGTH);
+        mel = new MelFilterbank(new FileInputStream(new File(root, "mel_filterbank.bin")),
+                DspConfig.N_MELS, DspConfig.N_FFT / 2 + 1);
+        framePipeline = new FramePipeline(hann, new FFTProcessor(DspConfig.N_FFT), mel,
+                new LogMelExtractor(), DspConfig.N_FFT, DspConfig.N_MELS);
+    }
+
+    /** Fused front end vs the staged RealFFT chain: same score on every hop, waveform and features-in engines. */
+    @Test
+    public void fusedFrontEndMakesIdenticalDecisions() throws Exception {
+        short[] clap = TestAssets.readPcm16("test_clap.wav");
+        short[] stream = new short[4 * DspConfig.SAMPLE_RATE];
+        Random rng = new Random(19);
+        for (int i = 0; i < stream.length; i++) stream[i] = (short) (rng.nextGaussian() * 60);
+        for (int at : new int[]{DspConfig.SAMPLE_RATE, 2 * DspConfig.SAMPLE_RATE + 3000}) {
+            for (int i = 0; i < clap.length; i++) stream[at + i] += clap[i];
+        }
+
+        for (boolean featuresIn : new boolean[]{false, true}) {
+            DetectionPipeline staged = new DetectionPipeline(new FramePipeline(hann,
+                    new FFTProcessor(DspConfig.N_FFT, DspConfig.WIN_LENGTH, true), mel,
+                    new LogMelExtractor(), DspConfig.N_FFT, DspConfig.N_MELS),
+                    new SimulatedInferenceEngine(0, featuresIn), null);
+            DetectionPipeline fused = new DetectionPipeline(
+                    new FusedFrontEnd(hann, mel, new LogMelExtractor(), DspConfig.N_FFT),
+                    new SimulatedInferenceEngine(0, featuresIn), null);
+
+            staged.append(stream, 0, DspConfig.N_FFT);
+            fused.append(stream, 0, DspConfig.N_FFT);
+            int scored = 0;
+            for (int pos = DspConfig.N_FFT; pos + DspConfig.HOP_LENGTH <= stream.length; pos += DspConfig.HOP_LENGTH) {
+                float expected = staged.analyze();
+                float actual = fused.analyze();
+                assertEquals("features " + featuresIn + ", clock " + pos,
+                        Float.floatToIntBits(expected), Float.floatToIntBits(actual));
+                if (!Float.isNaN(actual)) scored++;
+                staged.append(stream, pos, DspConfig.HOP_LENGTH);
+                fused.append(stream, pos, DspConfig.HOP_LENGTH);
+            }
+            assertTrue(scored >= 2);
+            assertEquals(staged.getInferencesRun(), fused.getInferencesRun());
+        }
+    }
+
+    /** Integer front end vs the float one: same hops reach the engine, log-mel patches within the error bound. */
+    @Test
+    public void fixedPointFrontEndSchedulesTheSameCandidates() throws Exception {
+        short[] clap = TestAssets.readPcm16("test_clap.wav");
+        short[] stream = new short[4 * DspConfig.SAMPLE_RATE];
+        Random rng = new Random(20);
+        for (int i = 0; i < stream.length; i++) stream[i] = (short) (rng.nextGaussian() * 60);
+        for (int at : new int[]{DspConfig.SAMPLE_RATE, 2 * DspConfig.SAMPLE_RATE + 3000}) {
+            for (int i = 0; i < clap.length; i++) stream[at + i] += clap[i];
+        }
+
+        for (boolean featuresIn : new boolean[]{false, true}) {
+            DetectionPipeline floating = new DetectionPipeline(
+                    new FusedFrontEnd(hann, mel, new LogMelExtractor(), DspConfig.N_FFT),
+                    new SimulatedInferenceEngine(0, featuresIn), null);
+            DetectionPipeline fixed = new DetectionPipeline(
+                    new FixedPointFrontEnd(hann, mel, DspConfig.N_FFT),
+                    new SimulatedInferenceEngine(0, featuresIn), null);
+
+            floating.append(stream, 0, DspConfig.N_FFT);
+            fixed.append(stream, 0, DspConfig.N_FFT);
+            int scored = 0;
+            for (int pos = DspConfig.N_FFT; pos + DspConfig.HOP_LENGTH <= stream.length; pos += DspConfig.HOP_LENGTH) {
+                float expected = floating.analyze();
+                float actual = fixed.analyze();
+                String message = "features " + featuresIn + ", clock " + pos;
+                assertEquals(message, Float.isNaN(expected), Float.isNaN(actual));
+                if (!Float.isNaN(actual)) {
+                    // Waveform engine: same samples. Features engine: loudest log-mel of the patch, scaled
+                    float tolerance = featuresIn ? FixedPointFrontEnd.MAX_ERROR_DB
+                            / (SimulatedInferenceEngine.FULL_SCORE_DB - SimulatedInferenceEngine.SILENCE_DB) : 0f;
+                    assertEquals(message, expected, actual, tolerance);
+                    assertEquals(message, floating.getLastPeakPosition(), fixed.getLastPeakPosition());
+                    scored++;
+                }
+                floating.append(stream, pos, DspConfig.HOP_LENGTH);
+                fixed.append(stream, pos, DspConfig.HOP_LENGTH);
+            }
+            assertTrue(scored >= 2);
+            assertEquals(floating.getInferencesRun(), fixed.getInferencesRun());
+        }
+    }
+
+    /**
+     * Energy pre-gate. Default (PEAK_THRESHOLD only): the same scores as without it at every noise
+     * level, most hops skipped in a quiet room. With the floor margin, louder room: every gated score
+     * is the ungated one at the same hop, minus clap-tail hits within MARGIN_DB of the learned floor.
+     * Loud room (noise peaks pass the hard gate all along): the floor keeps the noise out, which
+     * moves the scheduler's windows; the loudest score is kept.
+     */
+    @Test
+    public void energyGateKeepsClapsAndSkipsNoise() throws Exception {
+        short[] clap = TestAssets.readPcm16("test_clap.wav");
+        for (double level : new double[]{60, 250, 600}) {
+            boolean quiet = level < 100;
+            boolean loud = level > 500;
+            short[] stream = new short[8 * DspConfig.SAMPLE_RATE];
+            Random rng = new Random(22);
+            for (int i = 0; i < stream.length; i++) stream[i] = (short) (rng.nextGaussian() * level);
+            for (int at : new int[]{4 * DspConfig.SAMPLE_RATE, 6 * DspConfig.SAMPLE_RATE + 3000}) {
+                for (int i = 0; i < clap.length; i++) {
+                    stream[at + i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, stream[at + i] + clap[i]));
+                }
+            }
+
+            for (boolean featuresIn : new boolean[]{false, true}) {
+                DetectionPipeline ungated = new DetectionPipeline(
+                        new FusedFrontEnd(hann, mel, new LogMelExtractor(), DspConfig.N_FFT),
+                        new SimulatedInferenceEngine(0, featuresIn), null);
+                ungated.setEnergyGateEnabled(false);
+                DetectionPipeline gated = new DetectionPipeline(
+                        new FusedFrontEnd(hann, mel, new LogMelExtractor(), DspConfig.N_FFT),
+                        new SimulatedInferenceEngine(0, featuresIn), null);
+                gated.setEnergyGateEnabled(true);
+                DetectionPipeline margin = new DetectionPipeline(
+                        new FusedFrontEnd(hann, mel, new LogMelExtractor(), DspConfig.N_FFT),
+                        new SimulatedInferenceEngine(0, featuresIn), null);
+                margin.setEnergyGateEnabled(true);
+                margin.getEnergyGate().setFloorMarginEnabled(true);
+                DetectionPipeline[] pipelines = {ungated, gated, margin};
+
+                for (DetectionPipeline pipeline : pipelines) pipeline.append(stream, 0, DspConfig.N_FFT);
+                int scored = 0;
+                float maxExpected = 0;
+                float maxMargin = 0;
+                float skipBeforeClaps = -1;
+                for (int pos = DspConfig.N_FFT; pos + DspConfig.HOP_LENGTH <= stream.length; pos += DspConfig.HOP_LENGTH) {
+                    float expected = ungated.analyze();
+                    float actual = gated.analyze();
+                    float withMargin = margin.analyze();
+                    String message = "level " + level + ", features " + featuresIn + ", clock " + pos;
+                    assertEquals(message, Float.floatToIntBits(expected), Float.floatToIntBits(actual));
+                    if (quiet || (!loud && !Float.isNaN(withMargin))) {
+                        assertEquals(message, Float.floatToIntBits(expected), Float.floatToIntBits(withMargin));
+                    }
+                    if (!Float.isNaN(expected)) maxExpected = Math.max(maxExpected, expected);
+                    if (!Float.isNaN(withMargin)) {
+                        maxMargin = Math.max(maxMargin, withMargin);
+                        scored++;
+                    }
+                    if (pos + DspConfig.HOP_LENGTH > 4 * DspConfig.SAMPLE_RATE && skipBeforeClaps < 0) {
+                        skipBeforeClaps = margin.getEnergyGate().getSkipRatio();
+                        assertTrue(message, margin.isIdle());
+                        if (quiet) assertTrue(message, gated.isIdle());
+                    }
+                    for (DetectionPipeline pipeline : pipelines) pipeline.append(stream, pos, DspConfig.HOP_LENGTH);
+                }
+                assertTrue(scored >= 2);
+                assertEquals(maxExpected, maxMargin, 0f);
+                assertEquals(ungated.getInferencesRun(), gated.getInferencesRun());
+                if (quiet) {
+                    assertEquals(ungated.getInferencesRun(), margin.getInferencesRun());
+                    assertEquals(margin.getEnergyGate().getQuietHops(), gated.getEnergyGate().getQuietHops());
+                } else if (loud) {
+                    assertTrue(margin.getInferencesRun() * 4 < ungated.getInferencesRun());
+                }
+                assertTrue("skip ratio " + skipBeforeClaps, skipBeforeClaps > 0.95f);
+                assertFalse(ungated.isIdle());
+            }
+        }
+    }
+
+    @Test
+    public void clapAfterWarmupIsScoredWithPeakAligned() throws Exception {
+        short[] clap = TestAssets.readPcm16("test_clap.wav");
+        // 1 s of silence (past the warmup), the clap, 2 s of silence
+        short[] stream = new short[DspConfig.SAMPLE_RATE + clap.length + 2 * DspConfig.SAMPLE_RATE];
+        System.arraycopy(clap, 0, stream, DspConfig.SAMPLE_RATE, clap.length);
+
+        SimulatedInferenceEngine engine = new SimulatedInferenceEngine(0);
+        DetectionPipeline pipeline = new DetectionPipeline(framePipeline, engine, null);
+        pipeline.append(stream, 0, DspConfig.N_FFT);
+        int scored = 0;
+        float score = Float.NaN;
+        long firstPeak = -1;
+        for (int pos = DspConfig.N_FFT; ; pos += DspConfig.HOP_LENGTH) {
+            float p = pipeline.analyze();
+            if (!Float.isNaN(p)) {
+                scored++;
+                int position = pipeline.getLastPeakPosition();
+                if (firstPeak < 0) {
+                    firstPeak = pipeline.getSampleClock() - DspConfig.MODEL_INPUT_SIZE + position;
+                    score = p;
+                }
+                assertTrue("Peak at " + position, position <= DspConfig.INFERENCE_PEAK_OFFSET
+                        && position > DspConfig.INFERENCE_PEAK_OFFSET - DspConfig.HOP_LENGTH);
+            }
+            if (pos + DspConfig.HOP_LENGTH > stream.length) break;
+            pipeline.append(stream, pos, DspConfig.HOP_LENGTH);
+        }
+
+        // First candidate sits on the clap's onset (loudest sample of the clip)
+        int peak = 0;
+        int peakIndex = 0;
+        for (int i = 0; i < clap.length; i++) {
+            if (Math.abs(clap[i]) > peak) {
+                peak = Math.abs(clap[i]);
+                peakIndex = i;
+            }
+        }
+        assertEquals(DspConfig.SAMPLE_RATE + peakIndex, firstPeak);
+        assertEquals(Math.min(1f, peak / 32768f / SimulatedInferenceEngine.FULL_SCORE_PEAK), score, 1e-6f);
+
+        // Every scheduled candidate went to the engine exactly once
+        assertTrue(scored >= 1);
+        assertEquals(scored, engine.getInvocations());
+        assertEquals(scored, pipeline.getInferencesRun());
+        assertFalse(pipeline.isLastFromCascade());
+    }
+
+    /**
+     * Two clap groups due on the same hop: one batched invoke on two windows, same scores
+     * as the fixed-batch fallback's two single calls.
+     */
+    @Test
+    public void groupsDueTogetherAreBatchedLikeSingleCalls() throws Exception {
+        short[] clap = TestAssets.readPcm16("test_clap.wav");
+        short[] stream = new short[2 * DspConfig.SAMPLE_RATE];
+        // A soft clap, then a full one 483 samples later: found to fall due on one hop
+        int first = DspConfig.SAMPLE_RATE / 2;
+        for (int i = 0; i < clap.length; i++) {
+            stream[first + i] += (short) (clap[i] / 2);
+        }
+        for (int i = 0; i < clap.length; i++) {
+            stream[first + 483 + i] = (short) Math.max(Short.MIN_VALUE,
+                    Math.min(Short.MAX_VALUE, stream[first + 483 + i] + clap[i]));
+        }
+
+        SimulatedInferenceEngine batchEngine = new SimulatedInferenceEngine(0, false, true);
+        SimulatedInferenceEngine singleEngine = new SimulatedInferenceEngine(0);
+        DetectionPipeline batched = new DetectionPipeline(
+                new FusedFrontEnd(hann, mel, new LogMelExtractor(), DspConfig.N_FFT), batchEngine, null);
+        DetectionPipeline single = new DetectionPipeline(
+                new FusedFrontEnd(hann, mel, new LogMelExtractor(), DspConfig.N_FFT), singleEngine, null);
+
+        batched.append(stream, 0, DspConfig.N_FFT);
+        single.append(stream, 0, DspConfig.N_FFT);
+        int batches = 0;
+        for (int pos = DspConfig.N_FFT; pos + DspConfig.HOP_LENGTH <= stream.length; pos += DspConfig.HOP_LENGTH) {
+            float expected = single.analyze();
+            float actual = batched.analyze();
+            assertEquals("pos " + pos, expected, actual, 0f);
+            assertEquals(single.getScoredCount(), batched.getScoredCount());
+            for (int i = 0; i < batched.getScoredCount(); i++) {
+                assertEquals(single.getScore(i), batched.getScore(i), 0f);
+                assertEquals(single.getScoredPeakSample(i), batched.getScoredPeakSample(i));
+            }
+            if (batched.getScoredCount() > 1) {
+                batches++;
+                // Each group keeps its own peak, in stream order
+                assertTrue(batched.getScore(0) > DspConfig.CONFIDENCE_THRESHOLD);
+                assertTrue(batched.getScoredPeakSample(1) > batched.getScoredPeakSample(0));
+            }
+            single.append(stream, pos, DspConfig.HOP_LENGTH);
+            batched.append(stream, pos, DspConfig.HOP_LENGTH);
+        }
+
+        assertEquals(1, batches);
+        assertEquals(single.getInferencesRun(), batched.getInferencesRun());
+        // Fallback: one invoke per window; batch: one per fired hop
+        assertEquals(single.getInferencesRun(), singleEngine.getInvocations());
+        assertEquals(single.getInferencesRun() - 1, batchEngine.getInvocations());
+    }
+
+    /**
+     * Features-in, clap between warmup (40 hops) and a full patch (96 hops): the engine gets
+     * silence first and the newest frame last, where the scheduler aligned the peak.
+     */
+    @Test
+    public void featuresEngineGetsAnAlignedPatchBeforeTheStackerIsFull() throws Exception {
+        short[] clap = TestAssets.readPcm16("test_clap.wav");
+        short[] stream = new short[2 * DspConfig.SAMPLE_RATE];
+        Random rng = new Random(23);
+        for (int i = 0; i < stream.length; i++) stream[i] = (short) (rng.nextGaussian() * 60);
+        int at = DspConfig.SAMPLE_RATE / 2; // hop 50
+        for (int i = 0; i < clap.length; i++) stream[at + i] += clap[i];
+
+        final float[] patch = new float[DspConfig.TIME_FRAMES * DspConfig.N_MELS];
+        SimulatedInferenceEngine scorer = new SimulatedInferenceEngine(0, true);
+        InferenceEngine capturing = new InferenceEngine() {
+            @Override
+            public float scoreWaveform(float[] samples, int offset) {
+                throw new IllegalStateException();
+            }
+
+            @Override
+            public float scorePatch(float[] src, int offset) {
+                System.arraycopy(src, offset, patch, 0, patch.length);
+                return scorer.scorePatch(src, offset);
+            }
+
+            @Override
+            public void scoreWaveformBatch(float[] samples, int[] offsets, int count, float[] scores) {
+                throw new IllegalStateException();
+            }
+
+            @Override
+            public boolean acceptsFeatures() {
+                return true;
+            }
+
+            @Override
+            public boolean supportsBatch() {
+                return false;
+            }
+
+            @Override
+            public String describe() {
+                return "capturing";
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        DetectionPipeline pipeline = new DetectionPipeline(
+                new FusedFrontEnd(hann, mel, new LogMelExtractor(), DspConfig.N_FFT), capturing, null);
+
+        pipeline.append(stream, 0, DspConfig.N_FFT);
+        int frames = -1;
+        for (int pos = DspConfig.N_FFT; frames < 0; pos += DspConfig.HOP_LENGTH) {
+            if (!Float.isNaN(pipeline.analyze())) frames = pipeline.getFrameCount();
+            pipeline.append(stream, pos, DspConfig.HOP_LENGTH);
+        }
+        assertTrue("Scored after " + frames + " hops", frames >= DetectionPipeline.WARMUP_FRAMES
+                && frames < DspConfig.TIME_FRAMES);
+
+        for (int t = 0; t < DspConfig.TIME_FRAMES; t++) {
+            float loudest = -100f;
+            for (int m = 0; m < DspConfig.N_MELS; m++) {
+                loudest = Math.max(loudest, patch[t * DspConfig.N_MELS + m]);
+            }
+            if (t < DspConfig.TIME_FRAMES - frames) {
+                assertEquals("row " + t, -100f, loudest, 0f);
+            } else {
+                assertTrue("row " + t, loudest > -100f);
+            }
+        }
+        // The clap sits in the newest ~10 hops, not in the middle of the patch
+        int clapRow = 0;
+        float clapDb = -100f;
+        for (int i = 0; i < patch.length; i++) {
+            if (patch[i] > clapDb) {
+                clapDb = patch[i];
+                clapRow = i / DspConfig.N_MELS;
+            }
+        }
+        assertTrue("clap at row " + clapRow, clapRow >= DspConfig.TIME_FRAMES - 15);
+    }
+}
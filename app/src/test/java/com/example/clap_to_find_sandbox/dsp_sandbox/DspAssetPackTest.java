@@ -0,0 +1,124 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DspAssetPackTest {
+    private static final int N_FREQS = DspConfig.N_FFT / 2 + 1;
+
+    /** The committed pack must be rebuilt whenever its source assets change. */
+    @Test
+    public void bundledPackMatchesSourceAssets() throws Exception {
+        File root = TestAssets.dspDir();
+        DspAssetPack pack = DspAssetPack.map(new File(root, DspAssetPack.ASSET_NAME));
+
+        assertArrayEquals(readFloats(new File(root, "hann_window.bin")), toArray(pack.window()), 0f);
+        assertArrayEquals(readFloats(new File(root, "mel_filterbank.bin")), toArray(pack.melMatrix()), 0f);
+        assertEquals(DspConfig.SAMPLE_RATE, pack.getSampleRate());
+        assertEquals(DspConfig.HOP_LENGTH, pack.getHopLength());
+        assertEquals(DspConfig.TIME_FRAMES, pack.getExpectedFrames());
+        assertEquals(DspConfig.F_MAX, pack.getMelMaxHz(), 0f);
+    }
+
+    @Test
+    public void packViewsBuildTheSameFrontEnd() throws Exception {
+        File root = TestAssets.dspDir();
+        DspAssetPack pack = DspAssetPack.map(new File(root, DspAssetPack.ASSET_NAME));
+
+        HannWindow fromStream = new HannWindow(new FileInputStream(new File(root, "hann_window.bin")), DspConfig.WIN_LENGTH);
+        HannWindow fromPack = new HannWindow(pack.window(), DspConfig.WIN_LENGTH);
+        MelFilterbank melFromStream = new MelFilterbank(new FileInputStream(new File(root, "mel_filterbank.bin")),
+                DspConfig.N_MELS, N_FREQS);
+        MelFilterbank melFromPack = new MelFilterbank(pack.melMatrix(), DspConfig.N_MELS, N_FREQS);
+        assertEquals(melFromStream.getBandedWeightCount(), melFromPack.getBandedWeightCount());
+
+        Random rng = new Random(17);
+        float[] frame = new float[DspConfig.N_FFT];
+        float[] power = new float[N_FREQS];
+        for (int i = 0; i < frame.length; i++) frame[i] = rng.nextFloat() * 2 - 1;
+        for (int i = 0; i < power.length; i++) power[i] = rng.nextFloat() * 10;
+
+        float[] a = new float[DspConfig.N_FFT];
+        float[] b = new float[DspConfig.N_FFT];
+        fromStream.applyWindow(frame, 0, a);
+        fromPack.applyWindow(frame, 0, b);
+        assertArrayEquals(a, b, 0f);
+        assertArrayEquals(melFromStream.applyFilterbank(power), melFromPack.applyFilterbank(power), 0f);
+    }
+
+    @Test
+    public void rejectsCorruptStaleOrForeignPacks() throws Exception {
+        byte[] good = Files.readAllBytes(new File(TestAssets.dspDir(), DspAssetPack.ASSET_NAME).toPath());
+        new DspAssetPack(ByteBuffer.wrap(good));
+
+        // One flipped bit in the mel table
+        byte[] corrupt = good.clone();
+        corrupt[corrupt.length - 7] ^= 0x10;
+        assertRejected(corrupt, "checksum");
+
+        // Future format
+        byte[] newer = good.clone();
+        ByteBuffer.wrap(newer).order(ByteOrder.LITTLE_ENDIAN).putInt(4, DspAssetPack.VERSION + 1);
+        assertRejected(newer, "version");
+
+        assertRejected("RIFF....WAVEfmt ".getBytes(StandardCharsets.US_ASCII), "Not a DSP asset pack");
+
+        // Valid pack, but built for a different front end (checksum is recomputed by build())
+        File root = TestAssets.dspDir();
+        String json = new String(Files.readAllBytes(new File(root, "dsp_config.json").toPath()), StandardCharsets.UTF_8);
+        byte[] otherHop = DspAssetPack.build(json.replace("\"hopSizeSamples\": 160", "\"hopSizeSamples\": 320"),
+                readFloats(new File(root, "hann_window.bin")), readFloats(new File(root, "mel_filterbank.bin")));
+        assertRejected(otherHop, "different DspConfig");
+    }
+
+    @Test
+    public void viewsAreReadOnlyAndIndependent() throws Exception {
+        DspAssetPack pack = DspAssetPack.map(new File(TestAssets.dspDir(), DspAssetPack.ASSET_NAME));
+        FloatBuffer first = pack.window();
+        first.get(new float[10]);
+        assertEquals(DspConfig.WIN_LENGTH, pack.window().remaining());
+        assertTrue(first.isReadOnly());
+        try {
+            pack.melMatrix().put(0, 1f);
+            fail("View must be read-only");
+        } catch (java.nio.ReadOnlyBufferException expected) {
+            // ok
+        }
+    }
+
+    private static void assertRejected(byte[] pack, String reason) {
+        try {
+            new DspAssetPack(ByteBuffer.wrap(pack));
+            fail("Expected rejection: " + reason);
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(reason));
+        }
+    }
+
+    private static float[] toArray(FloatBuffer view) {
+        float[] out = new float[view.remaining()];
+        view.duplicate().get(out);
+        return out;
+    }
+
+    private static float[] readFloats(File file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        float[] floats = new float[bytes.length / 4];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(floats);
+        return floats;
+    }
+}
@@ -3,8 +3,6 @@ package com.example.clap_to_find_sandbox.dsp_sandbox;
 import org.junit.Test;
 import java.io.File;
 import java.io.FileInputStream;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 
 public class DspParityTest {
 
@@ -25,32 +23,17 @@ public class DspParityTest {
                 throw new Exception("WAV file not found at: " + wavFile.getAbsolutePath());
             }
 
-            FileInputStream wavIs = new FileInputStream(wavFile);
             FileInputStream hannIs = new FileInputStream(hannFile);
             FileInputStream melIs = new FileInputStream(melFile);
 
-            // Load WAV data
-            byte[] wavBytes = wavIs.readAllBytes();
-            wavIs.close();
-
-            // Convert to float (Standard 16-bit WAV skip 44-byte header)
-            int floatCount = (wavBytes.length - 44) / 2;
-            float[] floatData = new float[floatCount];
-            short[] shortArray = new short[floatCount];
-            ByteBuffer.wrap(wavBytes, 44, wavBytes.length - 44)
-                    .order(ByteOrder.LITTLE_ENDIAN)
-                    .asShortBuffer()
-                    .get(shortArray);
-
-            for (int i = 0; i < floatCount; i++) {
-                floatData[i] = shortArray[i] / 32768.0f;
-            }
-
-            System.out.println("--- STARTING DSP PARITY TEST ---");
-            System.out.println("Samples loaded: " + floatData.length);
+            // Stream the WAV hop by hop (RIFF chunks parsed, data chunk memory-mapped)
+            try (WavReader wav = new WavReader(wavFile)) {
+                System.out.println("--- STARTING DSP PARITY TEST ---");
+                System.out.println("Samples in file: " + wav.getSampleCount());
 
-            Parity_Validator validator = new Parity_Validator(hannIs, melIs);
-            validator.runParityTest(floatData, outputPath);
+                Parity_Validator validator = new Parity_Validator(hannIs, melIs);
+                validator.runParityTest(wav, outputPath);
+            }
 
             System.out.println("--- TEST COMPLETED ---");
             System.out.println("Results saved to: " + new File(outputPath).getAbsolutePath());
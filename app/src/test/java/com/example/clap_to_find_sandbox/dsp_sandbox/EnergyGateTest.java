@@ -0,0 +1,84 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EnergyGateTest {
+    private static final int HOPS_PER_SECOND = DspConfig.SAMPLE_RATE / DspConfig.HOP_LENGTH;
+
+    @Test
+    public void framesUnderPeakThresholdAreQuiet() {
+        EnergyGate gate = new EnergyGate();
+        assertFalse(gate.onHop(0f));
+        assertFalse(gate.onHop(ImpulseCriteria.PEAK_THRESHOLD * 0.9f));
+        assertTrue(gate.onHop(0.5f));
+        assertEquals(3, gate.getHops());
+        assertEquals(2, gate.getQuietHops());
+    }
+
+    /** Default: only PEAK_THRESHOLD, a steady loud room stays active however long it lasts. */
+    @Test
+    public void floorMarginIsOffByDefault() {
+        EnergyGate gate = new EnergyGate();
+        assertFalse(gate.isFloorMarginEnabled());
+        for (int i = 0; i < 60 * HOPS_PER_SECOND; i++) assertTrue(gate.onHop(0.1f));
+        assertEquals(0.1f, gate.getNoiseFloor(), 1e-6f);
+        assertEquals(ImpulseCriteria.PEAK_THRESHOLD, gate.getThreshold(), 0f);
+        assertEquals(0, gate.getQuietHops());
+    }
+
+    @Test
+    public void floorLearnsALouderRoom() {
+        EnergyGate gate = new EnergyGate();
+        gate.setFloorMarginEnabled(true);
+        gate.onHop(0.001f);
+        // Room gets loud: active at first, then the floor catches up and the same level is quiet
+        assertTrue(gate.onHop(0.1f));
+        for (int i = 0; i < 60 * HOPS_PER_SECOND; i++) gate.onHop(0.1f);
+        assertEquals(0.1f, gate.getNoiseFloor(), 1e-6f);
+        assertFalse(gate.onHop(0.1f));
+        // A clap well above the room still gets through; a quieter frame drops the floor at once
+        assertTrue(gate.onHop(0.5f));
+        gate.onHop(0.01f);
+        assertEquals(0.01f, gate.getNoiseFloor(), 0f);
+        assertEquals(ImpulseCriteria.PEAK_THRESHOLD, gate.getThreshold(), 0f);
+    }
+
+    @Test
+    public void idleAfterSustainedQuietUntilNextActiveHop() {
+        EnergyGate gate = new EnergyGate();
+        long idleAfter = (long) EnergyGate.IDLE_AFTER_MS * HOPS_PER_SECOND / 1000;
+        for (long i = 0; i < idleAfter - 1; i++) gate.onHop(0.01f);
+        assertFalse(gate.isIdle());
+        gate.onHop(0.01f);
+        assertTrue(gate.isIdle());
+        assertTrue(gate.onHop(0.5f));
+        assertFalse(gate.isIdle());
+    }
+
+    @Test
+    public void countsSkipRatioAndSavedCpu() {
+        EnergyGate gate = new EnergyGate();
+        assertEquals(0f, gate.getSkipRatio(), 0f);
+        gate.onHop(0.01f); // No active cost measured yet: nothing saved
+        assertEquals(0, gate.getCpuSavedNanos());
+        gate.onHop(0.5f);
+        gate.recordActiveCost(1000);
+        gate.onHop(0.01f);
+        gate.onHop(0.01f);
+        assertEquals(0.75f, gate.getSkipRatio(), 0f);
+        assertEquals(2000, gate.getCpuSavedNanos());
+        // Quiet hops that still build the log-mel frame save only the difference
+        gate.recordQuietCost(600);
+        gate.onHop(0.01f);
+        assertEquals(2400, gate.getCpuSavedNanos());
+
+        gate.reset();
+        assertEquals(0, gate.getHops());
+        assertEquals(0, gate.getCpuSavedNanos());
+        assertTrue(Float.isNaN(gate.getNoiseFloor()));
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Validates the documented FastMath error bounds and that fast-math log-mel
+ * stays within the Python parity tolerance.
+ */
+public class FastMathTest {
+
+    @Test
+    public void log2WithinDocumentedError() {
+        Random random = new Random(1);
+        double maxError = 0;
+        for (int i = 0; i < 2_000_000; i++) {
+            // Log-uniform over the range the pipeline feeds (1e-10 .. 1e4)
+            float x = (float) Math.pow(10, -10 + 14 * random.nextDouble());
+            double exact = Math.log(x) / Math.log(2.0);
+            maxError = Math.max(maxError, Math.abs(FastMath.log2(x) - exact));
+        }
+        assertTrue("log2 max error " + maxError, maxError <= FastMath.MAX_LOG2_ERROR);
+    }
+
+    @Test
+    public void exp2WithinDocumentedError() {
+        Random random = new Random(2);
+        double maxRelError = 0;
+        for (int i = 0; i < 2_000_000; i++) {
+            double x = -40 + 50 * random.nextDouble();
+            double exact = Math.pow(2.0, x);
+            maxRelError = Math.max(maxRelError, Math.abs(FastMath.exp2(x) - exact) / exact);
+        }
+        assertTrue("exp2 max relative error " + maxRelError, maxRelError <= FastMath.MAX_EXP2_REL_ERROR);
+    }
+
+    @Test
+    public void fastLogMelWithinParityTolerance() throws Exception {
+        File root = TestAssets.dspDir();
+        int nFreqs = DspConfig.N_FFT / 2 + 1;
+        HannWindow hannWindow = new HannWindow(new FileInputStream(new File(root, "hann_window.bin")), DspConfig.WIN_LENGTH);
+        FFTProcessor fftProcessor = new FFTProcessor(DspConfig.N_FFT);
+        MelFilterbank melFilterbank = new MelFilterbank(new FileInputStream(new File(root, "mel_filterbank.bin")), DspConfig.N_MELS, nFreqs);
+        FramePipeline exact = new FramePipeline(hannWindow, fftProcessor, melFilterbank,
+                new LogMelExtractor(false), DspConfig.N_FFT, DspConfig.N_MELS);
+        FramePipeline fast = new FramePipeline(hannWindow, new FFTProcessor(DspConfig.N_FFT), melFilterbank,
+                new LogMelExtractor(true), DspConfig.N_FFT, DspConfig.N_MELS);
+
+        float[] wav = WavReader.readAll(new File(root, "test_clap.wav"));
+        int nFrames = (wav.length - DspConfig.N_FFT) / DspConfig.HOP_LENGTH + 1;
+        for (int f = 0; f < nFrames; f++) {
+            int offset = f * DspConfig.HOP_LENGTH;
+            float[] expected = exact.process(wav, offset);
+            float[] actual = fast.process(wav, offset);
+            for (int m = 0; m < DspConfig.N_MELS; m++) {
+                assertEquals("frame " + f + " mel " + m, expected[m], actual[m], DspConfig.PARITY_TOLERANCE_DB);
+            }
+
+            // Flatness feeds the gate: relative error must stay tiny
+            float[] power = exact.getPowerSpectrum();
+            double flatness = ImpulseCriteria.spectralFlatness(power);
+            double fastFlatness = ImpulseCriteria.spectralFlatnessFast(power);
+            assertEquals("flatness frame " + f, flatness, fastFlatness, flatness * 5e-6);
+        }
+    }
+}
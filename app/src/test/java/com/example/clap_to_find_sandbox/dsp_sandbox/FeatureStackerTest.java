@@ -0,0 +1,82 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import static org.junit.Assert.assertEquals;
+
+public class FeatureStackerTest {
+
+    private static final int MELS = DspConfig.N_MELS;
+    private static final int FRAMES = DspConfig.TIME_FRAMES;
+
+    private static float[] frame(int t) {
+        float[] f = new float[MELS];
+        for (int m = 0; m < MELS; m++) f[m] = t * 1000 + m;
+        return f;
+    }
+
+    @Test
+    public void timeMajorPatchIsTransposeOfOrderedMatrix() {
+        FeatureStacker stacker = new FeatureStacker(MELS, FRAMES);
+        float[][] patch = new float[FRAMES][MELS];
+        // Before, at and after the first wrap
+        for (int t = 0; t < 2 * FRAMES + 17; t++) {
+            stacker.addFrame(frame(t));
+            if (t == 10 || t == FRAMES - 1 || t == 2 * FRAMES + 16) {
+                float[][] ordered = stacker.getOrderedMatrix();
+                stacker.copyTimeMajorPatch(patch);
+                for (int i = 0; i < FRAMES; i++) {
+                    for (int m = 0; m < MELS; m++) {
+                        assertEquals(ordered[m][i], patch[i][m], 0f);
+                    }
+                }
+            }
+        }
+        // Newest frame last
+        assertEquals(frame(2 * FRAMES + 16)[5], patch[FRAMES - 1][5], 0f);
+    }
+
+    @Test
+    public void flatPatchAndDirectExportMatchOrderedMatrix() {
+        FeatureStacker stacker = new FeatureStacker(MELS, FRAMES);
+        FloatBuffer direct = ByteBuffer.allocateDirect(MELS * FRAMES * 4)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        for (int t = 0; t < 3 * FRAMES + 5; t++) {
+            stacker.addFrame(frame(t));
+            float[][] ordered = stacker.getOrderedMatrix();
+            float[] flat = stacker.patchArray();
+            int offset = stacker.patchOffset();
+            stacker.exportPatch(direct);
+            assertEquals(0, direct.position());
+            for (int i = 0; i < FRAMES; i++) {
+                for (int m = 0; m < MELS; m++) {
+                    assertEquals(ordered[m][i], flat[offset + i * MELS + m], 0f);
+                    assertEquals(ordered[m][i], direct.get(i * MELS + m), 0f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void modelPatchPutsTheNewestFrameLastWhileFilling() {
+        FeatureStacker stacker = new FeatureStacker(MELS, FRAMES);
+        for (int t = 0; t < FRAMES + 3; t++) {
+            stacker.addFrame(frame(t));
+            float[] flat = stacker.patchArray();
+            int offset = stacker.modelPatchOffset();
+            int filled = Math.min(t + 1, FRAMES);
+            for (int i = 0; i < FRAMES; i++) {
+                // Silence first, then the frames so far, oldest to newest
+                float expected = i < FRAMES - filled ? -100f : frame(t - (FRAMES - 1 - i))[7];
+                assertEquals("t " + t + " row " + i, expected, flat[offset + i * MELS + 7], 0f);
+            }
+            if (stacker.isReady()) {
+                assertEquals(stacker.patchOffset(), offset);
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FixedPointFrontEndTest {
+    private static final int N_FREQS = DspConfig.N_FFT / 2 + 1;
+
+    private File root;
+    private HannWindow hann;
+    private MelFilterbank mel;
+
+    @Before
+    public void setup() throws Exception {
+        root = TestAssets.dspDir();
+        hann = new HannWindow(new FileInputStream(new File(root, "hann_window.bin")), DspConfig.WIN_LENGTH);
+        mel = new MelFilterbank(new FileInputStream(new File(root, "mel_filterbank.bin")), DspConfig.N_MELS, N_FREQS);
+    }
+
+    /**
+     * The measured bound: clip frames, noise from 1 LSB to full scale, tones and a clap in noise,
+     * against the float reference (JTransforms). Bins within DYNAMIC_RANGE_DB of the frame peak only.
+     */
+    @Test
+    public void staysWithinErrorBoundOfFloatFrontEnd() throws Exception {
+        FramePipeline reference = new FramePipeline(hann, new FFTProcessor(DspConfig.N_FFT), mel,
+                new LogMelExtractor(), DspConfig.N_FFT, DspConfig.N_MELS);
+        FixedPointFrontEnd fixed = new FixedPointFrontEnd(hann, mel, DspConfig.N_FFT);
+
+        float maxError = 0;
+        int checked = 0;
+        for (short[] signal : testSignals()) {
+            float[] floats = new float[signal.length];
+            for (int i = 0; i < signal.length; i++) floats[i] = signal[i] / 32768.0f;
+            for (int offset = 0; offset + DspConfig.N_FFT <= signal.length; offset += DspConfig.HOP_LENGTH) {
+                float[] expected = reference.process(floats, offset);
+                float[] actual = fixed.process(signal, offset, true, false);
+                float peak = -Float.MAX_VALUE;
+                for (float v : expected) peak = Math.max(peak, v);
+                for (int m = 0; m < expected.length; m++) {
+                    if (expected[m] < peak - FixedPointFrontEnd.DYNAMIC_RANGE_DB) continue;
+                    maxError = Math.max(maxError, Math.abs(expected[m] - actual[m]));
+                    checked++;
+                }
+            }
+        }
+        assertTrue(checked > 10000);
+        assertTrue("max error " + maxError + " dB", maxError <= FixedPointFrontEnd.MAX_ERROR_DB);
+    }
+
+    @Test
+    public void silenceIsTheLogFloor() {
+        FixedPointFrontEnd fixed = new FixedPointFrontEnd(hann, mel, DspConfig.N_FFT);
+        float[] logMel = fixed.process(new short[DspConfig.N_FFT], 0);
+        for (float v : logMel) assertEquals(-100.0f, v, 0f);
+        assertEquals(1.0, fixed.getFlatness(), 1e-9);
+        assertEquals(0f, fixed.getHfRatio(), 0f);
+    }
+
+    /** Gate summaries from the integer power: close to the float ones, not bit-exact. */
+    @Test
+    public void summariesTrackFloatFrontEnd() throws Exception {
+        FusedFrontEnd reference = new FusedFrontEnd(hann, mel, new LogMelExtractor(), DspConfig.N_FFT);
+        FixedPointFrontEnd fixed = new FixedPointFrontEnd(hann, mel, DspConfig.N_FFT);
+        short[] clip = clipPcm();
+        float[] floats = new float[clip.length];
+        for (int i = 0; i < clip.length; i++) floats[i] = clip[i] / 32768.0f;
+        for (int offset = 0; offset + DspConfig.N_FFT <= clip.length; offset += DspConfig.HOP_LENGTH) {
+            reference.process(floats, offset);
+            fixed.process(clip, offset);
+            assertEquals("flatness at " + offset, reference.getFlatness(), fixed.getFlatness(),
+                    0.05 * reference.getFlatness() + 1e-3);
+            assertEquals("hf ratio at " + offset, reference.getHfRatio(), fixed.getHfRatio(),
+                    0.01f * reference.getHfRatio() + 1e-4f);
+        }
+    }
+
+    /** push() + processLatest() sees the same newest frame as process() on the whole array. */
+    @Test
+    public void historyFollowsPushes() {
+        Random rng = new Random(20);
+        short[] stream = new short[DspConfig.N_FFT + 40 * DspConfig.HOP_LENGTH];
+        for (int i = 0; i < stream.length; i++) stream[i] = (short) (rng.nextGaussian() * 2000);
+        float[] floats = new float[stream.length];
+        for (int i = 0; i < stream.length; i++) floats[i] = stream[i] / 32768.0f;
+
+        FixedPointFrontEnd whole = new FixedPointFrontEnd(hann, mel, DspConfig.N_FFT);
+        FixedPointFrontEnd fromShorts = new FixedPointFrontEnd(hann, mel, DspConfig.N_FFT);
+        FixedPointFrontEnd fromFloats = new FixedPointFrontEnd(hann, mel, DspConfig.N_FFT);
+        fromShorts.push(stream, 0, DspConfig.N_FFT);
+        fromFloats.push(floats, 0, DspConfig.N_FFT);
+        for (int pos = DspConfig.N_FFT; ; pos += DspConfig.HOP_LENGTH) {
+            float[] expected = whole.process(stream, pos - DspConfig.N_FFT).clone();
+            float[] shorts = fromShorts.processLatest(true, false).clone();
+            float[] viaFloat = fromFloats.processLatest(true, false);
+            for (int m = 0; m < expected.length; m++) {
+                assertEquals(expected[m], shorts[m], 0f);
+                assertEquals(expected[m], viaFloat[m], 0f);
+            }
+            if (pos + DspConfig.HOP_LENGTH > stream.length) break;
+            fromShorts.push(stream, pos, DspConfig.HOP_LENGTH);
+            fromFloats.push(floats, pos, DspConfig.HOP_LENGTH);
+        }
+    }
+
+    @Test
+    public void tableLog2IsAccurate() {
+        Random rng = new Random(21);
+        for (int i = 0; i < 100000; i++) {
+            long v = rng.nextLong() >>> (1 + rng.nextInt(63));
+            if (v == 0) continue;
+            double expected = Math.log(v) / Math.log(2.0);
+            assertEquals("log2 " + v, expected, FixedPointFrontEnd.log2Q16(v) / 65536.0, 3e-5);
+        }
+    }
+
+    private List<short[]> testSignals() throws Exception {
+        List<short[]> signals = new ArrayList<>();
+        short[] clip = clipPcm();
+        signals.add(clip);
+
+        Random rng = new Random(20);
+        int length = DspConfig.N_FFT + 20 * DspConfig.HOP_LENGTH;
+        for (double level : new double[]{1, 10, 100, 1000, 10000}) {
+            short[] noise = new short[length];
+            for (int i = 0; i < length; i++) noise[i] = clamp(rng.nextGaussian() * level);
+            signals.add(noise);
+        }
+        short[] tones = new short[length];
+        short[] fullScale = new short[length];
+        for (int i = 0; i < length; i++) {
+            double t = i / (double) DspConfig.SAMPLE_RATE;
+            tones[i] = clamp(3000 * Math.sin(2 * Math.PI * 440 * t) + 800 * Math.sin(2 * Math.PI * 3100 * t)
+                    + rng.nextGaussian() * 20);
+            fullScale[i] = clamp(32767 * Math.sin(2 * Math.PI * 1000 * t));
+        }
+        signals.add(tones);
+        signals.add(fullScale);
+
+        short[] clapInNoise = new short[clip.length];
+        for (int i = 0; i < clip.length; i++) clapInNoise[i] = clamp(clip[i] + rng.nextGaussian() * 50);
+        signals.add(clapInNoise);
+        return signals;
+    }
+
+    private short[] clipPcm() throws Exception {
+        float[] wav = WavReader.readAll(new File(root, "test_clap.wav"));
+        short[] pcm = new short[wav.length];
+        for (int i = 0; i < wav.length; i++) pcm[i] = (short) Math.round(wav[i] * 32768.0f);
+        return pcm;
+    }
+
+    private static short clamp(double v) {
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(v)));
+    }
+}
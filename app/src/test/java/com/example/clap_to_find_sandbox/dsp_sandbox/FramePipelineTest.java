@@ -0,0 +1,58 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * The allocation-free FramePipeline must be bit-identical to the allocating stage APIs.
+ */
+public class FramePipelineTest {
+
+    private File root;
+    private HannWindow hannWindow;
+    private FFTProcessor fftProcessor;
+    private MelFilterbank melFilterbank;
+    private LogMelExtractor logMelExtractor;
+
+    @Before
+    public void setup() throws Exception {
+        root = TestAssets.dspDir();
+        int nFreqs = DspConfig.N_FFT / 2 + 1;
+        hannWindow = new HannWindow(new FileInputStream(new File(root, "hann_window.bin")), DspConfig.WIN_LENGTH);
+        fftProcessor = new FFTProcessor(DspConfig.N_FFT);
+        melFilterbank = new MelFilterbank(new FileInputStream(new File(root, "mel_filterbank.bin")), DspConfig.N_MELS, nFreqs);
+        logMelExtractor = new LogMelExtractor();
+    }
+
+    @Test
+    public void pipelineMatchesAllocatingStagesBitForBit() throws Exception {
+        float[] wav = WavReader.readAll(new File(root, "test_clap.wav"));
+        FramePipeline pipeline = new FramePipeline(hannWindow, fftProcessor, melFilterbank, logMelExtractor,
+                DspConfig.N_FFT, DspConfig.N_MELS);
+
+        int nFrames = (wav.length - DspConfig.N_FFT) / DspConfig.HOP_LENGTH + 1;
+        for (int i = 0; i < nFrames; i++) {
+            int offset = i * DspConfig.HOP_LENGTH;
+
+            // Reference: allocating stage APIs
+            float[] frame = new float[DspConfig.N_FFT];
+            System.arraycopy(wav, offset, frame, 0, DspConfig.N_FFT);
+            hannWindow.applyWindow(frame);
+            float[] power = fftProcessor.getPowerSpectrum(frame);
+            float[] mels = melFilterbank.applyFilterbank(power);
+            float[] logMels = logMelExtractor.computeLogMel(mels);
+
+            float[] pipelineLogMels = pipeline.process(wav, offset);
+
+            assertArrayEquals("Windowed frame " + i, frame, pipeline.getWindowedFrame(), 0f);
+            assertArrayEquals("Power frame " + i, power, pipeline.getPowerSpectrum(), 0f);
+            assertArrayEquals("Mel frame " + i, mels, pipeline.getMelEnergies(), 0f);
+            assertArrayEquals("Log-Mel frame " + i, logMels, pipelineLogMels, 0f);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FusedFrontEndTest {
+    private static final int N_FREQS = DspConfig.N_FFT / 2 + 1;
+
+    private HannWindow hann;
+    private MelFilterbank mel;
+
+    @Before
+    public void setup() throws Exception {
+        File root = TestAssets.dspDir();
+        hann = new HannWindow(new FileInputStream(new File(root, "hann_window.bin")), DspConfig.WIN_LENGTH);
+        mel = new MelFilterbank(new FileInputStream(new File(root, "mel_filterbank.bin")), DspConfig.N_MELS, N_FREQS);
+    }
+
+    /** Every frame of the clip: mel energies, log-mels and both gate summaries, bit for bit. */
+    @Test
+    public void clipFramesAreBitIdenticalToStagedPath() throws Exception {
+        File root = TestAssets.dspDir();
+        float[] wav = WavReader.readAll(new File(root, "test_clap.wav"));
+        int nFrames = (wav.length - DspConfig.N_FFT) / DspConfig.HOP_LENGTH + 1;
+
+        for (boolean fastMath : new boolean[]{false, true}) {
+            FramePipeline staged = stagedPipeline(fastMath);
+            FusedFrontEnd fused = new FusedFrontEnd(hann, mel, new LogMelExtractor(fastMath), DspConfig.N_FFT);
+            fused.setFastMath(fastMath);
+            for (int i = 0; i < nFrames; i++) {
+                int offset = i * DspConfig.HOP_LENGTH;
+                assertFrameIdentical("fast " + fastMath + ", frame " + i, staged, fused, fastMath, wav, offset);
+            }
+        }
+    }
+
+    /** Odd offsets into a longer buffer (the ring's view), quiet to clipping levels. */
+    @Test
+    public void randomFramesAreBitIdenticalToStagedPath() {
+        Random rng = new Random(19);
+        FramePipeline staged = stagedPipeline(false);
+        FusedFrontEnd fused = new FusedFrontEnd(hann, mel, new LogMelExtractor(), DspConfig.N_FFT);
+        float[] buffer = new float[4 * DspConfig.N_FFT];
+        for (int trial = 0; trial < 200; trial++) {
+            float gain = (float) Math.pow(10, -5 + rng.nextInt(6));
+            for (int i = 0; i < buffer.length; i++) buffer[i] = (rng.nextFloat() * 2 - 1) * gain;
+            int offset = rng.nextInt(buffer.length - DspConfig.N_FFT + 1);
+            assertFrameIdentical("trial " + trial, staged, fused, false, buffer, offset);
+        }
+    }
+
+    @Test
+    public void computesOnlyWhatIsAskedFor() {
+        FusedFrontEnd fused = new FusedFrontEnd(hann, mel, new LogMelExtractor(), DspConfig.N_FFT);
+        float[] frame = new float[DspConfig.N_FFT];
+        frame[100] = 0.5f;
+
+        float[] logMel = fused.process(frame, 0, true, false).clone();
+        assertTrue(Double.isNaN(fused.getFlatness()));
+        assertTrue(Float.isNaN(fused.getHfRatio()));
+
+        // Summaries only: log-mel buffer left as it was, even for a different frame
+        frame[100] = 0f;
+        frame[200] = 0.25f;
+        fused.process(frame, 0, false, true);
+        assertEquals(logMel[0], fused.getLogMelFrame()[0], 0f);
+        assertTrue(fused.getFlatness() > 0);
+        assertTrue(fused.getHfRatio() >= 0);
+    }
+
+    private FramePipeline stagedPipeline(boolean fastMath) {
+        return new FramePipeline(hann, new FFTProcessor(DspConfig.N_FFT, DspConfig.WIN_LENGTH, true), mel,
+                new LogMelExtractor(fastMath), DspConfig.N_FFT, DspConfig.N_MELS);
+    }
+
+    private static void assertFrameIdentical(String message, FramePipeline staged, FusedFrontEnd fused,
+                                             boolean fastMath, float[] samples, int offset) {
+        float[] expected = staged.process(samples, offset);
+        float[] power = staged.getPowerSpectrum();
+        float[] actual = fused.process(samples, offset);
+
+        assertBits(message + ", mel", staged.getMelEnergies(), fused.getMelEnergies());
+        assertBits(message + ", log-mel", expected, actual);
+        double expectedFlatness = fastMath
+                ? ImpulseCriteria.spectralFlatnessFast(power)
+                : ImpulseCriteria.spectralFlatness(power);
+        assertEquals(message + ", flatness", Double.doubleToLongBits(expectedFlatness),
+                Double.doubleToLongBits(fused.getFlatness()));
+        assertEquals(message + ", hf ratio", Float.floatToIntBits(ImpulseCriteria.hfRatio(power)),
+                Float.floatToIntBits(fused.getHfRatio()));
+    }
+
+    private static void assertBits(String message, float[] expected, float[] actual) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(message + " [" + i + "]", Float.floatToIntBits(expected[i]), Float.floatToIntBits(actual[i]));
+        }
+    }
+}
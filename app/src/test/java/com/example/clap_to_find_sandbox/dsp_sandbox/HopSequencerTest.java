@@ -0,0 +1,128 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HopSequencerTest {
+
+    private HannWindow hann;
+    private MelFilterbank mel;
+    private short[] stream;
+
+    @Before
+    public void setup() throws Exception {
+        File root = TestAssets.dspDir();
+        hann = new HannWindow(new FileInputStream(new File(root, "hann_window.bin")), DspConfig.WIN_LENGTH);
+        mel = new MelFilterbank(new FileInputStream(new File(root, "mel_filterbank.bin")),
+                DspConfig.N_MELS, DspConfig.N_FFT / 2 + 1);
+
+        // 3 s of low noise with two claps of the test clip
+        float[] clap = WavReader.readAll(new File(root, "test_clap.wav"));
+        stream = new short[3 * DspConfig.SAMPLE_RATE + 77];
+        Random rng = new Random(21);
+        for (int i = 0; i < stream.length; i++) stream[i] = (short) (rng.nextGaussian() * 60);
+        for (int at : new int[]{DspConfig.SAMPLE_RATE, 2 * DspConfig.SAMPLE_RATE - 1234}) {
+            for (int i = 0; i < clap.length; i++) stream[at + i] += (short) Math.round(clap[i] * 32768.0f);
+        }
+    }
+
+    /** The old capture loop: N_FFT, then { analyze(); read one hop }. */
+    private List<Float> onePerRead(DetectionPipeline pipeline) throws Exception {
+        List<Float> out = new ArrayList<>();
+        pipeline.append(stream, 0, DspConfig.N_FFT);
+        for (int pos = DspConfig.N_FFT; ; pos += DspConfig.HOP_LENGTH) {
+            out.add(pipeline.analyze());
+            if (pos + DspConfig.HOP_LENGTH > stream.length) break;
+            pipeline.append(stream, pos, DspConfig.HOP_LENGTH);
+        }
+        return out;
+    }
+
+    private List<Float> blocks(DetectionPipeline pipeline, int... sizes) throws Exception {
+        List<Float> out = new ArrayList<>();
+        HopSequencer sequencer = new HopSequencer(pipeline);
+        // Stand-in for the mic: whole or short blocks, the way AudioRecord.read returns them
+        ArrayAudioSource source = new ArrayAudioSource(stream, sizes);
+        ShortBuffer block;
+        while ((block = source.read()) != null) {
+            int before = out.size();
+            int hops = sequencer.accept(block.array(), block.position(), block.remaining(), out::add);
+            assertEquals(out.size() - before, hops);
+        }
+        assertEquals(out.size(), sequencer.getHops());
+        return out;
+    }
+
+    private DetectionPipeline newPipeline(boolean featuresIn) {
+        return new DetectionPipeline(new FusedFrontEnd(hann, mel, new LogMelExtractor(), DspConfig.N_FFT),
+                new SimulatedInferenceEngine(0, featuresIn), null);
+    }
+
+    @Test
+    public void blockReadsReproduceTheOneHopPerReadSequence() throws Exception {
+        for (boolean featuresIn : new boolean[]{false, true}) {
+            DetectionPipeline reference = newPipeline(featuresIn);
+            List<Float> expected = onePerRead(reference);
+            int scored = 0;
+            for (float p : expected) if (!Float.isNaN(p)) scored++;
+            assertTrue(scored >= 2);
+
+            int[][] schedules = {
+                    {DspConfig.HOP_LENGTH},             // 10 ms
+                    {DspConfig.CAPTURE_BLOCK_SAMPLES},  // 40 ms
+                    {1280},                              // 80 ms
+                    {640, 640, 13, 500, 1},              // short reads and odd sizes
+                    {4096},
+            };
+            for (int[] sizes : schedules) {
+                DetectionPipeline pipeline = newPipeline(featuresIn);
+                List<Float> actual = blocks(pipeline, sizes);
+                assertEquals("blocks " + sizes[0], expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals("blocks " + sizes[0] + ", hop " + i,
+                            Float.floatToIntBits(expected.get(i)), Float.floatToIntBits(actual.get(i)));
+                }
+                assertEquals(stream.length, pipeline.getSampleClock()); // partial last hop appended, not analyzed
+                assertEquals(reference.getInferencesRun(), pipeline.getInferencesRun());
+            }
+        }
+    }
+
+    @Test
+    public void firstHopWaitsForAFullFrame() throws Exception {
+        HopSequencer sequencer = new HopSequencer(newPipeline(false));
+        List<Float> out = new ArrayList<>();
+        assertEquals(0, sequencer.accept(stream, 0, DspConfig.N_FFT - 1, out::add));
+        assertEquals(1, sequencer.getSamplesUntilNextHop());
+        assertEquals(1, sequencer.accept(stream, DspConfig.N_FFT - 1, 1, out::add));
+        assertEquals(DspConfig.HOP_LENGTH, sequencer.getSamplesUntilNextHop());
+        assertEquals(3, sequencer.accept(stream, DspConfig.N_FFT, 3 * DspConfig.HOP_LENGTH + 5, out::add));
+        assertEquals(DspConfig.HOP_LENGTH - 5, sequencer.getSamplesUntilNextHop());
+        assertEquals(4, out.size());
+    }
+
+    /** Float blocks (ENCODING_PCM_FLOAT) cut the same way as PCM16. */
+    @Test
+    public void floatBlocksMatchPcm16Blocks() throws Exception {
+        float[] floats = new float[stream.length];
+        for (int i = 0; i < stream.length; i++) floats[i] = stream[i] / 32768.0f;
+        List<Float> expected = blocks(newPipeline(false), DspConfig.CAPTURE_BLOCK_SAMPLES);
+
+        List<Float> actual = new ArrayList<>();
+        HopSequencer sequencer = new HopSequencer(newPipeline(false));
+        for (int pos = 0; pos < floats.length; pos += 700) {
+            sequencer.accept(floats, pos, Math.min(700, floats.length - pos), actual::add);
+        }
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class InferenceSchedulerTest {
+
+    private static final int HOP = DspConfig.HOP_LENGTH;
+    private static final int WINDOW = DspConfig.MODEL_INPUT_SIZE;
+
+    @Test
+    public void clusteredHitsShareOneAlignedInference() {
+        InferenceScheduler scheduler = new InferenceScheduler(WINDOW, 5 * HOP, WINDOW - 1600);
+        long clock = 100L * HOP;
+        long peak = clock - 200;
+        int fired = 0;
+
+        // One clap passes the gate on 4 consecutive hops; the 2nd hop sees the strongest peak
+        for (int hop = 0; hop < 40; hop++) {
+            clock += HOP;
+            boolean hit = hop < 4;
+            long hitPeak = hop == 1 ? peak + 30 : peak;
+            float hitValue = hop == 1 ? 0.9f : 0.5f;
+            if (scheduler.onHop(clock, hit, hitPeak, hitValue)) {
+                fired++;
+                int position = scheduler.getLastPeakPosition();
+                assertTrue("Peak at " + position, position <= WINDOW - 1600 && position > WINDOW - 1600 - HOP);
+            }
+        }
+        assertEquals(1, fired);
+        assertEquals(4, scheduler.getImpulseHits());
+        assertEquals(1, scheduler.getInferencesRun());
+        assertEquals(3, scheduler.getInferencesSaved());
+        assertFalse(scheduler.hasPending());
+    }
+
+    @Test
+    public void separateClapsStillGetTheirOwnInference() {
+        InferenceScheduler scheduler = new InferenceScheduler(WINDOW, 5 * HOP, WINDOW - 1600);
+        long clock = 0;
+        int fired = 0;
+        // Claps every 300ms (30 hops), each passing the gate on 3 hops
+        for (int hop = 0; hop < 200; hop++) {
+            clock += HOP;
+            boolean hit = hop % 30 < 3 && hop < 120;
+            if (scheduler.onHop(clock, hit, clock - 100, 0.5f)) fired++;
+        }
+        assertEquals(4, fired);
+        assertEquals(12, scheduler.getImpulseHits());
+        assertEquals(8, scheduler.getInferencesSaved());
+    }
+
+    @Test
+    public void lateAlignmentQueuesAFollowingGroup() {
+        // Peak must sit at the START of the window: groups wait almost a full window
+        InferenceScheduler scheduler = new InferenceScheduler(WINDOW, 2 * HOP, 1000);
+        long clock = 0;
+        int fired = 0;
+        for (int hop = 0; hop < 300; hop++) {
+            clock += HOP;
+            boolean hit = hop == 0 || hop == 10;
+            if (scheduler.onHop(clock, hit, clock - 100, 0.5f)) fired++;
+        }
+        assertEquals(2, fired);
+        assertEquals(0, scheduler.getInferencesSaved());
+    }
+
+    @Test
+    public void groupsDueOnTheSameHopKeepTheirOwnWindows() {
+        for (int history : new int[]{0, HOP}) {
+            InferenceScheduler scheduler = new InferenceScheduler(WINDOW, 5 * HOP, WINDOW - 1600, history);
+            long start = 100L * HOP;
+            int fired = 0;
+            for (int hop = 0; hop < 40; hop++) {
+                long clock = start + hop * HOP;
+                boolean hit = hop == 0 || hop == 4 || hop == 6;
+                // Group A: strongest peak on its 2nd hit, due at start + 2250.
+                // Group B opens at hop 6, peak 90 samples later: due at start + 2340, same hop.
+                long peak = hop == 4 ? start + 650 : hop == 6 ? start + 740 : clock - 100;
+                float value = hop == 4 ? 0.9f : 0.5f;
+                if (!scheduler.onHop(clock, hit, peak, value)) continue;
+                fired++;
+                assertEquals(start + 15 * HOP, clock);
+                if (history == 0) {
+                    // Both share the current window, aligned on the newest group
+                    assertEquals(1, scheduler.getFiredCount());
+                    assertEquals(clock, scheduler.getFiredWindowEnd(0));
+                    assertEquals(start + 740, scheduler.getFiredPeakSample(0));
+                } else {
+                    // A's window ends 90 samples earlier: both peaks sit at the same position
+                    assertEquals(2, scheduler.getFiredCount());
+                    assertEquals(clock - 90, scheduler.getFiredWindowEnd(0));
+                    assertEquals(start + 650, scheduler.getFiredPeakSample(0));
+                    assertEquals(clock, scheduler.getFiredWindowEnd(1));
+                    assertEquals(start + 740, scheduler.getFiredPeakSample(1));
+                    assertEquals(scheduler.getFiredPeakPosition(0), scheduler.getFiredPeakPosition(1));
+                    assertEquals(scheduler.getFiredPeakPosition(1), scheduler.getLastPeakPosition());
+                }
+            }
+            assertEquals(1, fired);
+            assertEquals(history == 0 ? 1 : 2, scheduler.getInferencesRun());
+            assertEquals(history == 0 ? 2 : 1, scheduler.getInferencesSaved());
+        }
+    }
+}
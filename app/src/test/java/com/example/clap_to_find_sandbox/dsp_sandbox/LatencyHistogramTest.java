@@ -0,0 +1,84 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsCoverEveryValueWithinOneEighth() {
+        int previous = -1;
+        for (long v = 0; v < 1 << 20; v++) {
+            int bucket = LatencyHistogram.bucketOf(v);
+            assertTrue(bucket == previous || bucket == previous + 1);
+            assertTrue(v <= LatencyHistogram.bucketUpperBound(bucket));
+            assertTrue(LatencyHistogram.bucketUpperBound(bucket) - v <= v / LatencyHistogram.SUB_BUCKETS);
+            previous = bucket;
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(LatencyHistogram.MAX_NANOS));
+        assertEquals(LatencyHistogram.MAX_NANOS, LatencyHistogram.bucketUpperBound(LatencyHistogram.BUCKETS - 1));
+    }
+
+    @Test
+    public void percentilesMatchTheSortedSamples() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] samples = new long[10000];
+        Random rng = new Random(25);
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (long) Math.exp(8 + 2 * rng.nextGaussian()); // ~3 us median, long tail
+            histogram.record(samples[i]);
+        }
+        java.util.Arrays.sort(samples);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(samples.length, snapshot.getCount());
+        assertEquals(samples[samples.length - 1], snapshot.getMaxNanos());
+        for (double p : new double[]{50, 90, 99, 99.9}) {
+            long exact = samples[(int) Math.ceil(p / 100 * samples.length) - 1];
+            long reported = snapshot.getPercentileNanos(p);
+            assertTrue("p" + p, reported >= exact && reported - exact <= exact / LatencyHistogram.SUB_BUCKETS);
+        }
+        assertEquals(samples[samples.length - 1], snapshot.getPercentileNanos(100));
+        long over = 0;
+        for (long s : samples) if (LatencyHistogram.bucketOf(s) > LatencyHistogram.bucketOf(100_000)) over++;
+        assertEquals(over, snapshot.countAbove(100_000));
+    }
+
+    @Test
+    public void emptyAndOutOfRange() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.snapshot().getPercentileNanos(99));
+        assertEquals(0, histogram.snapshot().getMeanNanos(), 0);
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(2, snapshot.getCount());
+        assertEquals(LatencyHistogram.MAX_NANOS, snapshot.getMaxNanos());
+        assertEquals(0, snapshot.getPercentileNanos(50));
+    }
+
+    /** One writer, a reader snapshotting all along: counters only ever grow, nothing is lost. */
+    @Test
+    public void snapshotsWhileRecording() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int total = 32 << 16; // Whole cycles of 0..0xFFFF
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < total; i++) histogram.record(i & 0xFFFF);
+        });
+        writer.start();
+        long last = 0;
+        while (writer.isAlive()) {
+            long count = histogram.snapshot().getCount();
+            assertTrue(count >= last);
+            last = count;
+        }
+        writer.join();
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(total, snapshot.getCount());
+        assertEquals(0xFFFF, snapshot.getMaxNanos());
+        assertEquals(0xFFFF / 2.0, snapshot.getMeanNanos(), 0);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyStatsTest {
+
+    /** Every stage of a replay is timed: one HOP / FRONT_END / GATE / CALLBACKS per hop, one INFERENCE per window. */
+    @Test
+    public void pipelineRecordsEveryStage() throws Exception {
+        File root = TestAssets.dspDir();
+        HannWindow hann = new HannWindow(new FileInputStream(new File(root, "hann_window.bin")), DspConfig.WIN_LENGTH);
+        MelFilterbank mel = new MelFilterbank(new FileInputStream(new File(root, "mel_filterbank.bin")),
+                DspConfig.N_MELS, DspConfig.N_FFT / 2 + 1);
+
+        float[] clap = WavReader.readAll(new File(root, "test_clap.wav"));
+        short[] stream = new short[3 * DspConfig.SAMPLE_RATE];
+        Random rng = new Random(25);
+        for (int i = 0; i < stream.length; i++) stream[i] = (short) (rng.nextGaussian() * 60);
+        for (int i = 0; i < clap.length; i++) stream[DspConfig.SAMPLE_RATE + i] += (short) Math.round(clap[i] * 32768.0f);
+
+        // A scorer slower than a hop: every inference is an over-budget hop
+        long costNanos = 2 * LatencyStats.HOP_BUDGET_NANOS;
+        DetectionPipeline pipeline = new DetectionPipeline(
+                new FusedFrontEnd(hann, mel, new LogMelExtractor(), DspConfig.N_FFT),
+                new SimulatedInferenceEngine(costNanos), null);
+        LatencyStats stats = new LatencyStats();
+        pipeline.setLatencyStats(stats);
+        DetectionLoop loop = new DetectionLoop(pipeline, ClapPattern.threeClaps(), new DetectionLoop.Listener() {
+            @Override
+            public void onConfidence(float probability) {
+            }
+
+            @Override
+            public void onClap(float probability, long peakHop, ClapPattern.Outcome outcome) {
+            }
+        });
+        long hops = loop.run(new ArrayAudioSource(stream));
+
+        LatencyStats.Snapshot snapshot = stats.snapshot();
+        assertEquals(hops, snapshot.getHops());
+        assertEquals(hops, snapshot.get(LatencyStats.Stage.FRONT_END).getCount());
+        assertEquals(hops, snapshot.get(LatencyStats.Stage.GATE).getCount());
+        assertEquals(hops, snapshot.get(LatencyStats.Stage.CALLBACKS).getCount());
+        assertTrue(snapshot.get(LatencyStats.Stage.APPEND).getCount() >= hops); // Split at hop and block edges
+        assertEquals(0, snapshot.get(LatencyStats.Stage.READ_WAIT).getCount()); // Capture thread only
+
+        long inferences = pipeline.getInferencesRun();
+        assertTrue(inferences >= 1);
+        assertEquals(inferences, snapshot.getInferences());
+        assertEquals(inferences, snapshot.getInferencesLastMinute());
+        assertEquals(inferences, snapshot.get(LatencyStats.Stage.INFERENCE).getCount());
+        assertTrue(snapshot.get(LatencyStats.Stage.INFERENCE).getPercentileNanos(50) >= costNanos);
+        assertTrue(snapshot.getOverBudgetHops() >= inferences);
+        assertTrue(snapshot.describe().contains("over-budget hops"));
+    }
+
+    @Test
+    public void inferencesPerMinuteFollowTheSampleClock() {
+        LatencyStats stats = new LatencyStats();
+        long second = DspConfig.SAMPLE_RATE;
+        stats.recordInference(10 * second, 1000);
+        stats.recordInference(10 * second + 5, 1000);
+        stats.recordInference(40 * second, 1000);
+        assertEquals(3, stats.snapshot().getInferencesLastMinute());
+        stats.recordHop(69 * second, 1000);
+        assertEquals(3, stats.snapshot().getInferencesLastMinute());
+        stats.recordHop(70 * second, 1000); // Second 10 left the window
+        assertEquals(1, stats.snapshot().getInferencesLastMinute());
+        stats.recordHop(500 * second, 1000);
+        assertEquals(0, stats.snapshot().getInferencesLastMinute());
+        assertEquals(3, stats.snapshot().getInferences());
+    }
+
+    @Test
+    public void hopsOverBudgetAreCounted() {
+        LatencyStats stats = new LatencyStats();
+        stats.recordHop(0, LatencyStats.HOP_BUDGET_NANOS);
+        stats.recordHop(0, LatencyStats.HOP_BUDGET_NANOS + 1);
+        stats.recordHop(0, 50);
+        assertEquals(10_000_000L, LatencyStats.HOP_BUDGET_NANOS);
+        assertEquals(1, stats.snapshot().getOverBudgetHops());
+        assertEquals(3, stats.snapshot().getHops());
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LogMelPatchClassifierTest {
+
+    private static final int MELS = 4;
+    private static final int FRAMES = 3;
+
+    private static ByteArrayInputStream weightsFile(float weight, float bias, float rejectBelow, float acceptAbove) {
+        ByteBuffer buffer = ByteBuffer.allocate((MELS * FRAMES + 3) * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < MELS * FRAMES; i++) buffer.putFloat(weight);
+        buffer.putFloat(bias).putFloat(rejectBelow).putFloat(acceptAbove);
+        return new ByteArrayInputStream(buffer.array());
+    }
+
+    private static FeatureStacker filledStacker(float value) {
+        FeatureStacker stacker = new FeatureStacker(MELS, FRAMES);
+        float[] frame = new float[MELS];
+        Arrays.fill(frame, value);
+        for (int t = 0; t < FRAMES; t++) stacker.addFrame(frame);
+        return stacker;
+    }
+
+    @Test
+    public void confidentScoresSkipYamnetAndMiddleScoresDoNot() throws Exception {
+        LogMelPatchClassifier cascade = new LogMelPatchClassifier(weightsFile(0.1f, 0f, 0.2f, 0.8f), MELS, FRAMES);
+
+        // Warm-up: stacker not full yet -> defer to YAMNet
+        FeatureStacker warming = new FeatureStacker(MELS, FRAMES);
+        warming.addFrame(new float[MELS]);
+        assertEquals(LogMelPatchClassifier.Decision.AMBIGUOUS, cascade.classify(warming));
+
+        // logit = 12 * 0.1 * x
+        assertEquals(LogMelPatchClassifier.Decision.ACCEPT, cascade.classify(filledStacker(5f)));
+        assertEquals(1.0 / (1.0 + Math.exp(-6.0)), cascade.getLastScore(), 1e-6);
+        assertEquals(LogMelPatchClassifier.Decision.REJECT, cascade.classify(filledStacker(-5f)));
+        assertEquals(LogMelPatchClassifier.Decision.AMBIGUOUS, cascade.classify(filledStacker(0f)));
+
+        assertEquals(1, cascade.getAcceptedCount());
+        assertEquals(1, cascade.getRejectedCount());
+        assertEquals(2, cascade.getAmbiguousCount());
+    }
+
+    @Test
+    public void truncatedWeightsAreRejected() {
+        byte[] full = weightsFile(0f, 0f, 0.2f, 0.8f).readAllBytes();
+        try {
+            new LogMelPatchClassifier(new ByteArrayInputStream(Arrays.copyOf(full, full.length - 4)), MELS, FRAMES);
+            fail("Short weights file must not load");
+        } catch (Exception expected) {
+            // EOFException from readFully
+        }
+    }
+
+    @Test
+    public void acceptBelowConfidenceThresholdIsRejected() {
+        try {
+            new LogMelPatchClassifier(weightsFile(0f, 0f, 0.1f, DspConfig.CONFIDENCE_THRESHOLD - 0.1f), MELS, FRAMES);
+            fail("An ACCEPT under CONFIDENCE_THRESHOLD would be dropped by the detection loop");
+        } catch (Exception expected) {
+            assertTrue(expected.getMessage().contains("confidence threshold"));
+        }
+    }
+}
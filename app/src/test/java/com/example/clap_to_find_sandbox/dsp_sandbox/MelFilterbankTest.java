@@ -0,0 +1,75 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The banded filterbank must agree with the dense [nMels][nFreqs] product from mel_filterbank.bin.
+ */
+public class MelFilterbankTest {
+
+    private static final int N_FREQS = DspConfig.N_FFT / 2 + 1;
+
+    private File melFile;
+    private float[][] denseMatrix;
+
+    @Before
+    public void setup() throws Exception {
+        File root = TestAssets.dspDir();
+        melFile = new File(root, "mel_filterbank.bin");
+
+        byte[] bytes;
+        try (FileInputStream is = new FileInputStream(melFile)) {
+            bytes = is.readAllBytes();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        denseMatrix = new float[DspConfig.N_MELS][N_FREQS];
+        for (int m = 0; m < DspConfig.N_MELS; m++) {
+            for (int f = 0; f < N_FREQS; f++) {
+                denseMatrix[m][f] = buffer.getFloat();
+            }
+        }
+    }
+
+    @Test
+    public void bandedMatchesDenseProduct() throws Exception {
+        MelFilterbank melFilterbank = new MelFilterbank(new FileInputStream(melFile), DspConfig.N_MELS, N_FREQS);
+        Random random = new Random(42);
+        float[] power = new float[N_FREQS];
+        float[] mels = new float[DspConfig.N_MELS];
+
+        for (int trial = 0; trial < 200; trial++) {
+            // Span several decades, like real power spectra
+            float scale = (float) Math.pow(10, -random.nextInt(10));
+            for (int f = 0; f < N_FREQS; f++) {
+                power[f] = random.nextFloat() * scale;
+            }
+            melFilterbank.applyFilterbank(power, mels);
+
+            for (int m = 0; m < DspConfig.N_MELS; m++) {
+                float expected = 0.0f;
+                for (int f = 0; f < N_FREQS; f++) {
+                    expected += power[f] * denseMatrix[m][f];
+                }
+                assertEquals("Mel " + m + " trial " + trial, expected, mels[m], Math.abs(expected) * 1e-6f);
+            }
+        }
+    }
+
+    @Test
+    public void bandedTableIsMuchSmallerThanDense() throws Exception {
+        MelFilterbank melFilterbank = new MelFilterbank(new FileInputStream(melFile), DspConfig.N_MELS, N_FREQS);
+        int denseCount = DspConfig.N_MELS * N_FREQS;
+        assertTrue("Banded weights: " + melFilterbank.getBandedWeightCount(),
+                melFilterbank.getBandedWeightCount() * 10 < denseCount);
+    }
+}
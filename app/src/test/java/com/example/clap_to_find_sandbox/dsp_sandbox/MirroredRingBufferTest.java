@@ -0,0 +1,43 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The mirrored ring must always expose the same window the old shift-and-append buffer held.
+ */
+public class MirroredRingBufferTest {
+
+    @Test
+    public void contiguousViewMatchesShiftedBuffer() {
+        int capacity = 1000;
+        int hop = DspConfig.HOP_LENGTH;
+        MirroredRingBuffer ring = new MirroredRingBuffer(capacity);
+        float[] shifted = new float[capacity];
+        short[] pcm = new short[hop];
+
+        for (int step = 0; step < 50; step++) {
+            for (int i = 0; i < hop; i++) {
+                pcm[i] = (short) (step * 131 + i * 7);
+            }
+            ring.appendPcm16(pcm, 0, hop);
+
+            System.arraycopy(shifted, hop, shifted, 0, capacity - hop);
+            for (int i = 0; i < hop; i++) {
+                shifted[capacity - hop + i] = pcm[i] / 32768.0f;
+            }
+
+            float[] data = ring.array();
+            int offset = ring.offset();
+            for (int i = 0; i < capacity; i++) {
+                assertEquals("step " + step + " index " + i, shifted[i], data[offset + i], 0f);
+            }
+            int latest = ring.latestOffset(DspConfig.N_FFT);
+            for (int i = 0; i < DspConfig.N_FFT; i++) {
+                assertEquals(shifted[capacity - DspConfig.N_FFT + i], data[latest + i], 0f);
+            }
+        }
+        assertEquals(50L * hop, ring.totalWritten());
+    }
+}
@@ -3,8 +3,6 @@ package com.example.clap_to_find_sandbox.dsp_sandbox;
 import org.junit.Test;
 import java.io.File;
 import java.io.FileInputStream;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 
 /**
  * Manual Parity Test.
@@ -15,10 +13,7 @@ public class ParityValidatorManualTest {
     @Test
     public void runManualParity() throws Exception {
         // Find assets relative to project root
-        File root = new File("src/main/assets/dsp/");
-        if (!root.exists()) {
-            root = new File("app/src/main/assets/dsp/");
-        }
+        File root = TestAssets.dspDir();
 
         System.out.println("DSP_PARITY: Using assets from: " + root.getAbsolutePath());
 
@@ -30,33 +25,18 @@ public class ParityValidatorManualTest {
             throw new RuntimeException("Could not find test_clap.wav at " + wavFile.getAbsolutePath());
         }
 
-        // 1. Load WAV and convert to float
-        FileInputStream wavIs = new FileInputStream(wavFile);
-        byte[] wavBytes = wavIs.readAllBytes();
-        wavIs.close();
-
-        // Skip 44-byte WAV header
-        int floatCount = (wavBytes.length - 44) / 2;
-        float[] floatData = new float[floatCount];
-        short[] shortArray = new short[floatCount];
-        ByteBuffer.wrap(wavBytes, 44, wavBytes.length - 44)
-                .order(ByteOrder.LITTLE_ENDIAN)
-                .asShortBuffer()
-                .get(shortArray);
-
-        for (int i = 0; i < floatCount; i++) {
-            floatData[i] = shortArray[i] / 32768.0f;
-        }
-
-        // 2. Initialize and Run Validator
-        FileInputStream hannIs = new FileInputStream(hannFile);
-        FileInputStream melIs = new FileInputStream(melFile);
-        
-        Parity_Validator validator = new Parity_Validator(hannIs, melIs);
-        
         // Output will be saved to the project root
         String outputPath = "parity_results_junit.csv";
-        validator.runParityTest(floatData, outputPath);
+
+        // 1. Open the WAV (RIFF chunks parsed, data chunk memory-mapped, read hop by hop)
+        try (WavReader wav = new WavReader(wavFile)) {
+            // 2. Initialize and Run Validator
+            FileInputStream hannIs = new FileInputStream(hannFile);
+            FileInputStream melIs = new FileInputStream(melFile);
+
+            Parity_Validator validator = new Parity_Validator(hannIs, melIs);
+            validator.runParityTest(wav, outputPath);
+        }
         
         System.out.println("DSP_PARITY: Test completed. Results saved to: " + new File(outputPath).getAbsolutePath());
     }
@@ -0,0 +1,100 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PcmRingBufferTest {
+
+    @Test
+    public void fullRingDropsAndCountsOverruns() {
+        PcmRingBuffer ring = new PcmRingBuffer(1000); // rounds up to 1024
+        short[] hop = new short[DspConfig.HOP_LENGTH];
+        int accepted = 0;
+        for (int i = 0; i < 10; i++) {
+            if (ring.write(hop, 0, hop.length)) accepted++;
+        }
+        assertEquals(1024, ring.capacity());
+        assertEquals(6, accepted); // 6 * 160 = 960 <= 1024
+        assertEquals(4, ring.getOverrunEvents());
+        assertEquals(4L * DspConfig.HOP_LENGTH, ring.getDroppedSamples());
+        assertEquals(960, ring.available());
+    }
+
+    /** Direct-buffer blocks (AudioRecord.read(ByteBuffer, ...)) across the wrap point. */
+    @Test
+    public void writesShortBufferViewsAcrossTheWrap() {
+        PcmRingBuffer ring = new PcmRingBuffer(1024);
+        ByteBuffer bytes = ByteBuffer.allocateDirect(2 * 640).order(ByteOrder.nativeOrder());
+        ShortBuffer view = bytes.asShortBuffer();
+        short[] dst = new short[640];
+        int next = 0;
+        for (int block = 0; block < 5; block++) {
+            view.clear();
+            for (int i = 0; i < 640; i++) view.put(i, (short) (next + i));
+            view.limit(block == 4 ? 100 : 640); // last read came back short
+            assertTrue(ring.write(view));
+            assertEquals(view.limit(), view.position());
+            int n = ring.read(dst, 0, dst.length);
+            assertEquals(view.limit(), n);
+            for (int i = 0; i < n; i++) assertEquals((short) (next + i), dst[i]);
+            next += n;
+        }
+
+        // Full ring: dropped, position untouched
+        view.clear();
+        assertTrue(ring.write(view));
+        view.position(0);
+        assertFalse(ring.write(view));
+        assertEquals(0, view.position());
+        assertEquals(1, ring.getOverrunEvents());
+    }
+
+    @Test
+    public void producerAndConsumerThreadsSeeEverySampleInOrder() throws Exception {
+        PcmRingBuffer ring = new PcmRingBuffer(512);
+        int total = 2_000_000;
+        AtomicReference<String> error = new AtomicReference<>();
+
+        Thread consumer = new Thread(() -> {
+            short[] dst = new short[97];
+            int expected = 0;
+            while (expected < total) {
+                int n = ring.read(dst, 0, dst.length);
+                for (int i = 0; i < n; i++) {
+                    if (dst[i] != (short) expected) {
+                        error.compareAndSet(null, "At " + expected + " got " + dst[i]);
+                        return;
+                    }
+                    expected++;
+                }
+                if (n == 0) Thread.yield();
+            }
+        });
+        consumer.start();
+
+        short[] block = new short[DspConfig.HOP_LENGTH];
+        int next = 0;
+        while (next < total) {
+            int n = Math.min(block.length, total - next);
+            for (int i = 0; i < n; i++) block[i] = (short) (next + i);
+            if (ring.write(block, 0, n)) {
+                next += n;
+            } else {
+                Thread.yield(); // Test producer retries instead of dropping
+            }
+        }
+        consumer.join(30_000);
+        assertFalse(consumer.isAlive());
+        assertNull(error.get());
+        assertEquals(total, ring.getWrittenSamples());
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RealFFTTest {
+    private static final int N_FREQS = DspConfig.N_FFT / 2 + 1;
+
+    /** Random frames, every supported size, full and zero-tailed: JTransforms to float rounding. */
+    @Test
+    public void matchesJTransformsOnRandomFrames() {
+        Random rng = new Random(18);
+        for (int n = 8; n <= 2048; n *= 2) {
+            for (int nonZero : new int[]{n, n / 2, n * 25 / 32, n - 1}) {
+                float[] frame = new float[n];
+                for (int i = 0; i < nonZero; i++) frame[i] = rng.nextFloat() * 2 - 1;
+
+                float[] expected = new float[n / 2 + 1];
+                float[] actual = new float[n / 2 + 1];
+                new FFTProcessor(n).getPowerSpectrum(frame, expected);
+                new RealFFT(n, nonZero).powerSpectrum(frame, actual);
+                assertClose("n " + n + ", non-zero " + nonZero, expected, actual);
+            }
+        }
+    }
+
+    /** A bin-centred sinusoid lands in its bin and nowhere else. */
+    @Test
+    public void sinusoidPeaksInItsBin() {
+        int n = DspConfig.N_FFT;
+        int bin = 37;
+        float[] frame = new float[n];
+        for (int i = 0; i < n; i++) frame[i] = (float) Math.cos(2 * Math.PI * bin * i / n);
+
+        float[] power = new float[n / 2 + 1];
+        new RealFFT(n).powerSpectrum(frame, power);
+        // |X[bin]| = N/2, scaled by 1/N^2
+        assertEquals(0.25f, power[bin], 1e-6f);
+        for (int k = 0; k < power.length; k++) {
+            if (k != bin) assertEquals("bin " + k, 0f, power[k], 1e-9f);
+        }
+    }
+
+    /** The live configuration: Hann-windowed clip frames, power and log-mel within the parity tolerance. */
+    @Test
+    public void clipFramesMatchReferenceFrontEnd() throws Exception {
+        File root = TestAssets.dspDir();
+        HannWindow hann = new HannWindow(new FileInputStream(new File(root, "hann_window.bin")), DspConfig.WIN_LENGTH);
+        MelFilterbank mel = new MelFilterbank(new FileInputStream(new File(root, "mel_filterbank.bin")),
+                DspConfig.N_MELS, N_FREQS);
+        FramePipeline reference = new FramePipeline(hann, new FFTProcessor(DspConfig.N_FFT), mel,
+                new LogMelExtractor(), DspConfig.N_FFT, DspConfig.N_MELS);
+        FramePipeline specialized = new FramePipeline(hann,
+                new FFTProcessor(DspConfig.N_FFT, DspConfig.WIN_LENGTH, true), mel,
+                new LogMelExtractor(), DspConfig.N_FFT, DspConfig.N_MELS);
+
+        float[] wav = WavReader.readAll(new File(root, "test_clap.wav"));
+        int nFrames = (wav.length - DspConfig.N_FFT) / DspConfig.HOP_LENGTH + 1;
+        float maxDb = 0;
+        for (int i = 0; i < nFrames; i++) {
+            int offset = i * DspConfig.HOP_LENGTH;
+            float[] expected = reference.process(wav, offset).clone();
+            float[] actual = specialized.process(wav, offset);
+            assertClose("power, frame " + i, reference.getPowerSpectrum(), specialized.getPowerSpectrum());
+            for (int m = 0; m < expected.length; m++) {
+                maxDb = Math.max(maxDb, Math.abs(expected[m] - actual[m]));
+            }
+        }
+        assertTrue("max log-mel difference " + maxDb + " dB", maxDb <= DspConfig.PARITY_TOLERANCE_DB);
+    }
+
+    @Test
+    public void rejectsUnsupportedSizes() {
+        for (int n : new int[]{0, 4, 400, 768}) {
+            try {
+                new RealFFT(n);
+                fail("Expected rejection of n = " + n);
+            } catch (IllegalArgumentException expected) {
+                // ok
+            }
+        }
+    }
+
+    // Relative to the frame's strongest bin: float rounding, no structural error
+    private static void assertClose(String message, float[] expected, float[] actual) {
+        float peak = 0;
+        for (float v : expected) peak = Math.max(peak, v);
+        for (int k = 0; k < expected.length; k++) {
+            assertEquals(message + ", bin " + k, expected[k], actual[k], 1e-5f * peak + 1e-12f);
+        }
+    }
+}
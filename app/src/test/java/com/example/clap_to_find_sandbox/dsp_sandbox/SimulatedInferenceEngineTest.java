@@ -0,0 +1,93 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SimulatedInferenceEngineTest {
+
+    private static final int WINDOW = DspConfig.MODEL_INPUT_SIZE;
+
+    @Test
+    public void scoresAreDeterministic() {
+        float[] samples = new float[3 * WINDOW];
+        samples[WINDOW / 2] = 0.1f;             // quiet window
+        samples[WINDOW + 100] = -0.3f;          // loud window
+        samples[2 * WINDOW + 5] = 0.9f;         // clipped window
+        int[] offsets = {0, WINDOW, 2 * WINDOW};
+
+        SimulatedInferenceEngine engine = new SimulatedInferenceEngine(0);
+        float[] expected = new float[3];
+        for (int i = 0; i < 3; i++) {
+            expected[i] = engine.scoreWaveform(samples, offsets[i]);
+        }
+        assertArrayEquals(new float[]{0.2f, 0.6f, 1.0f}, expected, 1e-6f);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(expected[i], engine.scoreWaveform(samples, offsets[i]), 0f);
+        }
+        assertEquals(6, engine.getInvocations());
+    }
+
+    @Test
+    public void batchMatchesSingleCallsInOneInvoke() {
+        float[] samples = new float[3 * WINDOW];
+        samples[WINDOW / 2] = 0.1f;
+        samples[WINDOW + 100] = -0.3f;
+        samples[2 * WINDOW + 5] = 0.9f;
+        // Overlapping windows, out of order, like held-back groups in one ring
+        int[] offsets = {WINDOW / 3, 2 * WINDOW, WINDOW + 50};
+
+        SimulatedInferenceEngine single = new SimulatedInferenceEngine(0);
+        float[] expected = new float[3];
+        for (int i = 0; i < 3; i++) {
+            expected[i] = single.scoreWaveform(samples, offsets[i]);
+        }
+
+        SimulatedInferenceEngine batched = new SimulatedInferenceEngine(0, false, true);
+        assertTrue(batched.supportsBatch());
+        float[] scores = new float[3];
+        batched.scoreWaveformBatch(samples, offsets, 3, scores);
+        assertArrayEquals(expected, scores, 0f);
+        assertEquals(1, batched.getInvocations());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void fixedBatchEngineRefusesABatch() {
+        SimulatedInferenceEngine engine = new SimulatedInferenceEngine(0);
+        assertFalse(engine.supportsBatch());
+        engine.scoreWaveformBatch(new float[WINDOW], new int[]{0}, 1, new float[1]);
+    }
+
+    @Test
+    public void invokeOccupiesTheCallerForTheConfiguredCost() {
+        long cost = 2_000_000L; // 2 ms
+        SimulatedInferenceEngine engine = new SimulatedInferenceEngine(cost);
+        float[] window = new float[WINDOW];
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            engine.scoreWaveform(window, 0);
+        }
+        long elapsed = System.nanoTime() - start;
+        assertTrue("Elapsed " + elapsed, elapsed >= 5 * cost);
+        assertTrue(engine.getSpentNanos() >= 5 * cost);
+    }
+
+    @Test
+    public void featuresEngineScoresTheFlatPatch() {
+        SimulatedInferenceEngine engine = new SimulatedInferenceEngine(0, true);
+        FeatureStacker stacker = new FeatureStacker(DspConfig.N_MELS, DspConfig.TIME_FRAMES);
+        assertEquals(0f, engine.scorePatch(stacker.patchArray(), stacker.patchOffset()), 0f);
+
+        float[] frame = new float[DspConfig.N_MELS];
+        Arrays.fill(frame, -100f);
+        frame[10] = -25f;
+        stacker.addFrame(frame);
+        assertEquals(0.75f, engine.scorePatch(stacker.patchArray(), stacker.patchOffset()), 1e-6f);
+    }
+}
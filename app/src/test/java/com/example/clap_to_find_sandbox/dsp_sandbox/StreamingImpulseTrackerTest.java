@@ -0,0 +1,140 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * StreamingImpulseTracker must reproduce the reference ImpulseValidator hop by hop.
+ */
+public class StreamingImpulseTrackerTest {
+
+    private FramePipeline pipeline;
+    private File root;
+
+    @Before
+    public void setup() throws Exception {
+        root = TestAssets.dspDir();
+        int nFreqs = DspConfig.N_FFT / 2 + 1;
+        pipeline = new FramePipeline(
+                new HannWindow(new FileInputStream(new File(root, "hann_window.bin")), DspConfig.WIN_LENGTH),
+                new FFTProcessor(DspConfig.N_FFT),
+                new MelFilterbank(new FileInputStream(new File(root, "mel_filterbank.bin")), DspConfig.N_MELS, nFreqs),
+                new LogMelExtractor(),
+                DspConfig.N_FFT, DspConfig.N_MELS);
+    }
+
+    @Test
+    public void matchesReferenceOnTestClap() throws Exception {
+        float[] wav = WavReader.readAll(new File(root, "test_clap.wav"));
+        int accepted = assertEquivalent(wav);
+        assertTrue("test_clap.wav should pass the gate at least once", accepted > 0);
+    }
+
+    @Test
+    public void matchesReferenceOnSyntheticBursts() {
+        // Loud clicks, slow swells and ringing tones over a noise floor
+        Random random = new Random(7);
+        float[] signal = new float[16000 * 3];
+        for (int i = 0; i < signal.length; i++) {
+            signal[i] = (random.nextFloat() - 0.5f) * 0.02f;
+        }
+        for (int start = 800; start + 4000 < signal.length; start += 2900) {
+            int kind = random.nextInt(3);
+            float amp = 0.1f + random.nextFloat() * 0.8f;
+            for (int i = 0; i < 4000; i++) {
+                float env;
+                if (kind == 0) env = (float) Math.exp(-i / 80.0);                 // clap-like
+                else if (kind == 1) env = Math.min(1f, i / 2000f);                // slow attack
+                else env = (float) Math.exp(-i / 3000.0);                         // ringing
+                signal[start + i] += amp * env * (float) Math.sin(i * 0.9 + kind) * (random.nextFloat() * 0.5f + 0.5f);
+            }
+        }
+        assertTrue(assertEquivalent(signal) > 0);
+    }
+
+    @Test
+    public void earliestPeakWinsTiesLikeReference() {
+        // Coarsely quantized bursts: many equal |x| values inside one frame
+        Random random = new Random(11);
+        float[] signal = new float[16000];
+        for (int start = 500; start + 1200 < signal.length; start += 1700) {
+            for (int i = 0; i < 1200; i++) {
+                float v = (float) (Math.exp(-i / 300.0) * Math.sin(i * 1.3 + random.nextFloat()));
+                signal[start + i] = Math.round(v * 4) / 4.0f;
+            }
+        }
+        assertTrue(assertEquivalent(signal) > 0);
+    }
+
+    /** Drives both gates over the signal hop by hop and returns the number of accepted frames. */
+    private int assertEquivalent(float[] wav) {
+        StreamingImpulseTracker tracker = new StreamingImpulseTracker(DspConfig.N_FFT);
+        tracker.push(wav, 0, DspConfig.N_FFT);
+
+        int accepted = 0;
+        int nFrames = (wav.length - DspConfig.N_FFT) / DspConfig.HOP_LENGTH + 1;
+        for (int f = 0; f < nFrames; f++) {
+            int offset = f * DspConfig.HOP_LENGTH;
+            if (f > 0) {
+                tracker.push(wav, offset + DspConfig.N_FFT - DspConfig.HOP_LENGTH, DspConfig.HOP_LENGTH);
+            }
+            float[] power = pipeline.computePowerSpectrum(wav, offset);
+
+            boolean expected = ImpulseValidator.isImpulse(wav, offset, DspConfig.N_FFT, power);
+            boolean actual = tracker.isImpulse(power);
+            assertEquals("Gate decision, frame " + f, expected, actual);
+            if (actual) accepted++;
+
+            // Peak and the envelope metrics, recomputed by brute force over the frame
+            float peak = 0;
+            int peakIdx = 0;
+            for (int i = 0; i < DspConfig.N_FFT; i++) {
+                float abs = Math.abs(wav[offset + i]);
+                if (abs > peak) {
+                    peak = abs;
+                    peakIdx = i;
+                }
+            }
+            assertEquals("Peak, frame " + f, peak, tracker.getPeak(), 0f);
+            if (peak < ImpulseCriteria.PEAK_THRESHOLD) continue;
+            assertEquals("Peak index, frame " + f, offset + peakIdx, tracker.getPeakSample());
+
+            int startIdx = 0;
+            for (int i = peakIdx; i >= Math.max(0, peakIdx - ImpulseCriteria.ATTACK_LOOKBACK); i--) {
+                if (Math.abs(wav[offset + i]) < peak * 0.1f) {
+                    startIdx = i;
+                    break;
+                }
+            }
+            assertEquals("Attack, frame " + f, ImpulseCriteria.samplesToMs(peakIdx - startIdx), tracker.getAttackMs(), 0f);
+            if (tracker.getAttackMs() > ImpulseCriteria.ATTACK_TIME_MAX_MS) continue;
+
+            int endIdx = DspConfig.N_FFT - 1;
+            for (int i = peakIdx; i < Math.min(DspConfig.N_FFT, peakIdx + ImpulseCriteria.DECAY_LOOKAHEAD); i++) {
+                if (Math.abs(wav[offset + i]) < peak * 0.2f) {
+                    endIdx = i;
+                    break;
+                }
+            }
+            assertEquals("Decay, frame " + f, ImpulseCriteria.samplesToMs(endIdx - peakIdx), tracker.getDecayMs(), 0f);
+            if (tracker.getDecayMs() > ImpulseCriteria.DECAY_TIME_MAX_MS) continue;
+
+            int exclusionStart = Math.max(0, startIdx - ImpulseCriteria.RINGING_GUARD);
+            int exclusionEnd = Math.min(DspConfig.N_FFT, endIdx + ImpulseCriteria.RINGING_GUARD);
+            float secondary = 0;
+            for (int i = 0; i < DspConfig.N_FFT; i++) {
+                if (i >= exclusionStart && i <= exclusionEnd) continue;
+                secondary = Math.max(secondary, Math.abs(wav[offset + i]));
+            }
+            assertEquals("Ringing, frame " + f, secondary / peak, tracker.getRingingRatio(), 0f);
+        }
+        return accepted;
+    }
+}
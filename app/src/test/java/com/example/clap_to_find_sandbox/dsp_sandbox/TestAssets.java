@@ -0,0 +1,28 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import java.io.File;
+import java.io.IOException;
+
+/** The frozen DSP assets, from the app module (Gradle) or the repo root (IDE runner). */
+final class TestAssets {
+
+    private TestAssets() {
+    }
+
+    static File dspDir() {
+        File root = new File("src/main/assets/dsp/");
+        return root.exists() ? root : new File("app/src/main/assets/dsp/");
+    }
+
+    static File file(String name) {
+        return new File(dspDir(), name);
+    }
+
+    /** A PCM16 asset as the raw sample values (WavReader.readAll scaled back by 32768, exact). */
+    static short[] readPcm16(String name) throws IOException {
+        float[] samples = WavReader.readAll(file(name));
+        short[] pcm = new short[samples.length];
+        for (int i = 0; i < samples.length; i++) pcm[i] = (short) Math.round(samples[i] * 32768.0f);
+        return pcm;
+    }
+}
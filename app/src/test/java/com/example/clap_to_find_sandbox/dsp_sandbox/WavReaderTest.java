@@ -0,0 +1,232 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WavReaderTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void clipMatchesPlainHeaderDecode() throws Exception {
+        File wavFile = new File(TestAssets.dspDir(), "test_clap.wav");
+        byte[] wavBytes;
+        try (FileInputStream is = new FileInputStream(wavFile)) {
+            wavBytes = is.readAllBytes();
+        }
+        // The bundled clip has the canonical 44-byte header
+        short[] shorts = new short[(wavBytes.length - 44) / 2];
+        ByteBuffer.wrap(wavBytes, 44, wavBytes.length - 44).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(shorts);
+
+        try (WavReader reader = new WavReader(wavFile)) {
+            assertEquals(DspConfig.SAMPLE_RATE, reader.getSampleRate());
+            assertEquals(shorts.length, reader.getSampleCount());
+            assertEquals(WavReader.FORMAT_PCM, reader.getFormatTag());
+        }
+        float[] data = WavReader.readAll(wavFile);
+        for (int i = 0; i < shorts.length; i++) {
+            assertEquals(shorts[i] / 32768.0f, data[i], 0f);
+        }
+    }
+
+    @Test
+    public void skipsExtraChunksAndPadding() throws Exception {
+        short[] pcm = {0, 1000, -1000, 32767, -32768, 12345, -7};
+        ByteBuffer data = le(pcm.length * 2);
+        for (short s : pcm) data.putShort(s);
+
+        ByteArrayOutputStream chunks = new ByteArrayOutputStream();
+        chunks.write(chunk("LIST", "INFOabc".getBytes(StandardCharsets.US_ASCII))); // odd size, padded
+        chunks.write(chunk("fmt ", fmt(WavReader.FORMAT_PCM, 1, 16)));
+        chunks.write(chunk("fact", new byte[4]));
+        chunks.write(chunk("data", data.array()));
+        chunks.write(chunk("id3 ", new byte[9])); // trailing metadata must not be read as audio
+        File file = riff(chunks.toByteArray());
+
+        float[] read = WavReader.readAll(file);
+        assertEquals(pcm.length, read.length);
+        for (int i = 0; i < pcm.length; i++) {
+            assertEquals(pcm[i] / 32768.0f, read[i], 0f);
+        }
+    }
+
+    @Test
+    public void readsFloat32AndExtensible() throws Exception {
+        float[] samples = {0f, 0.5f, -0.25f, 1e-6f, -1f, 0.999f};
+        ByteBuffer data = le(samples.length * 4);
+        for (float f : samples) data.putFloat(f);
+
+        File plain = riff(concat(chunk("fmt ", fmt(WavReader.FORMAT_IEEE_FLOAT, 1, 32)), chunk("data", data.array())));
+        assertArrayEquals(samples, WavReader.readAll(plain), 0f);
+
+        // WAVE_FORMAT_EXTENSIBLE: cbSize 22, valid bits, channel mask, SubFormat GUID starting with the tag
+        ByteBuffer ext = le(40);
+        ext.put(fmt(0xFFFE, 1, 32)).putShort((short) 22).putShort((short) 32).putInt(4)
+                .putShort((short) WavReader.FORMAT_IEEE_FLOAT);
+        File extensible = riff(concat(chunk("fmt ", ext.array()), chunk("data", data.array())));
+        try (WavReader reader = new WavReader(extensible)) {
+            assertEquals(WavReader.FORMAT_IEEE_FLOAT, reader.getFormatTag());
+        }
+        assertArrayEquals(samples, WavReader.readAll(extensible), 0f);
+    }
+
+    @Test
+    public void hopReadsCrossMappedWindows() throws Exception {
+        File wavFile = new File(TestAssets.dspDir(), "test_clap.wav");
+        float[] all = WavReader.readAll(wavFile);
+
+        // 100-byte windows (50 samples) and 160-sample hops: every hop spans several remaps
+        float[] streamed = new float[all.length];
+        float[] hop = new float[DspConfig.HOP_LENGTH];
+        int total = 0;
+        try (WavReader reader = new WavReader(wavFile, 100)) {
+            int n;
+            while ((n = reader.read(hop, 0, hop.length)) > 0) {
+                System.arraycopy(hop, 0, streamed, total, n);
+                total += n;
+                assertEquals(total, reader.getPosition());
+            }
+            assertEquals(-1, reader.read(hop, 0, hop.length));
+            assertFalse(reader.readFully(hop, 0, 1));
+        }
+        assertEquals(all.length, total);
+        assertArrayEquals(all, streamed, 0f);
+    }
+
+    /** PCM16 reads: straight copy for 16-bit files (across remaps), rounded and clamped for float. */
+    @Test
+    public void readsPcm16() throws Exception {
+        File wavFile = new File(TestAssets.dspDir(), "test_clap.wav");
+        float[] all = WavReader.readAll(wavFile);
+        short[] pcm = new short[all.length];
+        int total = 0;
+        try (WavReader reader = new WavReader(wavFile, 100)) {
+            int n;
+            while ((n = reader.read(pcm, total, Math.min(DspConfig.HOP_LENGTH, pcm.length - total))) > 0) {
+                total += n;
+            }
+        }
+        assertEquals(all.length, total);
+        for (int i = 0; i < all.length; i++) {
+            assertEquals(all[i], pcm[i] / 32768.0f, 0f);
+        }
+
+        float[] samples = {0f, 0.5f, -0.25f, 1.5f, -1.5f, 1f / 65536};
+        ByteBuffer data = le(samples.length * 4);
+        for (float f : samples) data.putFloat(f);
+        File floats = riff(concat(chunk("fmt ", fmt(WavReader.FORMAT_IEEE_FLOAT, 1, 32)), chunk("data", data.array())));
+        short[] quantized = new short[samples.length];
+        try (WavReader reader = new WavReader(floats)) {
+            assertEquals(samples.length, reader.read(quantized, 0, quantized.length));
+        }
+        assertArrayEquals(new short[]{0, 16384, -8192, 32767, -32768, 1}, quantized);
+    }
+
+    @Test
+    public void unfinalizedDataSizeUsesFileLength() throws Exception {
+        short[] pcm = {1, 2, 3, 4, 5};
+        ByteBuffer data = le(pcm.length * 2);
+        for (short s : pcm) data.putShort(s);
+        byte[] dataChunk = chunk("data", data.array());
+        // Recorder killed before patching the size
+        ByteBuffer.wrap(dataChunk, 4, 4).order(ByteOrder.LITTLE_ENDIAN).putInt(0xFFFFFFFF);
+
+        File file = riff(concat(chunk("fmt ", fmt(WavReader.FORMAT_PCM, 1, 16)), dataChunk));
+        try (WavReader reader = new WavReader(file)) {
+            assertEquals(pcm.length, reader.getSampleCount());
+        }
+    }
+
+    @Test
+    public void rejectsUnsupportedFormats() throws Exception {
+        byte[] data = chunk("data", new byte[12]);
+        assertRejected(riff(concat(chunk("fmt ", fmt(WavReader.FORMAT_PCM, 1, 24)), data)));
+        assertRejected(riff(concat(chunk("fmt ", fmt(WavReader.FORMAT_PCM, 2, 16)), data)));
+        assertRejected(riff(chunk("fmt ", fmt(WavReader.FORMAT_PCM, 1, 16))));
+        File notWav = tmp.newFile();
+        Files.write(notWav.toPath(), "not a wav file at all".getBytes(StandardCharsets.US_ASCII));
+        assertRejected(notWav);
+    }
+
+    @Test
+    public void streamingParityMatchesArrayPath() throws Exception {
+        File root = TestAssets.dspDir();
+        File wavFile = new File(root, "test_clap.wav");
+        File arrayCsv = tmp.newFile("array.csv");
+        File streamCsv = tmp.newFile("stream.csv");
+
+        new Parity_Validator(new FileInputStream(new File(root, "hann_window.bin")),
+                new FileInputStream(new File(root, "mel_filterbank.bin")))
+                .runParityTest(WavReader.readAll(wavFile), arrayCsv.getPath());
+        try (WavReader wav = new WavReader(wavFile)) {
+            new Parity_Validator(new FileInputStream(new File(root, "hann_window.bin")),
+                    new FileInputStream(new File(root, "mel_filterbank.bin")))
+                    .runParityTest(wav, streamCsv.getPath());
+        }
+
+        byte[] expected = Files.readAllBytes(arrayCsv.toPath());
+        assertTrue(expected.length > 0);
+        assertTrue(Arrays.equals(expected, Files.readAllBytes(streamCsv.toPath())));
+    }
+
+    private void assertRejected(File file) throws IOException {
+        WavReader reader;
+        try {
+            reader = new WavReader(file);
+        } catch (IOException expected) {
+            return;
+        }
+        reader.close();
+        fail("Expected IOException for " + file);
+    }
+
+    private static byte[] fmt(int tag, int channels, int bits) {
+        ByteBuffer b = le(16);
+        b.putShort((short) tag).putShort((short) channels).putInt(DspConfig.SAMPLE_RATE)
+                .putInt(DspConfig.SAMPLE_RATE * channels * bits / 8)
+                .putShort((short) (channels * bits / 8)).putShort((short) bits);
+        return b.array();
+    }
+
+    private static byte[] chunk(String id, byte[] body) {
+        ByteBuffer b = le(8 + body.length + (body.length & 1));
+        b.put(id.getBytes(StandardCharsets.US_ASCII)).putInt(body.length).put(body);
+        return b.array();
+    }
+
+    private File riff(byte[] chunks) throws IOException {
+        ByteBuffer b = le(12 + chunks.length);
+        b.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(4 + chunks.length)
+                .put("WAVE".getBytes(StandardCharsets.US_ASCII)).put(chunks);
+        File file = tmp.newFile();
+        Files.write(file.toPath(), b.array());
+        return file;
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] out = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
+    }
+
+    private static ByteBuffer le(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
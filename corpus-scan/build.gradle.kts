@@ -0,0 +1,53 @@
+// Offline, Android-free corpus scanner: runs the app's DetectionPipeline over a directory of WAVs.
+// Compiles the app's dsp_sandbox sources directly, so it always scans with the shipped detection code.
+//
+//   ./gradlew :corpus-scan:run --args="/data/field-recordings --threads 8 --out timeline.txt"
+plugins {
+    application
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+val appDir = rootProject.layout.projectDirectory.dir("app/src/main")
+
+sourceSets {
+    main {
+        java {
+            srcDir(appDir.dir("java"))
+            // dsp_sandbox/ is Android-free by design; nothing else from the app is pulled in
+            include("**/dsp_sandbox/**", "**/scan/**")
+        }
+    }
+}
+
+dependencies {
+    implementation(libs.jtransforms)
+}
+
+application {
+    mainClass.set("com.example.clap_to_find_sandbox.scan.CorpusScanner")
+    applicationDefaultJvmArgs = listOf("-Ddsp.assets=" + appDir.dir("assets/dsp").asFile.absolutePath)
+}
+
+// Replays one WAV through the app's detection loop as fast as the CPU allows, reports the real-time factor:
+//   ./gradlew :corpus-scan:replay --args="/data/kitchen-1h.wav --runs 5"
+tasks.register<JavaExec>("replay") {
+    group = "application"
+    description = "Replays a WAV through DetectionLoop faster than real time and reports the RTF"
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("com.example.clap_to_find_sandbox.scan.ReplayRunner")
+    jvmArgs("-Ddsp.assets=" + appDir.dir("assets/dsp").asFile.absolutePath)
+}
+
+// Rebuilds app/src/main/assets/dsp/dsp_assets.pack after hann_window.bin, mel_filterbank.bin
+// or dsp_config.json change (DspAssetPackTest fails until the pack is regenerated).
+tasks.register<JavaExec>("packDspAssets") {
+    group = "build"
+    description = "Packs the DSP front-end assets into the versioned, checksummed dsp_assets.pack"
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("com.example.clap_to_find_sandbox.dsp_sandbox.DspAssetPack")
+    args(appDir.dir("assets/dsp").asFile.absolutePath)
+}
@@ -0,0 +1,244 @@
+package com.example.clap_to_find_sandbox.scan;
+
+import com.example.clap_to_find_sandbox.dsp_sandbox.ClapPattern;
+import com.example.clap_to_find_sandbox.dsp_sandbox.DetectionLoop;
+import com.example.clap_to_find_sandbox.dsp_sandbox.DetectionPipeline;
+import com.example.clap_to_find_sandbox.dsp_sandbox.DspAssetPack;
+import com.example.clap_to_find_sandbox.dsp_sandbox.DspConfig;
+import com.example.clap_to_find_sandbox.dsp_sandbox.FFTProcessor;
+import com.example.clap_to_find_sandbox.dsp_sandbox.FixedPointFrontEnd;
+import com.example.clap_to_find_sandbox.dsp_sandbox.FramePipeline;
+import com.example.clap_to_find_sandbox.dsp_sandbox.FusedFrontEnd;
+import com.example.clap_to_find_sandbox.dsp_sandbox.HannWindow;
+import com.example.clap_to_find_sandbox.dsp_sandbox.InferenceEngine;
+import com.example.clap_to_find_sandbox.dsp_sandbox.LogMelExtractor;
+import com.example.clap_to_find_sandbox.dsp_sandbox.LogMelPatchClassifier;
+import com.example.clap_to_find_sandbox.dsp_sandbox.MelFilterbank;
+import com.example.clap_to_find_sandbox.dsp_sandbox.SimulatedInferenceEngine;
+import com.example.clap_to_find_sandbox.dsp_sandbox.WavAudioSource;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Offline corpus scanner: the app's DetectionLoop (gate -> scheduler -> cascade / scorer ->
+ * threshold -> ClapLogic's pattern rules) over every WAV under a directory, one file per
+ * fork-join task.
+ *
+ * Each pool worker owns one front end (FFT plan + scratch) and one scorer; every file gets a
+ * fresh DetectionPipeline on that worker. The frozen window / mel table are shared read-only.
+ *
+ * No TFLite on a plain JVM: candidates are scored by the log-mel cascade (--cascade) and/or the
+ * deterministic SimulatedInferenceEngine. Input: 16 kHz mono WAV, 16-bit PCM or 32-bit float,
+ * streamed in capture blocks through WavAudioSource (constant memory per file). Float files
+ * are quantized to 16 bits like the mic, so the scan, ReplayRunner and the app agree.
+ *
+ * Usage: CorpusScanner <dir> [--threads N] [--cascade weights.bin] [--cost-us N]
+ *                            [--assets dir] [--out timeline.txt]
+ */
+public class CorpusScanner {
+    private final File cascadeWeights;
+    private final long simulatedCostNanos;
+
+    // Read-only after construction, shared by all workers
+    private final HannWindow hannWindow;
+    private final MelFilterbank melFilterbank;
+
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(this::newWorker);
+
+    /** Per pool thread: front end and scorer reused across the files that thread scans. */
+    private final class Worker {
+        // Exactly one of the two, as in AudioProcessor: fused with FAST_FFT, staged JTransforms otherwise
+        final FramePipeline framePipeline;
+        final FusedFrontEnd fusedFrontEnd;
+        final InferenceEngine engine;
+        final LogMelPatchClassifier cascade;
+
+        Worker() throws Exception {
+            LogMelExtractor logMel = new LogMelExtractor(DspConfig.FAST_MATH);
+            if (DspConfig.FAST_FFT) {
+                framePipeline = null;
+                fusedFrontEnd = new FusedFrontEnd(hannWindow, melFilterbank, logMel, DspConfig.N_FFT);
+            } else {
+                framePipeline = new FramePipeline(hannWindow, new FFTProcessor(DspConfig.N_FFT), melFilterbank,
+                        logMel, DspConfig.N_FFT, DspConfig.N_MELS);
+                fusedFrontEnd = null;
+            }
+            engine = new SimulatedInferenceEngine(simulatedCostNanos);
+            cascade = cascadeWeights == null ? null : new LogMelPatchClassifier(
+                    new FileInputStream(cascadeWeights), DspConfig.N_MELS, DspConfig.TIME_FRAMES);
+        }
+
+        DetectionPipeline newPipeline() {
+            if (DspConfig.FIXED_POINT) {
+                // Holds the int16 history of one stream: fresh per file
+                return new DetectionPipeline(new FixedPointFrontEnd(hannWindow, melFilterbank, DspConfig.N_FFT),
+                        engine, cascade);
+            }
+            return fusedFrontEnd != null
+                    ? new DetectionPipeline(fusedFrontEnd, engine, cascade)
+                    : new DetectionPipeline(framePipeline, engine, cascade);
+        }
+    }
+
+    public CorpusScanner(File assets, File cascadeWeights, long simulatedCostNanos) throws Exception {
+        this.cascadeWeights = cascadeWeights;
+        this.simulatedCostNanos = simulatedCostNanos;
+        DspAssetPack assetPack = DspAssetPack.map(new File(assets, DspAssetPack.ASSET_NAME));
+        this.hannWindow = new HannWindow(assetPack.window(), DspConfig.WIN_LENGTH);
+        this.melFilterbank = new MelFilterbank(assetPack.melMatrix(), DspConfig.N_MELS, DspConfig.N_FFT / 2 + 1);
+    }
+
+    private Worker newWorker() {
+        try {
+            return new Worker();
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot build scan worker", e);
+        }
+    }
+
+    /** A fresh pipeline on the calling thread's worker, as the scan builds them (ReplayRunner). */
+    DetectionPipeline newPipeline() {
+        return workers.get().newPipeline();
+    }
+
+    /** Scans files in parallel; results come back in input order. */
+    public List<FileTimeline> scan(List<Path> files, int threads) {
+        List<FileTimeline> results = new ArrayList<>();
+        List<FileScan> tasks = new ArrayList<>();
+        for (Path file : files) {
+            FileTimeline timeline = new FileTimeline(file);
+            results.add(timeline);
+            tasks.add(new FileScan(timeline));
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+        return results;
+    }
+
+    private final class FileScan extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FileTimeline timeline;
+
+        FileScan(FileTimeline timeline) {
+            this.timeline = timeline;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                scanFile(workers.get(), timeline);
+            } catch (Exception e) {
+                timeline.error = e.getMessage() == null ? e.toString() : e.getMessage();
+            }
+        }
+    }
+
+    /** The app's DetectionLoop on the file's PCM16 samples, exactly as ReplayRunner runs it. */
+    private void scanFile(Worker worker, FileTimeline timeline) throws Exception {
+        DetectionPipeline pipeline = worker.newPipeline();
+        DetectionLoop loop = new DetectionLoop(pipeline, ClapPattern.threeClaps(), new DetectionLoop.Listener() {
+            @Override
+            public void onConfidence(float probability) {
+                timeline.candidates++;
+            }
+
+            @Override
+            public void onClap(float probability, long peakSample, ClapPattern.Outcome outcome) {
+                if (outcome == ClapPattern.Outcome.PATTERN) timeline.patterns++;
+                // Timestamp the clap at its peak, not at the hop that scored it
+                timeline.events.add(new FileTimeline.Event(peakSample, probability,
+                        pipeline.isLastFromCascade(), outcome));
+            }
+        });
+        try (WavAudioSource source = new WavAudioSource(timeline.file.toFile())) {
+            if (loop.run(source) == 0) {
+                throw new IOException("Shorter than one frame");
+            }
+        }
+        timeline.samples = pipeline.getSampleClock();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            usage();
+        }
+        Path root = Paths.get(args[0]);
+        int threads = Runtime.getRuntime().availableProcessors();
+        File cascade = null;
+        long costNanos = 0;
+        File assets = new File(System.getProperty("dsp.assets", "app/src/main/assets/dsp"));
+        PrintStream out = System.out;
+        for (int i = 1; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                usage();
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--threads": threads = Integer.parseInt(value); break;
+                case "--cascade": cascade = new File(value); break;
+                case "--cost-us": costNanos = Long.parseLong(value) * 1000; break;
+                case "--assets": assets = new File(value); break;
+                case "--out": out = new PrintStream(new File(value), "UTF-8"); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(p -> Files.isRegularFile(p) && p.toString().toLowerCase(Locale.ROOT).endsWith(".wav"))
+                    .sorted(Comparator.naturalOrder())
+                    .collect(Collectors.toList());
+        }
+
+        CorpusScanner scanner = new CorpusScanner(assets, cascade, costNanos);
+        long start = System.nanoTime();
+        List<FileTimeline> timelines = scanner.scan(files, threads);
+        double wallMinutes = (System.nanoTime() - start) / 60e9;
+
+        double audioSeconds = 0;
+        long patterns = 0;
+        int skipped = 0;
+        for (FileTimeline timeline : timelines) {
+            timeline.print(out);
+            audioSeconds += timeline.seconds();
+            patterns += timeline.patterns;
+            if (timeline.error != null) skipped++;
+        }
+        out.flush();
+        double audioHours = audioSeconds / 3600.0;
+        System.err.println(String.format(Locale.US,
+                "%d files (%d skipped), %.3f audio-hours in %.3f min on %d threads: %.2f audio-hours/min, %d patterns",
+                files.size(), skipped, audioHours, wallMinutes, threads, audioHours / wallMinutes, patterns));
+        if (out != System.out) out.close();
+    }
+
+    private static void usage() {
+        System.err.println("Usage: CorpusScanner <dir> [--threads N] [--cascade weights.bin] [--cost-us N]"
+                + " [--assets dir] [--out timeline.txt]");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.clap_to_find_sandbox.scan;
+
+import com.example.clap_to_find_sandbox.dsp_sandbox.ClapPattern;
+import com.example.clap_to_find_sandbox.dsp_sandbox.DspConfig;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Detection timeline of one file: every scored candidate that passed the confidence
+ * threshold, with its pattern outcome, on the file's sample clock.
+ */
+class FileTimeline {
+    static final class Event {
+        final long sample;
+        final float score;
+        final boolean fromCascade;
+        final ClapPattern.Outcome outcome;
+
+        Event(long sample, float score, boolean fromCascade, ClapPattern.Outcome outcome) {
+            this.sample = sample;
+            this.score = score;
+            this.fromCascade = fromCascade;
+            this.outcome = outcome;
+        }
+    }
+
+    final Path file;
+    final List<Event> events = new ArrayList<>();
+    long samples;
+    long candidates;
+    long patterns;
+    String error;
+
+    FileTimeline(Path file) {
+        this.file = file;
+    }
+
+    double seconds() {
+        return samples / (double) DspConfig.SAMPLE_RATE;
+    }
+
+    /**
+     * Compact form:
+     *   == path (123.4 s) candidates 17, claps 6, patterns 1
+     *      12.340  0.81  clap
+     *      12.910  0.77  clap
+     *      13.400  0.92  PATTERN   (c = cascade decision)
+     */
+    void print(PrintStream out) {
+        if (error != null) {
+            out.println("== " + file + " SKIPPED: " + error);
+            return;
+        }
+        out.println(String.format(Locale.US, "== %s (%.1f s) candidates %d, claps %d, patterns %d",
+                file, seconds(), candidates, events.size(), patterns));
+        for (Event e : events) {
+            String label = e.outcome == ClapPattern.Outcome.PATTERN ? "PATTERN"
+                    : e.outcome == ClapPattern.Outcome.ECHO ? "echo" : "clap";
+            out.println(String.format(Locale.US, "   %9.3f  %.2f  %s%s",
+                    e.sample / (double) DspConfig.SAMPLE_RATE, e.score, label, e.fromCascade ? " c" : ""));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.clap_to_find_sandbox.scan;
+
+import com.example.clap_to_find_sandbox.dsp_sandbox.ClapPattern;
+import com.example.clap_to_find_sandbox.dsp_sandbox.DetectionLoop;
+import com.example.clap_to_find_sandbox.dsp_sandbox.DetectionPipeline;
+import com.example.clap_to_find_sandbox.dsp_sandbox.DspConfig;
+import com.example.clap_to_find_sandbox.dsp_sandbox.WavAudioSource;
+
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * Replays one WAV through the app's DetectionLoop (hop sequencing, warmup, pre-gate, hard gate,
+ * scheduler, cascade / scorer, ClapPattern) as fast as the CPU allows, in CAPTURE_BLOCK_MS
+ * blocks like the mic, and reports the real-time factor: wall time / audio time.
+ * The first runs warm up the JIT; the best run is the steady-state headroom.
+ *
+ * Usage: ReplayRunner <file.wav> [--runs N] [--cascade weights.bin] [--cost-us N] [--assets dir]
+ */
+public class ReplayRunner {
+
+    /** Counts what the app would show: candidates, claps, alarms. */
+    private static final class Counts implements DetectionLoop.Listener {
+        long scored;
+        long echoes;
+        long patterns;
+
+        @Override
+        public void onConfidence(float probability) {
+            scored++;
+        }
+
+        @Override
+        public void onClap(float probability, long peakSample, ClapPattern.Outcome outcome) {
+            if (outcome == ClapPattern.Outcome.ECHO) echoes++;
+            if (outcome == ClapPattern.Outcome.PATTERN) patterns++;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            usage();
+        }
+        File wav = new File(args[0]);
+        int runs = 5;
+        File cascade = null;
+        long costNanos = 0;
+        File assets = new File(System.getProperty("dsp.assets", "app/src/main/assets/dsp"));
+        for (int i = 1; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                usage();
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--runs":
+                    runs = Integer.parseInt(value);
+                    break;
+                case "--cascade":
+                    cascade = new File(value);
+                    break;
+                case "--cost-us":
+                    costNanos = Long.parseLong(value) * 1000;
+                    break;
+                case "--assets":
+                    assets = new File(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        CorpusScanner scanner = new CorpusScanner(assets, cascade, costNanos);
+        double bestRtf = Double.MAX_VALUE;
+        for (int run = 1; run <= runs; run++) {
+            DetectionPipeline pipeline = scanner.newPipeline();
+            Counts counts = new Counts();
+            DetectionLoop loop = new DetectionLoop(pipeline, ClapPattern.threeClaps(), counts);
+
+            long start = System.nanoTime();
+            try (WavAudioSource source = new WavAudioSource(wav)) {
+                loop.run(source);
+            }
+            double wall = (System.nanoTime() - start) / 1e9;
+            double audio = loop.getAudioSeconds();
+            double rtf = wall / audio;
+            bestRtf = Math.min(bestRtf, rtf);
+
+            System.out.println(String.format(Locale.ROOT,
+                    "run %d: %.1f s audio in %.3f s, RTF %.5f (%.0fx real time), %.0f ns/hop;"
+                            + " %d candidates, %d inferences, %d claps (%d echoes), %d patterns, gate skip %.1f%%",
+                    run, audio, wall, rtf, 1 / rtf, wall * 1e9 / loop.getHops(),
+                    counts.scored, pipeline.getInferencesRun(), loop.getClaps(), counts.echoes, counts.patterns,
+                    100 * pipeline.getEnergyGate().getSkipRatio()));
+        }
+        System.out.println(String.format(Locale.ROOT, "best RTF %.5f: %.0fx real time, %.2f%% of one core at %d Hz",
+                bestRtf, 1 / bestRtf, 100 * bestRtf, DspConfig.SAMPLE_RATE));
+    }
+
+    private static void usage() {
+        System.err.println("Usage: ReplayRunner <file.wav> [--runs N] [--cascade weights.bin] [--cost-us N]"
+                + " [--assets dir]");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,66 @@
+// JVM-only JMH suite for the dsp_sandbox front end (no Android SDK needed).
+// Compiles the app's dsp_sandbox sources directly, so benchmarks always run the shipped code.
+//
+//   ./gradlew :dsp-bench:jmh           -> ns/hop + allocation (-prof gc) + real-time factor
+//   ./gradlew :dsp-bench:jmh -PjmhIncludes=fullHop
+import groovy.json.JsonSlurper
+
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+val appDir = rootProject.layout.projectDirectory.dir("app/src/main")
+
+sourceSets {
+    main {
+        java {
+            setSrcDirs(listOf(appDir.dir("java")))
+            // dsp_sandbox/ is Android-free by design; nothing else from the app is pulled in
+            include("**/dsp_sandbox/**")
+        }
+    }
+}
+
+dependencies {
+    implementation(libs.jtransforms)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    jvmArgsAppend.add("-Ddsp.assets=" + appDir.dir("assets/dsp").asFile.absolutePath)
+    (findProperty("jmhIncludes") as String?)?.let { includes.add(it) }
+}
+
+// Real-time factor = processing time per hop / audio time per hop (DspConfig: 160 samples @ 16 kHz).
+val hopNanos = 1e9 * 160 / 16000
+
+val jmhRealTimeReport by tasks.registering {
+    description = "Prints ns/hop, B/hop and real-time factor from the last JMH run."
+    val results = layout.buildDirectory.file("results/jmh/results.json")
+    inputs.file(results)
+    doLast {
+        @Suppress("UNCHECKED_CAST")
+        val runs = JsonSlurper().parse(results.get().asFile) as List<Map<String, Any>>
+        println(String.format("%-28s %12s %10s %10s", "benchmark", "ns/hop", "B/hop", "RTF"))
+        for (run in runs) {
+            val name = (run["benchmark"] as String).substringAfterLast('.')
+            val primary = run["primaryMetric"] as Map<String, Any>
+            val nsPerHop = (primary["score"] as Number).toDouble()
+            val secondary = run["secondaryMetrics"] as Map<String, Map<String, Any>>
+            val bytes = (secondary["gc.alloc.rate.norm"]?.get("score") as Number?)?.toDouble() ?: Double.NaN
+            println(String.format("%-28s %12.1f %10.1f %10.2e", name, nsPerHop, bytes, nsPerHop / hopNanos))
+        }
+    }
+}
+
+tasks.named("jmh") {
+    finalizedBy(jmhRealTimeReport)
+}
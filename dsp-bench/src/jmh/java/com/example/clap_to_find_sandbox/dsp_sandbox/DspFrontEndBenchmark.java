@@ -0,0 +1,187 @@
+package com.example.clap_to_find_sandbox.dsp_sandbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-hop cost of each front-end stage, alone and chained, at the DspConfig parameters
+ * (N_FFT 512, WIN 400, HOP 160, 64 mels). One benchmark op = one hop.
+ *
+ * Inputs are real: frozen hann_window.bin / mel_filterbank.bin and the frames of
+ * test_clap.wav. Each op advances to the next hop of the clip (wrapping), and every
+ * stage is fed that hop's real upstream output, precomputed in setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DspFrontEndBenchmark {
+    private static final int N_FREQS = DspConfig.N_FFT / 2 + 1;
+
+    private HannWindow hannWindow;
+    private FFTProcessor fftProcessor;
+    private RealFFT realFft;
+    private MelFilterbank melFilterbank;
+    private LogMelExtractor logMelExtractor;
+    private LogMelExtractor fastLogMelExtractor;
+    private FramePipeline framePipeline;
+    private FramePipeline realFftPipeline;
+    private FusedFrontEnd fusedFrontEnd;
+    private FixedPointFrontEnd fixedPointFrontEnd;
+    private FeatureStacker featureStacker;
+
+    private float[] wav;
+    private short[] pcm;
+    private int nHops;
+    private int hop;
+
+    // Real per-hop intermediates of the clip, one row per hop
+    private float[][] windowedFrames;
+    private float[][] powerSpectra;
+    private float[][] melEnergies;
+    private float[][] logMelFrames;
+
+    // Stage outputs (caller-owned, reused)
+    private final float[] frameOut = new float[DspConfig.N_FFT];
+    private final float[] powerOut = new float[N_FREQS];
+    private final float[] melOut = new float[DspConfig.N_MELS];
+    private final float[] logMelOut = new float[DspConfig.N_MELS];
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        File root = assetsDir();
+        hannWindow = new HannWindow(new FileInputStream(new File(root, "hann_window.bin")), DspConfig.WIN_LENGTH);
+        fftProcessor = new FFTProcessor(DspConfig.N_FFT);
+        realFft = new RealFFT(DspConfig.N_FFT, DspConfig.WIN_LENGTH);
+        melFilterbank = new MelFilterbank(new FileInputStream(new File(root, "mel_filterbank.bin")),
+                DspConfig.N_MELS, N_FREQS);
+        logMelExtractor = new LogMelExtractor();
+        fastLogMelExtractor = new LogMelExtractor(true);
+        framePipeline = new FramePipeline(hannWindow, new FFTProcessor(DspConfig.N_FFT), melFilterbank,
+                new LogMelExtractor(), DspConfig.N_FFT, DspConfig.N_MELS);
+        realFftPipeline = new FramePipeline(hannWindow, new FFTProcessor(DspConfig.N_FFT, DspConfig.WIN_LENGTH, true),
+                melFilterbank, new LogMelExtractor(), DspConfig.N_FFT, DspConfig.N_MELS);
+        fusedFrontEnd = new FusedFrontEnd(hannWindow, melFilterbank, new LogMelExtractor(), DspConfig.N_FFT);
+        fixedPointFrontEnd = new FixedPointFrontEnd(hannWindow, melFilterbank, DspConfig.N_FFT);
+        featureStacker = new FeatureStacker(DspConfig.N_MELS, DspConfig.TIME_FRAMES);
+
+        wav = WavReader.readAll(new File(root, "test_clap.wav"));
+        pcm = new short[wav.length];
+        for (int i = 0; i < wav.length; i++) {
+            pcm[i] = (short) Math.round(wav[i] * 32768.0f);
+        }
+        nHops = (wav.length - DspConfig.N_FFT) / DspConfig.HOP_LENGTH + 1;
+        windowedFrames = new float[nHops][DspConfig.N_FFT];
+        powerSpectra = new float[nHops][N_FREQS];
+        melEnergies = new float[nHops][DspConfig.N_MELS];
+        logMelFrames = new float[nHops][DspConfig.N_MELS];
+        for (int i = 0; i < nHops; i++) {
+            hannWindow.applyWindow(wav, i * DspConfig.HOP_LENGTH, windowedFrames[i]);
+            fftProcessor.getPowerSpectrum(windowedFrames[i], powerSpectra[i]);
+            melFilterbank.applyFilterbank(powerSpectra[i], melEnergies[i]);
+            logMelExtractor.computeLogMel(melEnergies[i], logMelFrames[i]);
+        }
+    }
+
+    private int nextHop() {
+        int h = hop;
+        hop = h + 1 == nHops ? 0 : h + 1;
+        return h;
+    }
+
+    @Benchmark
+    public float[] hannWindow() {
+        hannWindow.applyWindow(wav, nextHop() * DspConfig.HOP_LENGTH, frameOut);
+        return frameOut;
+    }
+
+    @Benchmark
+    public float[] fftPowerSpectrum() {
+        fftProcessor.getPowerSpectrum(windowedFrames[nextHop()], powerOut);
+        return powerOut;
+    }
+
+    /** Same frames through the specialized N=512 engine (zero tail beyond WIN_LENGTH pruned). */
+    @Benchmark
+    public float[] fftPowerSpectrumReal512() {
+        realFft.powerSpectrum(windowedFrames[nextHop()], powerOut);
+        return powerOut;
+    }
+
+    @Benchmark
+    public float[] melFilterbank() {
+        melFilterbank.applyFilterbank(powerSpectra[nextHop()], melOut);
+        return melOut;
+    }
+
+    @Benchmark
+    public float[] logMel() {
+        logMelExtractor.computeLogMel(melEnergies[nextHop()], logMelOut);
+        return logMelOut;
+    }
+
+    @Benchmark
+    public float[] logMelFastMath() {
+        fastLogMelExtractor.computeLogMel(melEnergies[nextHop()], logMelOut);
+        return logMelOut;
+    }
+
+    @Benchmark
+    public FeatureStacker featureStacker() {
+        featureStacker.addFrame(logMelFrames[nextHop()]);
+        return featureStacker;
+    }
+
+    /** Window -> FFT -> mel -> log -> stack: everything the worker does per hop before the gate. */
+    @Benchmark
+    public FeatureStacker fullHop() {
+        featureStacker.addFrame(framePipeline.process(wav, nextHop() * DspConfig.HOP_LENGTH));
+        return featureStacker;
+    }
+
+    /** Staged chain on RealFFT: window, spectrum and mel buffers between the stages. */
+    @Benchmark
+    public float[] frontEndStaged() {
+        return realFftPipeline.process(wav, nextHop() * DspConfig.HOP_LENGTH);
+    }
+
+    /** Same output, bit for bit, from the fused kernel (window in the packing, bins scattered into the mels). */
+    @Benchmark
+    public float[] frontEndFused() {
+        return fusedFrontEnd.process(wav, nextHop() * DspConfig.HOP_LENGTH, true, false);
+    }
+
+    /** Fused log-mel plus the gate's spectral summaries, as on a hop that passed the time-domain checks. */
+    @Benchmark
+    public float[] frontEndFusedWithSummaries() {
+        return fusedFrontEnd.process(wav, nextHop() * DspConfig.HOP_LENGTH);
+    }
+
+    /** Int16 / Q15 front end on the same hops as AudioRecord delivers them (log-mel only). */
+    @Benchmark
+    public float[] frontEndFixedPoint() {
+        return fixedPointFrontEnd.process(pcm, nextHop() * DspConfig.HOP_LENGTH, true, false);
+    }
+
+    private static File assetsDir() {
+        String configured = System.getProperty("dsp.assets");
+        if (configured != null) return new File(configured);
+        File root = new File("app/src/main/assets/dsp/");
+        return root.exists() ? root : new File("../app/src/main/assets/dsp/");
+    }
+}
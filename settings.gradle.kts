@@ -21,4 +21,6 @@ dependencyResolutionManagement {
 
 rootProject.name = "Clap_to_find_sandbox"
 include(":app")
+include(":dsp-bench")
+include(":corpus-scan")
  
\ No newline at end of file